@@ -1,10 +1,12 @@
 package com.learning.ratelimiter.config;
 
+import com.learning.ratelimiter.store.StateStoreType;
 import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @ConfigurationProperties(prefix = "rate-limiter")
@@ -23,9 +25,36 @@ public class RateLimiterProperties {
 
     private String failSafeStrategy="DENY";
 
+    // Time each stage of 1 in N rate limit checks (0 = off)
+    private int stageTimingSampleRate = 0;
+
+    // Stream the rate limiter's JFR events into Micrometer (keeps an in-memory recording running)
+    private boolean jfrMetricsEnabled = false;
+
+    // Compute time, CAS retries and sampled hot keys per endpoint (see /actuator/ratelimitercontention)
+    private boolean contentionMonitoringEnabled = false;
+    private int hotKeySampleRate = 16;
+
+    // Heaviest clients per endpoint (see /actuator/ratelimiterheavyhitters); 0 = off. 1 in N checks is counted.
+    private int heavyHitterCount = 10;
+    private int heavyHitterSampleRate = 4;
+
+    // Request cost in permits: the request attribute wins over the header; a blank name turns that source off
+    private String costAttribute = "rateLimitCost";
+    private String costHeader = "";
+
+    // How often idle clients (back at full quota) are swept out of every limiter; 0 = keep every client forever
+    private long idleExpiryIntervalMs = 1000;
+
+    // Shared secret the gateway sends in X-RateLimit-Batch-Token; POST /ratelimit/batch is refused while blank
+    private String batchToken = "";
+
     // Per-endpoint configuration
     private Map<String, EndpointConfig> endpoints = new HashMap<>();
 
+    // Per-client budgets shared by every endpoint matching the Ant-style pattern (e.g. "[/api/**]" in YAML)
+    private Map<String, LimitConfig> clientBudgets = new LinkedHashMap<>();
+
     // Getters and Setters
     public int getDefaultMaxRequests() { return defaultMaxRequests; }
     public void setDefaultMaxRequests(int defaultMaxRequests) { this.defaultMaxRequests = defaultMaxRequests; }
@@ -48,18 +77,72 @@ public class RateLimiterProperties {
     public Map<String, EndpointConfig> getEndpoints() { return endpoints; }
     public void setEndpoints(Map<String, EndpointConfig> endpoints) { this.endpoints = endpoints; }
 
+    public Map<String, LimitConfig> getClientBudgets() { return clientBudgets; }
+    public void setClientBudgets(Map<String, LimitConfig> clientBudgets) { this.clientBudgets = clientBudgets; }
+
     public void setFailSafeStrategy(String failSafeStrategy){
         this.failSafeStrategy=failSafeStrategy;
     }
     public String getFailSafeStrategy() {return failSafeStrategy;
     }
 
+    public int getStageTimingSampleRate() { return stageTimingSampleRate; }
+    public void setStageTimingSampleRate(int stageTimingSampleRate) { this.stageTimingSampleRate = stageTimingSampleRate; }
+
+    public boolean isJfrMetricsEnabled() { return jfrMetricsEnabled; }
+    public void setJfrMetricsEnabled(boolean jfrMetricsEnabled) { this.jfrMetricsEnabled = jfrMetricsEnabled; }
+
+    public boolean isContentionMonitoringEnabled() { return contentionMonitoringEnabled; }
+    public void setContentionMonitoringEnabled(boolean contentionMonitoringEnabled) { this.contentionMonitoringEnabled = contentionMonitoringEnabled; }
+
+    public int getHotKeySampleRate() { return hotKeySampleRate; }
+    public void setHotKeySampleRate(int hotKeySampleRate) { this.hotKeySampleRate = hotKeySampleRate; }
+
+    public int getHeavyHitterCount() { return heavyHitterCount; }
+    public void setHeavyHitterCount(int heavyHitterCount) { this.heavyHitterCount = heavyHitterCount; }
+
+    public int getHeavyHitterSampleRate() { return heavyHitterSampleRate; }
+    public void setHeavyHitterSampleRate(int heavyHitterSampleRate) { this.heavyHitterSampleRate = heavyHitterSampleRate; }
+
+    public String getCostAttribute() { return costAttribute; }
+    public void setCostAttribute(String costAttribute) { this.costAttribute = costAttribute; }
+
+    public String getCostHeader() { return costHeader; }
+    public void setCostHeader(String costHeader) { this.costHeader = costHeader; }
+
+    public long getIdleExpiryIntervalMs() { return idleExpiryIntervalMs; }
+    public void setIdleExpiryIntervalMs(long idleExpiryIntervalMs) { this.idleExpiryIntervalMs = idleExpiryIntervalMs; }
+
+    public String getBatchToken() { return batchToken; }
+    public void setBatchToken(String batchToken) { this.batchToken = batchToken; }
+
     // Inner class for endpoint-specific configuration
     public static class EndpointConfig {
         private int maxRequests = 100;
         private long timeWindowMs = 60000;
         private RateLimitingAlgorithm algorithm = RateLimitingAlgorithm.FIXED_WINDOW;
         private boolean enabled = true;
+        // Only used by SLIDING_WINDOW_COUNTER: more sub-buckets, closer to an exact sliding window
+        private int subBuckets = 1;
+        // Only used by TOKEN_BUCKET and LEAKY_BUCKET: packed state updated with one CAS, no map bin lock
+        private boolean lockFree = false;
+        // Only used by FIXED_WINDOW: shared window boundaries, lets the per-client state pack into one long
+        private boolean epochAligned = false;
+        // Only used by TOKEN_BUCKET: nanosecond clock and exact fixed-point refill, for high rates or short windows
+        private boolean highPrecision = false;
+        // Only used by GCRA, lock-free buckets and epoch-aligned FIXED_WINDOW: OFF_HEAP keeps client state out of the GC's view,
+        // ARRAY keeps it on the heap in two flat arrays keyed by client id fingerprint
+        private StateStoreType stateStore = StateStoreType.HEAP;
+        // Clients an OFF_HEAP or ARRAY store holds at once (allocated up front, 32-64 bytes each); new clients past it get the fail-safe
+        private int stateStoreCapacity = 1_000_000;
+        // Most clients this endpoint keeps state for; past it the least often seen are dropped (W-TinyLFU). 0 = no cap
+        private int maxClients = 0;
+        // Only used by COUNT_MIN_SKETCH: counters per sketch row (4 rows, two sketches of 4-byte counters)
+        private int sketchWidth = 65_536;
+        // Ceiling on this endpoint's requests from all clients together; null = none
+        private LimitConfig total;
+        // Requests in flight at once, adjusted to the endpoint's latency; null = no limit
+        private ConcurrencyConfig concurrency;
 
         // Getters and Setters
         public int getMaxRequests() { return maxRequests; }
@@ -73,5 +156,86 @@ public class RateLimiterProperties {
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getSubBuckets() { return subBuckets; }
+        public void setSubBuckets(int subBuckets) { this.subBuckets = subBuckets; }
+
+        public boolean isLockFree() { return lockFree; }
+        public void setLockFree(boolean lockFree) { this.lockFree = lockFree; }
+
+        public boolean isEpochAligned() { return epochAligned; }
+        public void setEpochAligned(boolean epochAligned) { this.epochAligned = epochAligned; }
+
+        public boolean isHighPrecision() { return highPrecision; }
+        public void setHighPrecision(boolean highPrecision) { this.highPrecision = highPrecision; }
+
+        public StateStoreType getStateStore() { return stateStore; }
+        public void setStateStore(StateStoreType stateStore) { this.stateStore = stateStore; }
+
+        public int getStateStoreCapacity() { return stateStoreCapacity; }
+        public void setStateStoreCapacity(int stateStoreCapacity) { this.stateStoreCapacity = stateStoreCapacity; }
+
+        public int getMaxClients() { return maxClients; }
+        public void setMaxClients(int maxClients) { this.maxClients = maxClients; }
+
+        public int getSketchWidth() { return sketchWidth; }
+        public void setSketchWidth(int sketchWidth) { this.sketchWidth = sketchWidth; }
+
+        public LimitConfig getTotal() { return total; }
+        public void setTotal(LimitConfig total) { this.total = total; }
+
+        public ConcurrencyConfig getConcurrency() { return concurrency; }
+        public void setConcurrency(ConcurrencyConfig concurrency) { this.concurrency = concurrency; }
+    }
+
+    // A limit layered on top of the endpoint's per-client one (client budgets, endpoint totals)
+    public static class LimitConfig {
+        private int maxRequests = 100;
+        private long timeWindowMs = 60000;
+        private RateLimitingAlgorithm algorithm = RateLimitingAlgorithm.FIXED_WINDOW;
+
+        public LimitConfig() {
+        }
+
+        public LimitConfig(int maxRequests, long timeWindowMs, RateLimitingAlgorithm algorithm) {
+            this.maxRequests = maxRequests;
+            this.timeWindowMs = timeWindowMs;
+            this.algorithm = algorithm;
+        }
+
+        public int getMaxRequests() { return maxRequests; }
+        public void setMaxRequests(int maxRequests) { this.maxRequests = maxRequests; }
+
+        public long getTimeWindowMs() { return timeWindowMs; }
+        public void setTimeWindowMs(long timeWindowMs) { this.timeWindowMs = timeWindowMs; }
+
+        public RateLimitingAlgorithm getAlgorithm() { return algorithm; }
+        public void setAlgorithm(RateLimitingAlgorithm algorithm) { this.algorithm = algorithm; }
+    }
+
+    // Adaptive in-flight limit for one endpoint (see AdaptiveConcurrencyLimiter)
+    public static class ConcurrencyConfig {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        // Latency up to this many times the endpoint's normal latency does not lower the limit
+        private double tolerance = 1.5;
+        // Share of the way to its new target the limit moves per completed request
+        private double smoothing = 0.2;
+
+        public int getInitialLimit() { return initialLimit; }
+        public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+        public int getMinLimit() { return minLimit; }
+        public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+        public int getMaxLimit() { return maxLimit; }
+        public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+        public double getTolerance() { return tolerance; }
+        public void setTolerance(double tolerance) { this.tolerance = tolerance; }
+
+        public double getSmoothing() { return smoothing; }
+        public void setSmoothing(double smoothing) { this.smoothing = smoothing; }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,147 @@
+package com.learning.ratelimiter.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.service.RateLimitService;
+import com.learning.ratelimiter.strategy.BatchDecision;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Batch rate limit decisions for the edge gateway: many (clientId, endpoint) pairs per round trip.
+ *
+ * Lives outside /api so the batch call itself isn't rate limited by the interceptor. Client ids are
+ * taken as given (e.g. "API_abc123"), the gateway has already identified its clients, so only the
+ * gateway may call it: every call must carry rate-limiter.batch-token in TOKEN_HEADER (403 otherwise,
+ * and always while no token is configured). Endpoints must be configured ones (400 otherwise), so a
+ * batch cannot create limiters or meters for arbitrary strings.
+ *
+ * JSON: {"clientIds":[...],"endpoints":[...]} in, {"allowed":[...],"remaining":[...]} out.
+ * Binary (application/octet-stream): an int count, then count pairs of writeUTF strings (clientId,
+ * endpoint) in; count BatchDecision-encoded longs out, all big-endian as DataInput/DataOutput.
+ */
+@RestController
+@RequestMapping("/ratelimit")
+public class BatchDecisionController {
+
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final String TOKEN_HEADER = "X-RateLimit-Batch-Token";
+
+    private final RateLimitService rateLimitService;
+    private final RateLimiterProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public BatchDecisionController(RateLimitService rateLimitService, RateLimiterProperties properties,
+                                   ObjectMapper objectMapper) {
+        this.rateLimitService = rateLimitService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    public record BatchRequest(String[] clientIds, String[] endpoints) {
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> checkJson(
+            @RequestHeader(value = TOKEN_HEADER, required = false) String token, @RequestBody BatchRequest request) {
+        if (!isGateway(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (request.clientIds() == null || request.endpoints() == null
+                || request.clientIds().length != request.endpoints().length
+                || request.clientIds().length > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        long[] decisions;
+        try {
+            decisions = rateLimitService.checkRateLimits(request.clientIds(), request.endpoints());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("allowed");
+                for (long decision : decisions) {
+                    json.writeBoolean(BatchDecision.isAllowed(decision));
+                }
+                json.writeEndArray();
+                json.writeArrayFieldStart("remaining");
+                for (long decision : decisions) {
+                    json.writeNumber(BatchDecision.remaining(decision));
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> checkBinary(
+            @RequestHeader(value = TOKEN_HEADER, required = false) String token, InputStream requestBody) throws IOException {
+        if (!isGateway(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        DataInputStream in = new DataInputStream(requestBody);
+        String[] clientIds;
+        String[] endpoints;
+        try {
+            int count = in.readInt();
+            if (count < 0 || count > MAX_BATCH_SIZE) {
+                return ResponseEntity.badRequest().build();
+            }
+            clientIds = new String[count];
+            endpoints = new String[count];
+            for (int i = 0; i < count; i++) {
+                clientIds[i] = in.readUTF();
+                endpoints[i] = in.readUTF();
+            }
+        } catch (EOFException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        long[] decisions;
+        try {
+            decisions = rateLimitService.checkRateLimits(clientIds, endpoints);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            for (long decision : decisions) {
+                data.writeLong(decision);
+            }
+            data.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+    }
+
+    // Constant-time comparison, so the token can't be guessed byte by byte from response times
+    private boolean isGateway(String token) {
+        String expected = properties.getBatchToken();
+        if (expected == null || expected.isBlank() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+}
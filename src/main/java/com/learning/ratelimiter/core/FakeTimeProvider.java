@@ -2,11 +2,21 @@ package com.learning.ratelimiter.core;
 
 public class FakeTimeProvider implements TimeProvider{
     private long currenttime=0;
+    private long currentnanos=0;
     @Override
     public long getCurrentTimeMillis() {
         return currenttime;
     }
+    @Override
+    public long getCurrentTimeNanos() {
+        return currentnanos;
+    }
     public void setCurrentTime(long timemillis){
         this.currenttime=timemillis;
+        this.currentnanos=timemillis*1_000_000L;
+    }
+    public void setCurrentTimeNanos(long timenanos){
+        this.currentnanos=timenanos;
+        this.currenttime=Math.floorDiv(timenanos,1_000_000L);
     }
 }
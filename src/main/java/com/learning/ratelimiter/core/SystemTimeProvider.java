@@ -5,4 +5,9 @@ public class SystemTimeProvider implements TimeProvider{
     public long getCurrentTimeMillis() {
         return System.currentTimeMillis();
     }
+
+    @Override
+    public long getCurrentTimeNanos() {
+        return System.nanoTime();
+    }
 }
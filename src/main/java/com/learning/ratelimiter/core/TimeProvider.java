@@ -2,4 +2,12 @@ package com.learning.ratelimiter.core;
 
 public interface TimeProvider {
     long getCurrentTimeMillis();
+
+    /**
+     * Nanosecond time for high-precision strategies. Only differences between two calls are
+     * meaningful; the default just scales the millisecond clock.
+     */
+    default long getCurrentTimeNanos() {
+        return getCurrentTimeMillis() * 1_000_000L;
+    }
 }
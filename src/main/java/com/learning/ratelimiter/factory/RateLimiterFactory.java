@@ -2,31 +2,148 @@ package com.learning.ratelimiter.factory;
 
 import com.learning.ratelimiter.core.SystemTimeProvider;
 import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.ArrayClientStateStore;
+import com.learning.ratelimiter.store.ClientStateStore;
+import com.learning.ratelimiter.store.HeapClientStateStore;
+import com.learning.ratelimiter.store.OffHeapClientStateStore;
+import com.learning.ratelimiter.store.StateStoreType;
 import com.learning.ratelimiter.strategy.*;
 
 public class RateLimiterFactory {
     public final RateLimitingAlgorithm algorithm;
     public final Configuration config;
     public final TimeProvider timeProvider;
+    public final ContentionMonitor contentionMonitor;
 
     public RateLimiterFactory(RateLimitingAlgorithm algorithm,Configuration config){
         this(algorithm,config,new SystemTimeProvider());
     }
     public RateLimiterFactory(RateLimitingAlgorithm algorithm,Configuration config,TimeProvider timeProvider){
+        this(algorithm,config,timeProvider,ContentionMonitor.NOOP);
+    }
+    public RateLimiterFactory(RateLimitingAlgorithm algorithm,Configuration config,TimeProvider timeProvider,
+                              ContentionMonitor contentionMonitor){
         this.algorithm=algorithm;
         this.config=config;
         this.timeProvider=timeProvider;
+        this.contentionMonitor=contentionMonitor;
     }
     public RateLimitingStrategy createStrategy(){
+        RateLimitingStrategy strategy = createUnbounded();
+        return config.maxClients > 0 ? new BoundedClientStrategy(strategy, config.maxClients) : strategy;
+    }
+
+    private RateLimitingStrategy createUnbounded() {
         return switch(this.algorithm) {
-            case FIXED_WINDOW -> new FixedWindowStrategy(config.maxRequests, config.timeWindow, timeProvider);
-            case SLIDING_WINDOW -> new SlidingWindowStrategy(config.maxRequests, config.timeWindow, timeProvider);
-            case LEAKY_BUCKET -> new LeakyBucketStrategy(config.maxRequests, config.timeWindow, timeProvider);
-            case TOKEN_BUCKET -> new TokenBucketStrategy(config.maxRequests, config.timeWindow, timeProvider);
+            case FIXED_WINDOW -> new FixedWindowStrategy(config.maxRequests, config.timeWindow, config.epochAligned,
+                    timeProvider, contentionMonitor, config.epochAligned ? createStateStore() : new HeapClientStateStore(),
+                    config.idleExpiry);
+            case SLIDING_WINDOW -> new SlidingWindowStrategy(config.maxRequests, config.timeWindow, timeProvider, contentionMonitor,
+                    config.idleExpiry);
+            case LEAKY_BUCKET -> config.lockFree
+                    ? new LockFreeLeakyBucketStrategy(config.maxRequests, config.timeWindow, timeProvider, contentionMonitor,
+                            createStateStore(), config.idleExpiry)
+                    : new LeakyBucketStrategy(config.maxRequests, config.timeWindow, timeProvider, contentionMonitor,
+                            config.idleExpiry);
+            case TOKEN_BUCKET -> createTokenBucket();
+            case SLIDING_WINDOW_COUNTER -> new SlidingWindowCounterStrategy(config.maxRequests, config.timeWindow,
+                    config.subBuckets, timeProvider, contentionMonitor, config.idleExpiry);
+            case GCRA -> new GcraStrategy(config.maxRequests, config.timeWindow, timeProvider, contentionMonitor,
+                    createStateStore(), config.idleExpiry);
+            case COUNT_MIN_SKETCH -> new CountMinSketchStrategy(config.maxRequests, config.timeWindow, config.sketchWidth,
+                    timeProvider, contentionMonitor);
             default -> throw new IllegalStateException("Unexpected value: " + this.algorithm);
         };
     }
 
-    public record Configuration(int maxRequests, long timeWindow) {
+    private RateLimitingStrategy createTokenBucket() {
+        if (config.highPrecision) {
+            return new PreciseTokenBucketStrategy(config.maxRequests, config.timeWindow, timeProvider, contentionMonitor,
+                    config.idleExpiry);
+        }
+        if (config.lockFree) {
+            return new LockFreeTokenBucketStrategy(config.maxRequests, config.timeWindow, timeProvider, contentionMonitor,
+                    createStateStore(), config.idleExpiry);
+        }
+        return new TokenBucketStrategy(config.maxRequests, config.timeWindow, timeProvider, contentionMonitor,
+                config.idleExpiry);
+    }
+
+    /**
+     * Only for the strategies whose per-client state packs into one long
+     */
+    private ClientStateStore createStateStore() {
+        return switch (config.stateStore) {
+            case HEAP -> new HeapClientStateStore();
+            case OFF_HEAP -> new OffHeapClientStateStore(config.stateStoreCapacity);
+            case ARRAY -> new ArrayClientStateStore(config.stateStoreCapacity);
+        };
+    }
+
+    /**
+     * @param subBuckets buckets per window for SLIDING_WINDOW_COUNTER, ignored by the other algorithms
+     * @param lockFree   use the packed single-CAS variants of TOKEN_BUCKET and LEAKY_BUCKET
+     * @param epochAligned FIXED_WINDOW windows start at multiples of timeWindow instead of at each client's first request
+     * @param highPrecision TOKEN_BUCKET refills on the nanosecond clock with exact integer accounting (takes precedence over lockFree)
+     * @param stateStore where GCRA, the lock-free buckets and epoch-aligned FIXED_WINDOW keep their per-client state
+     * @param stateStoreCapacity clients an OFF_HEAP or ARRAY store holds
+     * @param idleExpiry   track when clients are back at full quota so expireIdleClients() can drop them
+     * @param maxClients   most clients to keep state for, the least often seen are dropped past it; UNBOUNDED = no cap
+     * @param sketchWidth  counters per row of COUNT_MIN_SKETCH's sketches; wider means fewer early denials from collisions
+     */
+    public record Configuration(int maxRequests, long timeWindow, int subBuckets, boolean lockFree,
+                                boolean epochAligned, boolean highPrecision,
+                                StateStoreType stateStore, int stateStoreCapacity, boolean idleExpiry,
+                                int maxClients, int sketchWidth) {
+        public static final int DEFAULT_SUB_BUCKETS = 1;
+        public static final int DEFAULT_STATE_STORE_CAPACITY = 1_000_000;
+        public static final int UNBOUNDED = 0;
+
+        public Configuration(int maxRequests, long timeWindow) {
+            this(maxRequests, timeWindow, DEFAULT_SUB_BUCKETS, false, false, false,
+                    StateStoreType.HEAP, DEFAULT_STATE_STORE_CAPACITY, false, UNBOUNDED,
+                    CountMinSketchStrategy.DEFAULT_SKETCH_WIDTH);
+        }
+
+        public Configuration withSubBuckets(int subBuckets) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
+
+        public Configuration withLockFree(boolean lockFree) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
+
+        public Configuration withEpochAligned(boolean epochAligned) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
+
+        public Configuration withHighPrecision(boolean highPrecision) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
+
+        public Configuration withStateStore(StateStoreType stateStore, int stateStoreCapacity) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
+
+        public Configuration withIdleExpiry(boolean idleExpiry) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
+
+        public Configuration withMaxClients(int maxClients) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
+
+        public Configuration withSketchWidth(int sketchWidth) {
+            return new Configuration(maxRequests, timeWindow, subBuckets, lockFree, epochAligned, highPrecision,
+                    stateStore, stateStoreCapacity, idleExpiry, maxClients, sketchWidth);
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.learning.ratelimiter.jfr;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Streams the rate limiter's JFR events in-process and folds them into Micrometer meters.
+ *
+ * Opt-in (rate-limiter.jfr-metrics-enabled=true): it keeps an in-memory recording running,
+ * which makes every decision event live instead of near-free.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter", name = "jfr-metrics-enabled", havingValue = "true")
+public class JfrMetricsBridge {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrMetricsBridge.class);
+
+    private final MeterRegistry meterRegistry;
+    private RecordingStream recordingStream;
+
+    public JfrMetricsBridge(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(RateLimitDecisionEvent.NAME);
+        recordingStream.enable(RateLimitSlowCheckEvent.NAME);
+        recordingStream.setMaxAge(Duration.ofMinutes(1));
+        recordingStream.onEvent(RateLimitDecisionEvent.NAME, this::onDecision);
+        recordingStream.onEvent(RateLimitSlowCheckEvent.NAME, this::onSlowCheck);
+        recordingStream.startAsync();
+        logger.info("JFR metrics bridge started for {} and {}", RateLimitDecisionEvent.NAME, RateLimitSlowCheckEvent.NAME);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onDecision(RecordedEvent event) {
+        Timer.builder("rate_limiter_jfr_decision_duration")
+                .description("Rate limit decision time as recorded by JFR")
+                .tag("endpoint", event.getString("endpoint"))
+                .tag("algorithm", event.getString("algorithm"))
+                .tag("status", event.getBoolean("allowed") ? "allowed" : "denied")
+                .register(meterRegistry)
+                .record(event.getDuration());
+    }
+
+    private void onSlowCheck(RecordedEvent event) {
+        Counter.builder("rate_limiter_jfr_slow_checks")
+                .description("Rate limit checks slower than the JFR slow check threshold")
+                .tag("endpoint", event.getString("endpoint"))
+                .tag("algorithm", event.getString("algorithm"))
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,43 @@
+package com.learning.ratelimiter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One rate limit decision. The event duration covers the whole check up to the decision
+ * (client id extraction, limiter lookup, allowRequest and metrics), not the logging after it.
+ */
+@Name(RateLimitDecisionEvent.NAME)
+@Label("Rate Limit Decision")
+@Category({"Rate Limiter"})
+@Description("Outcome and duration of a rate limit check")
+@StackTrace(false)
+public class RateLimitDecisionEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.learning.ratelimiter.RateLimitDecision";
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Allowed")
+    boolean allowed;
+
+    /**
+     * End the event and commit it if a recording wants it; fields are only set when it does.
+     */
+    public void complete(String endpoint, String algorithm, boolean allowed) {
+        end();
+        if (shouldCommit()) {
+            this.endpoint = endpoint;
+            this.algorithm = algorithm;
+            this.allowed = allowed;
+            commit();
+        }
+    }
+}
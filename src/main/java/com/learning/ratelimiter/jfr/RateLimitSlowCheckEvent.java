@@ -0,0 +1,49 @@
+package com.learning.ratelimiter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A rate limit check that took longer than the event threshold (1 ms unless the recording's
+ * settings override it). Same duration as RateLimitDecisionEvent, but carries the client id.
+ */
+@Name(RateLimitSlowCheckEvent.NAME)
+@Label("Rate Limit Slow Check")
+@Category({"Rate Limiter"})
+@Description("Rate limit check slower than the configured threshold")
+@Threshold("1 ms")
+@StackTrace(false)
+public class RateLimitSlowCheckEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.learning.ratelimiter.RateLimitSlowCheck";
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Client Id")
+    String clientId;
+
+    @Label("Allowed")
+    boolean allowed;
+
+    /**
+     * End the event and commit it if it crossed the threshold in a recording that has it enabled.
+     */
+    public void complete(String endpoint, String algorithm, String clientId, boolean allowed) {
+        end();
+        if (shouldCommit()) {
+            this.endpoint = endpoint;
+            this.algorithm = algorithm;
+            this.clientId = clientId;
+            this.allowed = allowed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.learning.ratelimiter.monitoring;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/ratelimitercontention - compute time, CAS retries and the hottest client ids per endpoint.
+ */
+@Component
+@Endpoint(id = "ratelimitercontention")
+public class ContentionEndpoint {
+
+    private static final int TOP_KEYS = 10;
+
+    private final ContentionMonitorRegistry registry;
+
+    public ContentionEndpoint(ContentionMonitorRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> contention() {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        registry.getMonitors().forEach((endpoint, monitor) -> {
+            long calls = monitor.getComputeCalls();
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("algorithm", monitor.getAlgorithm());
+            details.put("computeCalls", calls);
+            details.put("avgComputeNanos", calls == 0 ? 0 : monitor.getComputeNanos() / calls);
+            details.put("maxComputeNanos", monitor.getMaxComputeNanos());
+            details.put("casRetries", monitor.getCasRetries());
+            details.put("hotKeys", monitor.topKeys(TOP_KEYS));
+            endpoints.put(endpoint, details);
+        });
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", registry.isEnabled());
+        response.put("endpoints", endpoints);
+        return response;
+    }
+}
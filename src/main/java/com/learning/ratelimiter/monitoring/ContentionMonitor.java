@@ -0,0 +1,39 @@
+package com.learning.ratelimiter.monitoring;
+
+/**
+ * Hook the strategies call around their per-client ConcurrentHashMap.compute and CAS loops.
+ * Strategies get NOOP unless contention monitoring is switched on, so the default cost is one
+ * interface call that the JIT inlines away.
+ */
+public interface ContentionMonitor {
+
+    ContentionMonitor NOOP = new ContentionMonitor() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void recordCompute(String clientId, long durationNanos) {
+        }
+
+        @Override
+        public void recordCasRetries(int retries) {
+        }
+    };
+
+    /**
+     * Strategies only read the clock when this is true.
+     */
+    boolean isEnabled();
+
+    /**
+     * Time from calling compute() until it returned, including the wait for the bin lock.
+     */
+    void recordCompute(String clientId, long durationNanos);
+
+    /**
+     * Failed compareAndSet attempts before a CAS loop succeeded (or gave up).
+     */
+    void recordCasRetries(int retries);
+}
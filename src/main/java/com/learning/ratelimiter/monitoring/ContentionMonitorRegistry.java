@@ -0,0 +1,88 @@
+package com.learning.ratelimiter.monitoring;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out one ContentionMonitor per endpoint and publishes its counters to Micrometer.
+ * With rate-limiter.contention-monitoring-enabled=false (the default) every endpoint gets NOOP.
+ */
+@Component
+public class ContentionMonitorRegistry {
+
+    private final boolean enabled;
+    private final int hotKeySampleRate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StrategyContentionMonitor> monitors = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ContentionMonitorRegistry(RateLimiterProperties properties, MeterRegistry meterRegistry) {
+        this(properties.isContentionMonitoringEnabled(), properties.getHotKeySampleRate(), meterRegistry);
+    }
+
+    private ContentionMonitorRegistry(boolean enabled, int hotKeySampleRate, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.hotKeySampleRate = hotKeySampleRate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A registry that never monitors, for code paths without Spring wiring.
+     */
+    public static ContentionMonitorRegistry disabled() {
+        return new ContentionMonitorRegistry(false, 1, null);
+    }
+
+    public ContentionMonitor monitorFor(String endpoint, RateLimitingAlgorithm algorithm) {
+        if (!enabled) {
+            return ContentionMonitor.NOOP;
+        }
+        return monitors.computeIfAbsent(endpoint, ep -> register(
+                new StrategyContentionMonitor(ep, algorithm.name(), hotKeySampleRate)));
+    }
+
+    private StrategyContentionMonitor register(StrategyContentionMonitor monitor) {
+        FunctionCounter.builder("rate_limiter_compute_calls", monitor, StrategyContentionMonitor::getComputeCalls)
+                .description("Calls into the strategy's per-client compute")
+                .tag("endpoint", monitor.getEndpoint())
+                .tag("algorithm", monitor.getAlgorithm())
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter_compute_time_seconds", monitor,
+                        m -> m.getComputeNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .description("Time spent in per-client compute, including waits for the bin lock")
+                .baseUnit("seconds")
+                .tag("endpoint", monitor.getEndpoint())
+                .tag("algorithm", monitor.getAlgorithm())
+                .register(meterRegistry);
+        Gauge.builder("rate_limiter_compute_max_seconds", monitor,
+                        m -> m.getMaxComputeNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .description("Longest single per-client compute since startup")
+                .baseUnit("seconds")
+                .tag("endpoint", monitor.getEndpoint())
+                .tag("algorithm", monitor.getAlgorithm())
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter_cas_retries", monitor, StrategyContentionMonitor::getCasRetries)
+                .description("Failed compareAndSet attempts in token/leaky bucket updates")
+                .tag("endpoint", monitor.getEndpoint())
+                .tag("algorithm", monitor.getAlgorithm())
+                .register(meterRegistry);
+        return monitor;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, StrategyContentionMonitor> getMonitors() {
+        return monitors;
+    }
+}
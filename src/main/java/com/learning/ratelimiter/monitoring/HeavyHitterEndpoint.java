@@ -0,0 +1,35 @@
+package com.learning.ratelimiter.monitoring;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/ratelimiterheavyhitters - the clients requesting the most permits, per endpoint.
+ */
+@Component
+@Endpoint(id = "ratelimiterheavyhitters")
+public class HeavyHitterEndpoint {
+
+    private final HeavyHitterRegistry registry;
+
+    public HeavyHitterEndpoint(HeavyHitterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> heavyHitters() {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        registry.getSummaries().keySet().forEach(endpoint -> endpoints.put(endpoint, registry.topClients(endpoint)));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", registry.isEnabled());
+        response.put("topK", registry.getTopK());
+        response.put("sampleRate", registry.getSampleRate());
+        response.put("endpoints", endpoints);
+        return response;
+    }
+}
@@ -0,0 +1,135 @@
+package com.learning.ratelimiter.monitoring;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps one SpaceSavingSummary per endpoint and publishes its top K to Micrometer.
+ *
+ * The gauges are tagged by rank, not by client id, so each endpoint has exactly K series however many
+ * clients come and go; /actuator/ratelimiterheavyhitters names the clients behind each rank. Only 1 in
+ * sampleRate checks is counted, so the lock in the summary stays off most requests; counts are scaled
+ * back up when they are reported. The summary's error bounds only cover the sampled checks, so each
+ * reported client also carries the error sampling adds on top. With rate-limiter.heavy-hitter-count=0
+ * nothing is tracked.
+ */
+@Component
+public class HeavyHitterRegistry {
+
+    // Counters per reported rank: the summary is exact for anyone above 1/(K * COUNTERS_PER_RANK) of the traffic
+    static final int COUNTERS_PER_RANK = 10;
+    // Sampled updates between halvings of every count
+    static final long DECAY_EVERY = 1 << 16;
+    // Standard deviations of sampling noise reported as samplingError
+    static final int SAMPLING_DEVIATIONS = 3;
+
+    private final int topK;
+    private final int sampleRate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, SpaceSavingSummary> summaries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HeavyHitterRegistry(RateLimiterProperties properties, MeterRegistry meterRegistry) {
+        this(properties.getHeavyHitterCount(), properties.getHeavyHitterSampleRate(), meterRegistry);
+    }
+
+    HeavyHitterRegistry(int topK, int sampleRate, MeterRegistry meterRegistry) {
+        this.topK = Math.max(0, topK);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A registry that tracks nothing, for code paths without Spring wiring.
+     */
+    public static HeavyHitterRegistry disabled() {
+        return new HeavyHitterRegistry(0, 1, null);
+    }
+
+    public void record(String endpoint, String clientId, int permits, boolean allowed) {
+        if (topK == 0 || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)) {
+            return;
+        }
+        SpaceSavingSummary summary = summaries.get(endpoint);
+        if (summary == null) {
+            summary = summaries.computeIfAbsent(endpoint, this::register);
+        }
+        summary.offer(clientId, permits, !allowed);
+    }
+
+    /**
+     * The endpoint's heaviest clients, heaviest first, with counts scaled up by the sample rate.
+     *
+     * Counting each of a client's n checks with chance 1/sampleRate gives an estimate with a variance of
+     * n * (sampleRate - 1) for single-permit checks; samplingError is SAMPLING_DEVIATIONS standard deviations
+     * of that, taking the estimate for n.
+     */
+    public List<HeavyHitter> topClients(String endpoint) {
+        SpaceSavingSummary summary = summaries.get(endpoint);
+        if (summary == null) {
+            return List.of();
+        }
+        return summary.top(topK).stream()
+                .map(entry -> new HeavyHitter(entry.clientId(), entry.count() * sampleRate,
+                        entry.error() * sampleRate, samplingError(entry.count() * sampleRate), entry.denied() * sampleRate))
+                .toList();
+    }
+
+    private long samplingError(long estimatedPermits) {
+        return (long) Math.ceil(SAMPLING_DEVIATIONS * Math.sqrt((double) estimatedPermits * (sampleRate - 1)));
+    }
+
+    private SpaceSavingSummary register(String endpoint) {
+        SpaceSavingSummary summary = new SpaceSavingSummary(topK * COUNTERS_PER_RANK, DECAY_EVERY);
+        for (int rank = 1; rank <= topK; rank++) {
+            int index = rank - 1;
+            Gauge.builder("rate_limiter_top_client_permits", summary, s -> {
+                        List<SpaceSavingSummary.Entry> top = s.top(index + 1);
+                        return top.size() > index ? top.get(index).count() * (double) sampleRate : 0;
+                    })
+                    .description("Estimated permits requested by the endpoint's rank-th heaviest client")
+                    .tag("endpoint", endpoint)
+                    .tag("rank", Integer.toString(rank))
+                    .register(meterRegistry);
+        }
+        return summary;
+    }
+
+    public boolean isEnabled() {
+        return topK > 0;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public Map<String, SpaceSavingSummary> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * With a sample rate of 1 the true count lies between estimatedPermits - maxOverestimate and
+     * estimatedPermits. Otherwise that only holds for the sampled checks, and sampling can move the
+     * estimate either way by up to about samplingError more.
+     *
+     * @param estimatedPermits permits the client requested, scaled up from the sampled checks
+     * @param maxOverestimate  how far the summary may have counted the client above its sampled checks
+     * @param samplingError    how far sampling may have moved the estimate either way; 0 when every check is counted
+     * @param deniedPermits    of those, permits that were denied
+     */
+    public record HeavyHitter(String clientId, long estimatedPermits, long maxOverestimate, long samplingError,
+                              long deniedPermits) {
+    }
+}
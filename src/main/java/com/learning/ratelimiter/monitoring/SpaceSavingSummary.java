@@ -0,0 +1,184 @@
+package com.learning.ratelimiter.monitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The heaviest clients of one endpoint, in a fixed number of counters (the Space-Saving algorithm).
+ *
+ * While there are free counters every new client gets one. After that a new client takes over the
+ * counter with the smallest count and starts from that count, which is remembered as its error: the
+ * count can only overestimate, by at most error, and any client with more than total / capacity permits
+ * is guaranteed to hold a counter. A min-heap finds the smallest counter, so an update costs O(log capacity)
+ * under one lock whatever the number of clients. Every decayEvery updates all counts are halved, so the
+ * ranking follows recent traffic rather than everything since startup.
+ */
+public class SpaceSavingSummary {
+
+    private final int capacity;
+    private final long decayEvery;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final Counter[] heap;
+    private final Map<String, Counter> counters;
+    private int size;
+    private long updates;
+
+    public SpaceSavingSummary(int capacity, long decayEvery) {
+        this.capacity = Math.max(1, capacity);
+        this.decayEvery = Math.max(1, decayEvery);
+        this.heap = new Counter[this.capacity];
+        this.counters = new HashMap<>(this.capacity * 2);
+    }
+
+    /**
+     * Counts weight permits for the client; denied ones are also counted separately
+     */
+    public void offer(String clientId, long weight, boolean denied) {
+        lock.lock();
+        try {
+            Counter counter = counters.get(clientId);
+            boolean appended = false;
+            if (counter == null) {
+                appended = size < capacity;
+                counter = claim(clientId);
+            }
+            counter.count += weight;
+            if (denied) {
+                counter.denied += weight;
+            }
+            if (appended) {
+                siftUp(counter.heapIndex);
+            } else {
+                siftDown(counter.heapIndex);
+            }
+            if (++updates % decayEvery == 0) {
+                decay();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The k heaviest clients, heaviest first
+     */
+    public List<Entry> top(int k) {
+        Counter[] snapshot;
+        lock.lock();
+        try {
+            snapshot = new Counter[size];
+            for (int i = 0; i < size; i++) {
+                Counter counter = heap[i];
+                snapshot[i] = new Counter(counter.clientId, counter.count, counter.error, counter.denied);
+            }
+        } finally {
+            lock.unlock();
+        }
+        Arrays.sort(snapshot, Comparator.comparingLong((Counter counter) -> counter.count).reversed());
+
+        List<Entry> top = new ArrayList<>(Math.min(k, snapshot.length));
+        for (int i = 0; i < Math.min(k, snapshot.length); i++) {
+            top.add(new Entry(snapshot[i].clientId, snapshot[i].count, snapshot[i].error, snapshot[i].denied));
+        }
+        return top;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // A free counter, or the smallest one handed over to clientId
+    private Counter claim(String clientId) {
+        Counter counter;
+        if (size < capacity) {
+            counter = new Counter(clientId, 0, 0, 0);
+            counter.heapIndex = size;
+            heap[size++] = counter;
+        } else {
+            counter = heap[0];
+            counters.remove(counter.clientId);
+            counter.clientId = clientId;
+            counter.error = counter.count;
+            counter.denied = 0;
+        }
+        counters.put(clientId, counter);
+        return counter;
+    }
+
+    // Halving keeps the heap order, so nothing moves
+    private void decay() {
+        for (int i = 0; i < size; i++) {
+            Counter counter = heap[i];
+            counter.count /= 2;
+            counter.error /= 2;
+            counter.denied /= 2;
+        }
+    }
+
+    // A new counter starts at the bottom of the heap and moves up past the ones heavier than it
+    private void siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heap[index].heapIndex = index;
+            index = parent;
+        }
+        heap[index] = counter;
+        counter.heapIndex = index;
+    }
+
+    // Counts only grow between decays, so an existing counter only ever moves down
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (heap[child].count >= counter.count) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].heapIndex = index;
+            index = child;
+        }
+        heap[index] = counter;
+        counter.heapIndex = index;
+    }
+
+    /**
+     * @param count  permits counted for the client, at most error above the true count
+     * @param error  what the client's counter held when it took it over
+     * @param denied permits denied since the client took the counter
+     */
+    public record Entry(String clientId, long count, long error, long denied) {
+    }
+
+    private static final class Counter {
+        String clientId;
+        long count;
+        long error;
+        long denied;
+        int heapIndex;
+
+        Counter(String clientId, long count, long error, long denied) {
+            this.clientId = clientId;
+            this.count = count;
+            this.error = error;
+            this.denied = denied;
+        }
+    }
+}
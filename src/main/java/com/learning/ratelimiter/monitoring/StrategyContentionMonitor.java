@@ -0,0 +1,115 @@
+package com.learning.ratelimiter.monitoring;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contention counters for one endpoint's strategy.
+ *
+ * Compute time and CAS retries are counted on every call (LongAdder, so the counters themselves
+ * do not become a contention point). Hot keys are sampled: 1 in hotKeySampleRate calls bumps the
+ * client's count, and when more than MAX_TRACKED_KEYS clients are tracked every count is halved
+ * and the ones that drop to zero are forgotten, so rarely seen keys age out.
+ */
+public class StrategyContentionMonitor implements ContentionMonitor {
+
+    static final int MAX_TRACKED_KEYS = 1024;
+
+    private final String endpoint;
+    private final String algorithm;
+    private final int hotKeySampleRate;
+
+    private final LongAdder computeCalls = new LongAdder();
+    private final LongAdder computeNanos = new LongAdder();
+    private final LongAccumulator maxComputeNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder casRetries = new LongAdder();
+
+    private final ConcurrentHashMap<String, LongAdder> hotKeySamples = new ConcurrentHashMap<>();
+    private final ReentrantLock decayLock = new ReentrantLock();
+
+    public StrategyContentionMonitor(String endpoint, String algorithm, int hotKeySampleRate) {
+        this.endpoint = endpoint;
+        this.algorithm = algorithm;
+        this.hotKeySampleRate = Math.max(1, hotKeySampleRate);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordCompute(String clientId, long durationNanos) {
+        computeCalls.increment();
+        computeNanos.add(durationNanos);
+        maxComputeNanos.accumulate(durationNanos);
+
+        if (hotKeySampleRate == 1 || ThreadLocalRandom.current().nextInt(hotKeySampleRate) == 0) {
+            hotKeySamples.computeIfAbsent(clientId, key -> new LongAdder()).increment();
+            if (hotKeySamples.size() > MAX_TRACKED_KEYS) {
+                decay();
+            }
+        }
+    }
+
+    @Override
+    public void recordCasRetries(int retries) {
+        if (retries > 0) {
+            casRetries.add(retries);
+        }
+    }
+
+    /**
+     * Halve every sampled count and drop the keys that reach zero. One thread does it; the others
+     * carry on recording rather than queue up behind it.
+     */
+    private void decay() {
+        if (!decayLock.tryLock()) {
+            return;
+        }
+        try {
+            hotKeySamples.entrySet().removeIf(entry -> {
+                LongAdder samples = entry.getValue();
+                long halved = samples.sumThenReset() / 2;
+                samples.add(halved);
+                return halved == 0;
+            });
+        } finally {
+            decayLock.unlock();
+        }
+    }
+
+    /**
+     * The k most sampled client ids, most frequent first.
+     */
+    public List<Map<String, Object>> topKeys(int k) {
+        List<Map.Entry<String, Long>> snapshot = new ArrayList<>();
+        hotKeySamples.forEach((key, samples) -> snapshot.add(Map.entry(key, samples.sum())));
+        snapshot.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+
+        List<Map<String, Object>> topKeys = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : snapshot.subList(0, Math.min(k, snapshot.size()))) {
+            Map<String, Object> hotKey = new LinkedHashMap<>();
+            hotKey.put("clientId", entry.getKey());
+            hotKey.put("samples", entry.getValue());
+            hotKey.put("estimatedCalls", entry.getValue() * hotKeySampleRate);
+            topKeys.add(hotKey);
+        }
+        return topKeys;
+    }
+
+    public String getEndpoint() { return endpoint; }
+    public String getAlgorithm() { return algorithm; }
+    public long getComputeCalls() { return computeCalls.sum(); }
+    public long getComputeNanos() { return computeNanos.sum(); }
+    public long getMaxComputeNanos() { return maxComputeNanos.get(); }
+    public long getCasRetries() { return casRetries.sum(); }
+}
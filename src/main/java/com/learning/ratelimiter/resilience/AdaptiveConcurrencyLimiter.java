@@ -0,0 +1,140 @@
+package com.learning.ratelimiter.resilience;
+
+import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps an endpoint's requests in flight at a limit that follows the backend's latency (gradient style).
+ *
+ * Every completed request is a latency sample. A long average over about LONG_WINDOW samples stands for
+ * the backend's normal latency, a short average over SHORT_WINDOW samples for its latency right now.
+ * Their ratio is the gradient: 1 while the short average is within tolerance of the long one, down to
+ * 0.5 as it rises past it. Each sample moves the limit towards limit + sqrt(limit) while the gradient is 1
+ * and towards limit * gradient below it, so the limit creeps up while latency holds and falls as soon as
+ * requests start queueing behind a slower backend, before the queue has had time to build. The headroom
+ * is only added at a gradient of 1: added to a falling limit it would outweigh the cut for small limits
+ * and hold the limit around 4 however slow the backend got. Samples from requests sent while under half the limit
+ * do not raise it: they say nothing about whether more concurrency would be served as fast.
+ *
+ * If the slowdown lasts, the long average catches up and the slower latency becomes the new normal.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final int LONG_WINDOW = 600;
+    static final int SHORT_WINDOW = 10;
+    private static final double LONG_ALPHA = 2.0 / (LONG_WINDOW + 1);
+    private static final double SHORT_ALPHA = 2.0 / (SHORT_WINDOW + 1);
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final TimeProvider timeProvider;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double longRttNanos;
+    private double shortRttNanos;
+
+    /**
+     * @param tolerance how many times the normal latency still counts as normal, at least 1
+     * @param smoothing share of the way to its target the limit moves per sample, in (0, 1]
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                      double smoothing, TimeProvider timeProvider) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new RateLimiterExceptions.ConfigurationException("Concurrency limits need 1 <= min <= initial <= max, got "
+                    + minLimit + " <= " + initialLimit + " <= " + maxLimit);
+        }
+        if (tolerance < 1 || smoothing <= 0 || smoothing > 1) {
+            throw new RateLimiterExceptions.ConfigurationException(
+                    "Concurrency limit needs tolerance >= 1 and smoothing in (0, 1], got " + tolerance + " and " + smoothing);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.timeProvider = timeProvider;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 1.5, 0.2, new SystemTimeProvider());
+    }
+
+    /**
+     * A permit to send one request, or null when the endpoint is already at its limit
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(timeProvider.getCurrentTimeNanos(), current + 1);
+            }
+        }
+    }
+
+    private synchronized void sample(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            shortRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * LONG_ALPHA;
+            shortRttNanos += (rttNanos - shortRttNanos) * SHORT_ALPHA;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        if (gradient == 1.0 && inFlightAtStart < estimatedLimit / 2) {
+            return;
+        }
+        double target = gradient < 1.0 ? estimatedLimit * gradient : estimatedLimit + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - smoothing) + target * smoothing));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * One request in flight. Exactly one of complete() and release() must be called for it.
+     */
+    public final class Permit {
+        private final long startNanos;
+        private final int inFlightAtStart;
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The request was served: its latency is a sample
+         */
+        public void complete() {
+            inFlight.decrementAndGet();
+            sample(Math.max(1, timeProvider.getCurrentTimeNanos() - startNanos), inFlightAtStart);
+        }
+
+        /**
+         * The request never reached the backend or failed: free the slot without a sample
+         */
+        public void release() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.learning.ratelimiter.resilience;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.core.TimeProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One AdaptiveConcurrencyLimiter per endpoint that configures rate-limiter.endpoints.*.concurrency,
+ * created on the endpoint's first request and published to Micrometer. Endpoints without it get none.
+ */
+@Component
+public class AdaptiveConcurrencyRegistry {
+
+    private final RateLimiterProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final TimeProvider timeProvider;
+    // Empty for endpoints without a concurrency limit, so the lookup is done once per endpoint
+    private final Map<String, Optional<AdaptiveConcurrencyLimiter>> limiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AdaptiveConcurrencyRegistry(RateLimiterProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, new SystemTimeProvider());
+    }
+
+    public AdaptiveConcurrencyRegistry(RateLimiterProperties properties, MeterRegistry meterRegistry,
+                                       TimeProvider timeProvider) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.timeProvider = timeProvider;
+    }
+
+    /**
+     * A registry that limits nothing, for code paths without Spring wiring.
+     */
+    public static AdaptiveConcurrencyRegistry disabled() {
+        return new AdaptiveConcurrencyRegistry(null, null);
+    }
+
+    /**
+     * The endpoint's limiter, or null if it has no concurrency limit
+     */
+    public AdaptiveConcurrencyLimiter limiterFor(String endpoint) {
+        if (properties == null) {
+            return null;
+        }
+        Optional<AdaptiveConcurrencyLimiter> limiter = limiters.get(endpoint);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(endpoint, this::create);
+        }
+        return limiter.orElse(null);
+    }
+
+    public Map<String, Optional<AdaptiveConcurrencyLimiter>> getLimiters() {
+        return limiters;
+    }
+
+    private Optional<AdaptiveConcurrencyLimiter> create(String endpoint) {
+        // Same matching as the endpoint's rate limiter: configured keys compared without their '/'
+        String normalizedEndpoint = endpoint.replaceAll("/", "");
+        RateLimiterProperties.ConcurrencyConfig config = null;
+        for (Map.Entry<String, RateLimiterProperties.EndpointConfig> entry : properties.getEndpoints().entrySet()) {
+            if (entry.getKey().replaceAll("/", "").equals(normalizedEndpoint) && entry.getValue().isEnabled()) {
+                config = entry.getValue().getConcurrency();
+                break;
+            }
+        }
+        if (config == null) {
+            return Optional.empty();
+        }
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config.getInitialLimit(),
+                config.getMinLimit(), config.getMaxLimit(), config.getTolerance(), config.getSmoothing(), timeProvider);
+        Gauge.builder("rate_limiter_concurrency_limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Requests the endpoint currently lets in flight at once")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        Gauge.builder("rate_limiter_concurrency_in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests in flight on the endpoint")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        return Optional.of(limiter);
+    }
+}
@@ -0,0 +1,66 @@
+package com.learning.ratelimiter.service;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs RateLimitService.expireIdleClients() every rate-limiter.idle-expiry-interval-ms on one daemon
+ * thread, so the limiters' client state tracks active clients. Each sweep only touches the clients whose
+ * expiry came due, and never runs on a request thread.
+ */
+@Component
+public class IdleClientSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdleClientSweeper.class);
+
+    private final RateLimitService rateLimitService;
+    private final long intervalMillis;
+    private ScheduledExecutorService executor;
+
+    public IdleClientSweeper(RateLimitService rateLimitService, RateLimiterProperties properties) {
+        this.rateLimitService = rateLimitService;
+        this.intervalMillis = properties.getIdleExpiryIntervalMs();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (intervalMillis <= 0) {
+            logger.info("Idle client expiry is off: limiters keep every client they have seen");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limiter-idle-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Sweeping idle clients every {}ms", intervalMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void sweep() {
+        try {
+            int expired = rateLimitService.expireIdleClients();
+            if (expired > 0) {
+                logger.debug("Expired {} idle clients", expired);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule; log it and try again next time
+            logger.warn("Idle client sweep failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.learning.ratelimiter.service;
 
 import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
@@ -19,6 +21,31 @@ public class RateLimitMetricsService {
 
     // Timer for measuring performance
     private final Timer rateLimitCheckTimer;
+
+    // One timer per checkRateLimit stage, registered up front so recording never touches the registry
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+    /**
+     * Stages of RateLimitService.checkRateLimit, in call order.
+     */
+    public enum Stage {
+        EXTRACT_CLIENT_ID("extract_client_id"),
+        GET_RATE_LIMITER("get_rate_limiter"),
+        ALLOW_REQUEST("allow_request"),
+        GET_ALGORITHM("get_algorithm"),
+        RECORD_METRICS("record_metrics"),
+        LOGGING("logging");
+
+        private final String tagValue;
+
+        Stage(String tagValue) {
+            this.tagValue = tagValue;
+        }
+
+        public String getTagValue() {
+            return tagValue;
+        }
+    }
     public RateLimitMetricsService(MeterRegistry masterRegistry){
         this.meterRegistry=masterRegistry;
         // Initialize counters
@@ -38,6 +65,14 @@ public class RateLimitMetricsService {
         this.rateLimitCheckTimer = Timer.builder("rate_limiter_check_duration")
                 .description("Time taken for rate limit checks")
                 .register(meterRegistry);
+
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("rate_limiter_check_stage_duration")
+                    .description("Time taken by each stage of a sampled rate limit check")
+                    .tag("stage", stage.getTagValue())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
     }
     // Methods to record metrics
     public void recordRequest(boolean allowed, String endpoint, String algorithm) {
@@ -61,16 +96,16 @@ public class RateLimitMetricsService {
                     .increment();
         }
     }
-    public void recordClientActivity(String clientId, String endpoint) {
-        Gauge.builder("rate_limiter_active_clients", clientId, id -> 1.0)  // ✅ Correct syntax
-                .tag("endpoint", endpoint)
-                .description("Number of active clients per endpoint")
-                .register(meterRegistry);
-    }
     public Timer.Sample startTimer() {
         return Timer.start(meterRegistry);
     }
     public Timer getRateLimitCheckTimer() {
         return rateLimitCheckTimer;
     }
+    public void recordStage(Stage stage, long durationNanos) {
+        stageTimers.get(stage).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+    public Timer getStageTimer(Stage stage) {
+        return stageTimers.get(stage);
+    }
 }
@@ -1,8 +1,18 @@
 package com.learning.ratelimiter.service;
 
 import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.core.SystemTimeProvider;
 import com.learning.ratelimiter.exception.RateLimiterExceptions;
 import com.learning.ratelimiter.factory.RateLimiterFactory;
+import com.learning.ratelimiter.jfr.RateLimitDecisionEvent;
+import com.learning.ratelimiter.jfr.RateLimitSlowCheckEvent;
+import com.learning.ratelimiter.monitoring.ContentionMonitorRegistry;
+import com.learning.ratelimiter.monitoring.HeavyHitterRegistry;
+import com.learning.ratelimiter.store.StateStoreType;
+import com.learning.ratelimiter.strategy.BatchDecision;
+import com.learning.ratelimiter.strategy.CountMinSketchStrategy;
+import com.learning.ratelimiter.strategy.HierarchicalStrategy;
+import com.learning.ratelimiter.strategy.RateLimitDecision;
 import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
 import com.learning.ratelimiter.strategy.RateLimitingStrategy;
 import io.micrometer.core.instrument.Timer;
@@ -11,22 +21,48 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 @Service
 public class RateLimitService {
     private static final Logger logger= LoggerFactory.getLogger(RateLimitService.class);
-    private static final Logger performanceLogger = LoggerFactory.getLogger("com.learning.ratelimiter.performance");
     private static final Logger securityLogger = LoggerFactory.getLogger("com.learning.ratelimiter.security");
     private final RateLimiterProperties properties;
     private final Map<String, RateLimitingStrategy> endpointLimiters;
+    // One limiter per client budget pattern, shared by every endpoint the pattern matches
+    private final Map<String, RateLimitingStrategy> clientBudgetLimiters = new ConcurrentHashMap<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
     private final RateLimitMetricsService metricsService;
+    private final ContentionMonitorRegistry contentionMonitors;
+    private final HeavyHitterRegistry heavyHitters;
+    // Reused per request thread; its values are copied into the RateLimitResult before it is reused
+    private static final ThreadLocal<RateLimitDecision> DECISION = ThreadLocal.withInitial(RateLimitDecision::new);
     public RateLimitService(RateLimiterProperties properties, RateLimitMetricsService metricsService)
+    {
+        this(properties, metricsService, ContentionMonitorRegistry.disabled());
+    }
+    public RateLimitService(RateLimiterProperties properties, RateLimitMetricsService metricsService,
+                            ContentionMonitorRegistry contentionMonitors)
+    {
+        this(properties, metricsService, contentionMonitors, HeavyHitterRegistry.disabled());
+    }
+    @Autowired
+    public RateLimitService(RateLimiterProperties properties, RateLimitMetricsService metricsService,
+                            ContentionMonitorRegistry contentionMonitors, HeavyHitterRegistry heavyHitters)
     {
         this.properties=properties;
         this.metricsService=metricsService;
+        this.contentionMonitors=contentionMonitors;
+        this.heavyHitters=heavyHitters;
         this.endpointLimiters=new ConcurrentHashMap<>();
         logger.info("RateLimitService initialized with {} endpoint configurations",
                 properties.getEndpoints().size());
@@ -51,13 +87,24 @@ public class RateLimitService {
     public RateLimitResult checkRateLimit(HttpServletRequest request) {
         // Start timing
         Timer.Sample timerSample = metricsService.startTimer();
-        long totalStart = System.nanoTime();
+        // JFR events; close to free unless a recording has them enabled
+        RateLimitDecisionEvent decisionEvent = new RateLimitDecisionEvent();
+        RateLimitSlowCheckEvent slowCheckEvent = new RateLimitSlowCheckEvent();
+        decisionEvent.begin();
+        slowCheckEvent.begin();
+        // Per-stage timers only for sampled requests (see stageTimingSampleRate)
+        boolean timeStages = shouldTimeStages();
+        long stageStart = timeStages ? System.nanoTime() : 0;
         // 2. Get endpoint path
 
         String endpoint = request.getRequestURI();
         // 1. Extract client ID (IP address or custom header)
 
         String clientId = extractClientId(request);
+        int permits = extractPermits(request);
+        if (timeStages) {
+            stageStart = recordStage(RateLimitMetricsService.Stage.EXTRACT_CLIENT_ID, stageStart);
+        }
 
         try {
 
@@ -65,37 +112,46 @@ public class RateLimitService {
             // 3. Get or create rate limiter for this endpoint
 
             RateLimitingStrategy rateLimiter = getRateLimiterForEndpoint(endpoint);
+            if (timeStages) {
+                stageStart = recordStage(RateLimitMetricsService.Stage.GET_RATE_LIMITER, stageStart);
+            }
 
 
-            // 4. Check if request should be allowed
-
-            boolean allowed = rateLimiter.allowRequest(clientId);
-
-
-            // 5. Get remaining requests info
+            // 4. Decide, and read remaining/limit/reset from the same step
 
-            long remainingRequests = rateLimiter.getRemainingRequests(clientId);
+            RateLimitDecision decision = rateLimiter.tryAcquire(clientId, permits, DECISION.get());
+            boolean allowed = decision.isAllowed();
+            long remainingRequests = decision.getRemaining();
+            if (timeStages) {
+                stageStart = recordStage(RateLimitMetricsService.Stage.ALLOW_REQUEST, stageStart);
+            }
 
 
-            // 6. Get Algorithm info
+            // 5. Get Algorithm info
 
             String algorithm = getAlgorithmForEndpoint(endpoint).name();
+            if (timeStages) {
+                stageStart = recordStage(RateLimitMetricsService.Stage.GET_ALGORITHM, stageStart);
+            }
 
             metricsService.recordRequest(allowed, endpoint, algorithm);
-            metricsService.recordClientActivity(clientId,endpoint);
-            long totalDuration = System.nanoTime() - totalStart;
-
-            // Log timing breakdown (only for first few requests to avoid spam)
-            if (totalDuration > 1_000_000) { // Log if > 1ms
-                performanceLogger.warn("Slow rate limit check: {}ms for client={}, endpoint={}",
-                        totalDuration / 1_000_000.0, clientId, endpoint);
+            heavyHitters.record(endpoint, clientId, permits, allowed);
+            if (timeStages) {
+                stageStart = recordStage(RateLimitMetricsService.Stage.RECORD_METRICS, stageStart);
             }
+
+            // Slow checks are reported through JFR (RateLimitSlowCheck, 1 ms threshold by default)
+            decisionEvent.complete(endpoint, algorithm, allowed);
+            slowCheckEvent.complete(endpoint, algorithm, clientId, allowed);
         RateLimitResult result = new RateLimitResult(
                 allowed,
                 remainingRequests,
                 algorithm,
                 clientId,
-                endpoint
+                endpoint,
+                decision.getLimit(),
+                decision.getResetAfterMillis(),
+                decision.getRetryAfterMillis()
         );
 
 //        logger.debug("Rate limit check: clientId={}, endpoint={}, allowed={}, remaining={}",
@@ -115,6 +171,9 @@ public class RateLimitService {
                 securityLogger.warn("Rate limit violation: client={}, endpoint={}, algorithm={}",
                         clientId, endpoint, algorithm);
             }
+            if (timeStages) {
+                recordStage(RateLimitMetricsService.Stage.LOGGING, stageStart);
+            }
 
         return result;
     }catch (RateLimiterExceptions.ConfigurationException e) {
@@ -133,6 +192,105 @@ public class RateLimitService {
             timerSample.stop(metricsService.getRateLimitCheckTimer());
         }
     }
+    /**
+     * Decide many (clientId, endpoint) pairs in one call, for gateways that have already
+     * identified their clients. Returns one BatchDecision-encoded long per pair, in order.
+     *
+     * Pairs are grouped by endpoint so each group looks up its limiter and algorithm once and
+     * goes to the strategy as a single allowRequests() call. An endpoint that matches no configured
+     * endpoint fails the whole batch with IllegalArgumentException.
+     */
+    public long[] checkRateLimits(String[] clientIds, String[] endpoints) {
+        if (clientIds.length != endpoints.length) {
+            throw new IllegalArgumentException("Got " + clientIds.length + " client ids for " + endpoints.length + " endpoints");
+        }
+        long[] decisions = new long[clientIds.length];
+
+        // Indices of each endpoint's pairs, in first-seen order: count them, then fill them in
+        Map<String, int[]> counts = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            counts.computeIfAbsent(endpoint, key -> new int[1])[0]++;
+        }
+        // Checked before anything is decided, so a batch never creates a limiter or meter for a made-up endpoint
+        for (String endpoint : counts.keySet()) {
+            if (!isConfiguredEndpoint(endpoint)) {
+                throw new IllegalArgumentException("No rate limit configured for endpoint " + endpoint);
+            }
+        }
+        Map<String, int[]> indices = new LinkedHashMap<>();
+        counts.forEach((endpoint, count) -> indices.put(endpoint, new int[count[0] + 1]));
+        for (int i = 0; i < endpoints.length; i++) {
+            int[] group = indices.get(endpoints[i]);
+            // Slot 0 holds how many indices are filled in so far
+            group[++group[0]] = i;
+        }
+
+        indices.forEach((endpoint, group) -> {
+            int size = group.length - 1;
+            String[] groupClientIds = new String[size];
+            for (int j = 0; j < size; j++) {
+                groupClientIds[j] = clientIds[group[j + 1]];
+            }
+            long[] groupDecisions = decideGroup(endpoint, groupClientIds);
+            for (int j = 0; j < size; j++) {
+                decisions[group[j + 1]] = groupDecisions[j];
+            }
+        });
+        return decisions;
+    }
+
+    /**
+     * Whether the endpoint matches a configured rate-limiter.endpoints key, compared without their '/'
+     */
+    public boolean isConfiguredEndpoint(String endpoint) {
+        if (endpoint == null) {
+            return false;
+        }
+        String normalizedEndpoint = endpoint.replaceAll("/", "");
+        for (String key : properties.getEndpoints().keySet()) {
+            if (key.replaceAll("/", "").equals(normalizedEndpoint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long[] decideGroup(String endpoint, String[] clientIds) {
+        Timer.Sample timerSample = metricsService.startTimer();
+        try {
+            long[] decisions = getRateLimiterForEndpoint(endpoint).allowRequests(clientIds);
+            String algorithm = getAlgorithmForEndpoint(endpoint).name();
+            for (long decision : decisions) {
+                metricsService.recordRequest(BatchDecision.isAllowed(decision), endpoint, algorithm);
+            }
+            return decisions;
+        } catch (Exception e) {
+            logger.error("Batch rate limit check failed for {}: {}", endpoint, e.getMessage());
+            boolean allowed = "ALLOW".equalsIgnoreCase(properties.getFailSafeStrategy());
+            long[] decisions = new long[clientIds.length];
+            Arrays.fill(decisions, BatchDecision.encode(allowed, -1));
+            return decisions;
+        } finally {
+            timerSample.stop(metricsService.getRateLimitCheckTimer());
+        }
+    }
+
+    /**
+     * 1 in stageTimingSampleRate requests get per-stage timers; 0 turns them off
+     */
+    private boolean shouldTimeStages() {
+        int sampleRate = properties.getStageTimingSampleRate();
+        return sampleRate > 0 && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+
+    /**
+     * Record the stage that started at stageStart and return the start of the next one
+     */
+    private long recordStage(RateLimitMetricsService.Stage stage, long stageStart) {
+        long now = System.nanoTime();
+        metricsService.recordStage(stage, now - stageStart);
+        return now;
+    }
     private RateLimitResult createFailSafeResult(String clientId, String endpoint, String errorType) {
         // Read strategy from config
         String strategy = properties.getFailSafeStrategy(); // You'd need to add this property
@@ -235,6 +393,40 @@ public class RateLimitService {
         }
         }
 
+    /**
+     * Permits this request costs: the cost request attribute if set (e.g. by a filter that has
+     * counted the items in a batch), else the cost header, else 1. Anything unusable counts as 1.
+     */
+    private int extractPermits(HttpServletRequest request) {
+        String attributeName = properties.getCostAttribute();
+        if (attributeName != null && !attributeName.isBlank()) {
+            Object cost = request.getAttribute(attributeName);
+            if (cost instanceof Number number) {
+                return Math.max(1, number.intValue());
+            }
+            if (cost instanceof String text) {
+                return parsePermits(text);
+            }
+        }
+        String headerName = properties.getCostHeader();
+        if (headerName != null && !headerName.isBlank()) {
+            String cost = request.getHeader(headerName);
+            if (cost != null) {
+                return parsePermits(cost);
+            }
+        }
+        return 1;
+    }
+
+    private int parsePermits(String cost) {
+        try {
+            return Math.max(1, Integer.parseInt(cost.trim()));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring invalid request cost '{}'", cost);
+            return 1;
+        }
+    }
+
     /**
      * Extract IP address with proxy support
      */
@@ -341,12 +533,28 @@ public class RateLimitService {
 
         int maxRequests;
         long timeWindowMs;
+        int subBuckets = RateLimiterFactory.Configuration.DEFAULT_SUB_BUCKETS;
+        boolean lockFree = false;
+        boolean epochAligned = false;
+        boolean highPrecision = false;
+        StateStoreType stateStore = StateStoreType.HEAP;
+        int stateStoreCapacity = RateLimiterFactory.Configuration.DEFAULT_STATE_STORE_CAPACITY;
+        int maxClients = RateLimiterFactory.Configuration.UNBOUNDED;
+        int sketchWidth = CountMinSketchStrategy.DEFAULT_SKETCH_WIDTH;
         RateLimitingAlgorithm algorithm;
 
         if (matchedConfig != null && matchedConfig.isEnabled()) {
             maxRequests = matchedConfig.getMaxRequests();
             timeWindowMs = matchedConfig.getTimeWindowMs();
             algorithm = matchedConfig.getAlgorithm();
+            subBuckets = matchedConfig.getSubBuckets();
+            lockFree = matchedConfig.isLockFree();
+            epochAligned = matchedConfig.isEpochAligned();
+            highPrecision = matchedConfig.isHighPrecision();
+            stateStore = matchedConfig.getStateStore();
+            stateStoreCapacity = matchedConfig.getStateStoreCapacity();
+            maxClients = matchedConfig.getMaxClients();
+            sketchWidth = matchedConfig.getSketchWidth();
 
             logger.info("Creating rate limiter for endpoint '{}' with custom config: {}req/{}ms using {}",
                     endpoint, maxRequests, timeWindowMs, algorithm);
@@ -360,10 +568,67 @@ public class RateLimitService {
         }
 
         RateLimiterFactory.Configuration factoryConfig =
-                new RateLimiterFactory.Configuration(maxRequests, timeWindowMs);
-        RateLimiterFactory factory = new RateLimiterFactory(algorithm, factoryConfig);
+                new RateLimiterFactory.Configuration(maxRequests, timeWindowMs)
+                        .withSubBuckets(subBuckets)
+                        .withLockFree(lockFree)
+                        .withEpochAligned(epochAligned)
+                        .withHighPrecision(highPrecision)
+                        .withStateStore(stateStore, stateStoreCapacity)
+                        .withIdleExpiry(properties.getIdleExpiryIntervalMs() > 0)
+                        .withMaxClients(maxClients)
+                        .withSketchWidth(sketchWidth);
+        RateLimiterFactory factory = new RateLimiterFactory(algorithm, factoryConfig, new SystemTimeProvider(),
+                contentionMonitors.monitorFor(endpoint, algorithm));
+
+        return withSharedLimits(endpoint, factory.createStrategy(),
+                matchedConfig != null && matchedConfig.isEnabled() ? matchedConfig.getTotal() : null);
+    }
+
+    /**
+     * Layer the client budgets matching this endpoint and the endpoint's total on top of its per-client
+     * limiter. The result is still the one strategy the endpoint lookup returns, so every level is decided
+     * from a single lookup and client id; without shared limits the endpoint limiter is returned as is.
+     */
+    private RateLimitingStrategy withSharedLimits(String endpoint, RateLimitingStrategy endpointLimiter,
+                                                  RateLimiterProperties.LimitConfig total) {
+        List<HierarchicalStrategy.Level> levels = new ArrayList<>();
+        levels.add(new HierarchicalStrategy.Level("client", endpointLimiter, true));
+        properties.getClientBudgets().forEach((pattern, budget) -> {
+            if (pathMatcher.match(pattern, endpoint)) {
+                RateLimitingStrategy budgetLimiter = clientBudgetLimiters.computeIfAbsent(pattern,
+                        key -> createSharedLimiter("budget " + key, budget));
+                levels.add(new HierarchicalStrategy.Level("client budget " + pattern, budgetLimiter, true));
+            }
+        });
+        if (total != null) {
+            levels.add(new HierarchicalStrategy.Level("endpoint total",
+                    createSharedLimiter("total " + endpoint, total), false));
+        }
+        if (levels.size() == 1) {
+            return endpointLimiter;
+        }
+        logger.info("Endpoint '{}' limited by {}", endpoint, levels.stream().map(HierarchicalStrategy.Level::name).toList());
+        return new HierarchicalStrategy(levels);
+    }
+
+    private RateLimitingStrategy createSharedLimiter(String name, RateLimiterProperties.LimitConfig limit) {
+        RateLimiterFactory.Configuration factoryConfig =
+                new RateLimiterFactory.Configuration(limit.getMaxRequests(), limit.getTimeWindowMs())
+                        .withIdleExpiry(properties.getIdleExpiryIntervalMs() > 0);
+        return new RateLimiterFactory(limit.getAlgorithm(), factoryConfig, new SystemTimeProvider(),
+                contentionMonitors.monitorFor(name, limit.getAlgorithm())).createStrategy();
+    }
 
-        return factory.createStrategy();
+    /**
+     * Drop idle clients from every endpoint's limiters (client budgets are reached through the endpoints
+     * they cover). Returns how many were dropped.
+     */
+    public int expireIdleClients() {
+        int expired = 0;
+        for (RateLimitingStrategy limiter : endpointLimiters.values()) {
+            expired += limiter.expireIdleClients();
+        }
+        return expired;
     }
 
     /**
@@ -410,14 +675,27 @@ public class RateLimitService {
         private final String algorithm;
         private final String clientId;
         private final String endpoint;
+        // -1 when unknown, as in RateLimitDecision
+        private final long limit;
+        private final long resetAfterMillis;
+        private final long retryAfterMillis;
 
         public RateLimitResult(boolean allowed, long remainingRequests, String algorithm,
                                String clientId, String endpoint) {
+            this(allowed, remainingRequests, algorithm, clientId, endpoint, -1, -1, -1);
+        }
+
+        public RateLimitResult(boolean allowed, long remainingRequests, String algorithm,
+                               String clientId, String endpoint,
+                               long limit, long resetAfterMillis, long retryAfterMillis) {
             this.allowed = allowed;
             this.remainingRequests = remainingRequests;
             this.algorithm = algorithm;
             this.clientId = clientId;
             this.endpoint = endpoint;
+            this.limit = limit;
+            this.resetAfterMillis = resetAfterMillis;
+            this.retryAfterMillis = retryAfterMillis;
         }
 
         public boolean isAllowed() { return allowed; }
@@ -425,11 +703,14 @@ public class RateLimitService {
         public String getAlgorithm() { return algorithm; }
         public String getClientId() { return clientId; }
         public String getEndpoint() { return endpoint; }
+        public long getLimit() { return limit; }
+        public long getResetAfterMillis() { return resetAfterMillis; }
+        public long getRetryAfterMillis() { return retryAfterMillis; }
 
         @Override
         public String toString() {
-            return String.format("RateLimitResult{allowed=%s, remaining=%d, algorithm=%s, client=%s, endpoint=%s}",
-                    allowed, remainingRequests, algorithm, clientId, endpoint);
+            return String.format("RateLimitResult{allowed=%s, remaining=%d, limit=%d, algorithm=%s, client=%s, endpoint=%s}",
+                    allowed, remainingRequests, limit, algorithm, clientId, endpoint);
         }
     }
 }
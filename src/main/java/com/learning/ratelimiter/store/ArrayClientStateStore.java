@@ -0,0 +1,70 @@
+package com.learning.ratelimiter.store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Client state on the heap without an object per client: the fingerprint table as three parallel long[]
+ * arrays, of fingerprints, packed states and claim numbers, read and CAS'd through a VarHandle.
+ *
+ * No String keys are retained and there are no map nodes to chase; a lookup hashes the client id and
+ * walks adjacent fingerprints in one array. The heap holds three arrays however many clients there are,
+ * so the GC has nothing per client to mark.
+ */
+public class ArrayClientStateStore extends FingerprintTableStore {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    // Java arrays stop at 2^31 - 1 elements, so the largest power-of-two table is 2^30 slots
+    public static final int MAX_CLIENTS = (1 << 29) + (1 << 28);
+
+    private final long[] fingerprints;
+    private final long[] states;
+    private final long[] claims;
+
+    public ArrayClientStateStore(int maxClients) {
+        super(maxClients, MAX_CLIENTS);
+        this.fingerprints = new long[slots];
+        this.states = new long[slots];
+        this.claims = new long[slots];
+    }
+
+    @Override
+    long keyAt(int slot) {
+        return (long) LONGS.getVolatile(fingerprints, slot);
+    }
+
+    @Override
+    boolean compareAndSetKey(int slot, long expected, long update) {
+        return LONGS.compareAndSet(fingerprints, slot, expected, update);
+    }
+
+    @Override
+    void setKey(int slot, long key) {
+        LONGS.setVolatile(fingerprints, slot, key);
+    }
+
+    @Override
+    void setState(int slot, long state) {
+        LONGS.setVolatile(states, slot, state);
+    }
+
+    @Override
+    long stateAt(int slot) {
+        return (long) LONGS.getVolatile(states, slot);
+    }
+
+    @Override
+    boolean compareAndSetState(int slot, long expected, long update) {
+        return LONGS.compareAndSet(states, slot, expected, update);
+    }
+
+    @Override
+    long claimAt(int slot) {
+        return (long) LONGS.getVolatile(claims, slot);
+    }
+
+    @Override
+    void setClaim(int slot, long claim) {
+        LONGS.setVolatile(claims, slot, claim);
+    }
+}
@@ -0,0 +1,37 @@
+package com.learning.ratelimiter.store;
+
+/**
+ * 64-bit fingerprints of client ids, for stores that keep a fixed-size key instead of the id itself.
+ *
+ * FNV-1a over the UTF-16 chars followed by the MurmurHash3 finalizer, so ids that differ only in their
+ * last few chars still spread over the whole table. The top bit is always clear and the result is never
+ * 0, leaving both free for the stores' slot markers. Two ids share a fingerprint with probability about
+ * n^2 / 2^64 for n clients: around 1 in 200,000 at ten million clients.
+ */
+public final class ClientFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ClientFingerprint() {
+    }
+
+    public static long of(CharSequence clientId) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < clientId.length(); i++) {
+            hash = (hash ^ clientId.charAt(i)) * FNV_PRIME;
+        }
+        long fingerprint = mix(hash) & Long.MAX_VALUE;
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    // MurmurHash3 fmix64
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
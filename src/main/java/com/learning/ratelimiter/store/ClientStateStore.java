@@ -0,0 +1,44 @@
+package com.learning.ratelimiter.store;
+
+/**
+ * Where a strategy keeps one long of state per client. Strategies whose state packs into a long
+ * (GCRA, the lock-free buckets, epoch-aligned fixed windows) work on the StateCell it hands out,
+ * so the backing storage can change without touching their logic.
+ *
+ * A store may hand the same thread the same cell object for every lookup, pointed at the client just
+ * looked up, so a cell is only good until the thread's next lookup in the store.
+ */
+public interface ClientStateStore {
+
+    /**
+     * The client's cell, or null if it has none
+     */
+    StateCell find(String clientId);
+
+    /**
+     * The client's cell, created holding initialState if it has none
+     */
+    StateCell findOrCreate(String clientId, long initialState);
+
+    void remove(String clientId);
+
+    /**
+     * Removes the client if its cell still holds expectedState, leaving RETIRED in the cell for any
+     * request already holding it. Returns false, changing nothing, if the state has moved on.
+     */
+    boolean retire(String clientId, StateCell cell, long expectedState);
+
+    /**
+     * What the idle wheel schedules the cell's client with: equal for every lookup of the same state, and
+     * different once the client has been removed and created again. Cells may be reused, so they cannot
+     * stand for themselves in every store.
+     */
+    default Object idleToken(StateCell cell) {
+        return cell;
+    }
+
+    /**
+     * Clients currently holding state
+     */
+    int size();
+}
@@ -0,0 +1,303 @@
+package com.learning.ratelimiter.store;
+
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size open-addressing table keyed by 64-bit client fingerprints (see ClientFingerprint), holding one
+ * long of state per slot and the number of the claim that filled it. Subclasses decide where those words
+ * live.
+ *
+ * Lookups are lock-free linear probes. Claims, which only happen for new clients, are serialized on one
+ * lock: a claim first makes sure the fingerprint is absent, then takes the first tombstone on its probe
+ * chain, or the empty slot that ends it. It marks the slot pending, writes the initial state and then
+ * publishes the fingerprint, so a reader never sees a client before its state. Claims are numbered, and
+ * the claim number is what the idle wheel tells a client's state apart from a later one by. Removing a
+ * client first retires its state, then leaves a tombstone that keeps probe chains intact until a claim
+ * reuses it; tombstones right before an empty slot end no chain and are turned back into empty slots.
+ *
+ * The table does not grow: while maxClients clients are held, new clients get a
+ * RateLimiterUnavailableException, which the service answers with its fail-safe. Removed clients give
+ * their room back.
+ *
+ * Lookups hand out one reusable cell per thread, pointed at the client's slot and tied to the claim that
+ * filled it, so a decision allocates nothing. A cell reads as RETIRED once its client has been removed, so
+ * a request still holding it looks the client up again. A claim never reuses a slot some thread's cell
+ * still points at: a request that read a removed client's state can then never land its CAS on a later
+ * client whose initial state happens to be the same value. Each other thread that has used the store
+ * holds back at most one slot this way, until its next lookup.
+ */
+abstract class FingerprintTableStore implements ClientStateStore {
+
+    // Fingerprint word values besides fingerprints, which are never 0 and have the top bit clear
+    static final long EMPTY = 0;
+    static final long PENDING_BIT = Long.MIN_VALUE;
+    // The pending marker of fingerprint 0, which never occurs
+    static final long TOMBSTONE = Long.MIN_VALUE;
+
+    final int slots;
+    private final int mask;
+    private final int maxClients;
+    private final AtomicInteger size = new AtomicInteger();
+    // Serializes claims and tombstone clean-up; lookups never take it
+    private final ReentrantLock claimLock = new ReentrantLock();
+    // Claims made so far; guarded by claimLock
+    private long claims;
+    private final ThreadLocal<Cell> cells = ThreadLocal.withInitial(this::newCell);
+    // Every thread's cell, for claims to check which slots are still pointed at
+    private final Queue<Cell> handedOut = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param maxClients clients the table holds; it gets at least a third as many slots again so probe chains stay short
+     * @param limit      largest maxClients the subclass can store
+     */
+    FingerprintTableStore(int maxClients, int limit) {
+        if (maxClients < 1 || maxClients > limit) {
+            throw new RateLimiterExceptions.ConfigurationException(
+                    getClass().getSimpleName() + " holds between 1 and " + limit + " clients, got " + maxClients);
+        }
+        this.slots = Integer.highestOneBit(Math.max(2, maxClients + maxClients / 3) * 2 - 1);
+        this.mask = slots - 1;
+        this.maxClients = maxClients;
+    }
+
+    abstract long keyAt(int slot);
+
+    abstract boolean compareAndSetKey(int slot, long expected, long update);
+
+    abstract void setKey(int slot, long key);
+
+    abstract long stateAt(int slot);
+
+    abstract boolean compareAndSetState(int slot, long expected, long update);
+
+    abstract void setState(int slot, long state);
+
+    abstract long claimAt(int slot);
+
+    abstract void setClaim(int slot, long claim);
+
+    @Override
+    public StateCell find(String clientId) {
+        long fingerprint = ClientFingerprint.of(clientId);
+        int slot = locate(fingerprint);
+        return slot < 0 ? null : cellAt(slot, fingerprint);
+    }
+
+    @Override
+    public StateCell findOrCreate(String clientId, long initialState) {
+        long fingerprint = ClientFingerprint.of(clientId);
+        int slot = locate(fingerprint);
+        if (slot < 0) {
+            slot = claim(fingerprint, initialState);
+        }
+        return cellAt(slot, fingerprint);
+    }
+
+    /**
+     * Retires the state before tombstoning the slot, so requests holding the client's cell fail their CAS
+     * and look the client up again
+     */
+    @Override
+    public void remove(String clientId) {
+        long fingerprint = ClientFingerprint.of(clientId);
+        int slot = locate(fingerprint);
+        if (slot < 0) {
+            return;
+        }
+        // Pointing this thread's cell at the slot keeps claims off it while the state is retired
+        Cell cell = cellAt(slot, fingerprint);
+        long state;
+        do {
+            state = cell.get();
+        } while (state != StateCell.RETIRED && !cell.compareAndSet(state, StateCell.RETIRED));
+        if (compareAndSetKey(slot, fingerprint, TOMBSTONE)) {
+            size.decrementAndGet();
+            if (keyAt((slot + 1) & mask) == EMPTY) {
+                clearTombstonesBefore((slot + 1) & mask);
+            }
+        }
+    }
+
+    @Override
+    public boolean retire(String clientId, StateCell cell, long expectedState) {
+        if (!cell.compareAndSet(expectedState, StateCell.RETIRED)) {
+            return false;
+        }
+        remove(clientId);
+        return true;
+    }
+
+    /**
+     * The number of the claim behind the cell, so a client removed and claimed again, even into the same
+     * slot, gets a new token
+     */
+    @Override
+    public Object idleToken(StateCell cell) {
+        return ((Cell) cell).claim;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    // This thread's cell, pointed at the slot. The slot is written last and volatile, and every read through
+    // the cell comes after it, so a claim that misses it cannot have raced a read that saw the old client.
+    private Cell cellAt(int slot, long fingerprint) {
+        Cell cell = cells.get();
+        cell.fingerprint = fingerprint;
+        cell.claim = claimAt(slot);
+        cell.slot = slot;
+        return cell;
+    }
+
+    private Cell newCell() {
+        Cell cell = new Cell(Thread.currentThread());
+        handedOut.add(cell);
+        return cell;
+    }
+
+    // Whether another thread's cell points at the slot (this thread's is about to be repointed); caller holds claimLock
+    private boolean isPointedAt(int slot) {
+        Thread current = Thread.currentThread();
+        for (Iterator<Cell> it = handedOut.iterator(); it.hasNext(); ) {
+            Cell cell = it.next();
+            Thread owner = cell.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                it.remove(); // Nothing reads through a dead thread's cell
+            } else if (owner != current && cell.slot == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Slot holding the fingerprint, or -1 once the probe reaches an empty slot
+    private int locate(long fingerprint) {
+        int slot = (int) fingerprint & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long key = awaitPublished(slot);
+            if (key == fingerprint) {
+                return slot;
+            }
+            if (key == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int claim(long fingerprint, long initialState) {
+        claimLock.lock();
+        try {
+            // Walk the whole chain: the client may have been claimed since the lock-free lookup missed it
+            int slot = (int) fingerprint & mask;
+            int free = -1;
+            for (int probes = 0; probes <= mask; probes++) {
+                long key = keyAt(slot);
+                if (key == fingerprint) {
+                    return slot;
+                }
+                if (key == TOMBSTONE && free < 0 && !isPointedAt(slot)) {
+                    free = slot;
+                } else if (key == EMPTY) {
+                    if (free >= 0 || !isPointedAt(slot)) {
+                        if (free < 0) {
+                            free = slot;
+                        }
+                        break;
+                    }
+                    // A cell still points here: keep the chain going past it instead
+                    setKey(slot, TOMBSTONE);
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (free < 0) {
+                throw new RateLimiterExceptions.RateLimiterUnavailableException(getClass().getSimpleName() + " has no free slot", null);
+            }
+            if (size.get() >= maxClients) {
+                throw new RateLimiterExceptions.RateLimiterUnavailableException(
+                        getClass().getSimpleName() + " is full (" + maxClients + " clients)", null);
+            }
+            // Only claims, all under this lock, write to a free slot
+            setKey(free, fingerprint | PENDING_BIT);
+            setState(free, initialState);
+            setClaim(free, ++claims);
+            setKey(free, fingerprint);
+            size.incrementAndGet();
+            return free;
+        } finally {
+            claimLock.unlock();
+        }
+    }
+
+    /**
+     * Turns the tombstones running back from the empty slot into empty slots. A probe that would have
+     * passed them stops at the empty slot anyway, so no chain is cut short.
+     */
+    private void clearTombstonesBefore(int emptySlot) {
+        claimLock.lock();
+        try {
+            // A claim may have filled the slot since it was seen empty
+            if (keyAt(emptySlot) != EMPTY) {
+                return;
+            }
+            int slot = (emptySlot - 1) & mask;
+            for (int cleared = 0; cleared < mask && keyAt(slot) == TOMBSTONE; cleared++) {
+                setKey(slot, EMPTY);
+                slot = (slot - 1) & mask;
+            }
+        } finally {
+            claimLock.unlock();
+        }
+    }
+
+    // The slot's fingerprint word, waiting out a claim that is still writing its initial state
+    private long awaitPublished(int slot) {
+        long key = keyAt(slot);
+        while (key < 0 && key != TOMBSTONE) {
+            Thread.onSpinWait();
+            key = keyAt(slot);
+        }
+        return key;
+    }
+
+    // Only ever used by the thread it belongs to; claims read which slot it points at
+    private final class Cell implements StateCell {
+        private final WeakReference<Thread> owner;
+        private volatile int slot = -1;
+        private long fingerprint;
+        private long claim;
+
+        Cell(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        /**
+         * The state is read before the fingerprint and claim, so a state written for a later client of the
+         * slot is never returned as this client's
+         */
+        @Override
+        public long get() {
+            long state = stateAt(slot);
+            return keyAt(slot) == fingerprint && claimAt(slot) == claim ? state : RETIRED;
+        }
+
+        @Override
+        public boolean compareAndSet(long expected, long update) {
+            return claimAt(slot) == claim && compareAndSetState(slot, expected, update);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.learning.ratelimiter.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default store: a ConcurrentHashMap from client id to an AtomicLong, which is its own StateCell,
+ * so a lookup allocates nothing
+ */
+public class HeapClientStateStore implements ClientStateStore {
+
+    private final ConcurrentHashMap<String, Cell> cells = new ConcurrentHashMap<>();
+
+    @Override
+    public StateCell find(String clientId) {
+        return cells.get(clientId);
+    }
+
+    @Override
+    public StateCell findOrCreate(String clientId, long initialState) {
+        Cell cell = cells.get(clientId);
+        if (cell != null) {
+            return cell;
+        }
+        return cells.computeIfAbsent(clientId, key -> new Cell(initialState));
+    }
+
+    @Override
+    public void remove(String clientId) {
+        cells.remove(clientId);
+    }
+
+    @Override
+    public boolean retire(String clientId, StateCell cell, long expectedState) {
+        if (!cell.compareAndSet(expectedState, StateCell.RETIRED)) {
+            return false;
+        }
+        cells.remove(clientId, cell);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return cells.size();
+    }
+
+    private static final class Cell extends AtomicLong implements StateCell {
+        Cell(long initialState) {
+            super(initialState);
+        }
+    }
+}
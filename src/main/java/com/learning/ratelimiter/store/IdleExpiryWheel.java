@@ -0,0 +1,205 @@
+package com.learning.ratelimiter.store;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hierarchical timing wheel that tells a strategy when each of its clients may have gone idle.
+ *
+ * A strategy schedules a client once, when it creates the client's state, with the time that state would
+ * be back at full quota. Scheduling pushes onto a lock-free stack, so the request path never waits for the
+ * wheel. advance() is run by one sweeper at a time: it moves the new entries into the wheel and hands every
+ * entry whose deadline has passed to a Reclaimer, which either removes the client or returns the client's
+ * next full-quota time, in which case the entry is rescheduled. Work is proportional to the entries that
+ * come due, never to the number of clients.
+ *
+ * The wheel has LEVELS levels of SLOTS buckets; a bucket on level n spans SLOTS^n ticks, and entries move
+ * down a level as their bucket comes round. Deadlines past the top level wait in its last bucket.
+ */
+public final class IdleExpiryWheel {
+
+    /**
+     * Decides what happens to a client whose deadline has passed
+     */
+    @FunctionalInterface
+    public interface Reclaimer {
+        /**
+         * @param state the object the client was scheduled with; the client's current state may have been replaced since
+         * @return REMOVED if the client no longer needs an entry, otherwise when its state will next be back at full quota
+         */
+        long expire(String clientId, Object state, long now);
+    }
+
+    public static final long REMOVED = -1;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    // Ticks the wheel can cover one tick at a time before falling back to re-sorting every entry
+    private static final long MAX_STEP = (long) SLOTS * SLOTS;
+
+    private final long tickMillis;
+    private final Entry[][] buckets = new Entry[LEVELS][SLOTS];
+    private final AtomicReference<Entry> incoming = new AtomicReference<>();
+    private final AtomicBoolean advancing = new AtomicBoolean();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    // Only touched by the thread holding advancing
+    private long currentTick = Long.MIN_VALUE;
+    private Entry due;
+
+    /**
+     * @param tickMillis resolution of the deadlines; clients are reclaimed up to a tick late
+     */
+    public IdleExpiryWheel(long tickMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+    }
+
+    /**
+     * Ticks of timeWindow / SLOTS, so a window's worth of deadlines sits on the first two levels
+     */
+    public static IdleExpiryWheel forWindow(long timeWindowMillis) {
+        return new IdleExpiryWheel(timeWindowMillis / SLOTS);
+    }
+
+    /**
+     * Safe from any thread; the entry is picked up on the next advance
+     */
+    public void schedule(String clientId, Object state, long deadline) {
+        Entry entry = new Entry(clientId, state, deadline);
+        scheduled.incrementAndGet();
+        Entry head;
+        do {
+            head = incoming.get();
+            entry.next = head;
+        } while (!incoming.compareAndSet(head, entry));
+    }
+
+    /**
+     * Moves the wheel to now and expires whatever came due. Returns the number of entries the reclaimer
+     * removed, or 0 without doing anything if another thread is already advancing.
+     */
+    public int advance(long now, Reclaimer reclaimer) {
+        if (!advancing.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            long nowTick = Math.floorDiv(now, tickMillis);
+            if (currentTick == Long.MIN_VALUE) {
+                currentTick = nowTick;
+            }
+            for (Entry entry = incoming.getAndSet(null); entry != null; ) {
+                Entry next = entry.next;
+                place(entry);
+                entry = next;
+            }
+
+            if (nowTick - currentTick > MAX_STEP) {
+                // Long gap since the last advance: re-sort every entry instead of walking each tick
+                currentTick = nowTick;
+                for (int level = 0; level < LEVELS; level++) {
+                    for (int slot = 0; slot < SLOTS; slot++) {
+                        placeAll(take(level, slot));
+                    }
+                }
+            }
+            int removed = expireDue(now, reclaimer);
+            while (currentTick < nowTick) {
+                currentTick++;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        placeAll(take(level, slotOf(currentTick, level)));
+                    }
+                }
+                placeAll(take(0, slotOf(currentTick, 0)));
+                removed += expireDue(now, reclaimer);
+            }
+            return removed;
+        } finally {
+            advancing.set(false);
+        }
+    }
+
+    /**
+     * Clients waiting in the wheel, including ones scheduled since the last advance
+     */
+    public int size() {
+        return scheduled.get();
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private int expireDue(long now, Reclaimer reclaimer) {
+        int removed = 0;
+        while (due != null) {
+            Entry entry = due;
+            due = entry.next;
+            long next = reclaimer.expire(entry.clientId, entry.state, now);
+            if (next == REMOVED) {
+                scheduled.decrementAndGet();
+                removed++;
+            } else {
+                // Not idle yet: come back at its next full-quota time, but no sooner than the next tick
+                entry.deadline = Math.max(next, (currentTick + 1) * tickMillis);
+                place(entry);
+            }
+        }
+        return removed;
+    }
+
+    private void placeAll(Entry entry) {
+        while (entry != null) {
+            Entry next = entry.next;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    private void place(Entry entry) {
+        long tick = Math.floorDiv(entry.deadline, tickMillis);
+        long delta = tick - currentTick;
+        if (delta <= 0) {
+            entry.next = due;
+            due = entry;
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot;
+        if (delta >= 1L << (SLOT_BITS * LEVELS)) {
+            // Beyond the wheel: park in the top level's furthest bucket and re-sort when it comes round
+            slot = slotOf(currentTick - 1, LEVELS - 1);
+        } else {
+            slot = slotOf(tick, level);
+        }
+        entry.next = buckets[level][slot];
+        buckets[level][slot] = entry;
+    }
+
+    private Entry take(int level, int slot) {
+        Entry head = buckets[level][slot];
+        buckets[level][slot] = null;
+        return head;
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+    }
+
+    private static final class Entry {
+        final String clientId;
+        final Object state;
+        long deadline;
+        Entry next;
+
+        Entry(String clientId, Object state, long deadline) {
+            this.clientId = clientId;
+            this.state = state;
+            this.deadline = deadline;
+        }
+    }
+}
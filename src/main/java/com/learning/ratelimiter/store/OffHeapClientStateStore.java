@@ -0,0 +1,74 @@
+package com.learning.ratelimiter.store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Client state in native memory: the fingerprint table's 24-byte slots (fingerprint, packed state, then
+ * claim number) live in one direct ByteBuffer and are read and CAS'd through a VarHandle.
+ *
+ * Nothing per client lives on the heap, so heap size and GC marking time stay flat however many clients
+ * there are; the table is allocated once at its full size (-XX:MaxDirectMemorySize must allow for it).
+ */
+public class OffHeapClientStateStore extends FingerprintTableStore {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SLOT_BYTES = 24;
+    private static final int STATE_OFFSET = 8;
+    private static final int CLAIM_OFFSET = 16;
+    // Largest power-of-two table a ByteBuffer can address is 2^26 slots; keep a quarter of that free
+    public static final int MAX_CLIENTS = (1 << 26) - (1 << 24);
+
+    private final ByteBuffer table;
+
+    public OffHeapClientStateStore(int maxClients) {
+        super(maxClients, MAX_CLIENTS);
+        this.table = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    public long getOffHeapBytes() {
+        return table.capacity();
+    }
+
+    @Override
+    long keyAt(int slot) {
+        return (long) LONGS.getVolatile(table, slot * SLOT_BYTES);
+    }
+
+    @Override
+    boolean compareAndSetKey(int slot, long expected, long update) {
+        return LONGS.compareAndSet(table, slot * SLOT_BYTES, expected, update);
+    }
+
+    @Override
+    void setKey(int slot, long key) {
+        LONGS.setVolatile(table, slot * SLOT_BYTES, key);
+    }
+
+    @Override
+    void setState(int slot, long state) {
+        LONGS.setVolatile(table, slot * SLOT_BYTES + STATE_OFFSET, state);
+    }
+
+    @Override
+    long stateAt(int slot) {
+        return (long) LONGS.getVolatile(table, slot * SLOT_BYTES + STATE_OFFSET);
+    }
+
+    @Override
+    boolean compareAndSetState(int slot, long expected, long update) {
+        return LONGS.compareAndSet(table, slot * SLOT_BYTES + STATE_OFFSET, expected, update);
+    }
+
+    @Override
+    long claimAt(int slot) {
+        return (long) LONGS.getVolatile(table, slot * SLOT_BYTES + CLAIM_OFFSET);
+    }
+
+    @Override
+    void setClaim(int slot, long claim) {
+        LONGS.setVolatile(table, slot * SLOT_BYTES + CLAIM_OFFSET, claim);
+    }
+}
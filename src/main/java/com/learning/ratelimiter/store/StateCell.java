@@ -0,0 +1,17 @@
+package com.learning.ratelimiter.store;
+
+/**
+ * One client's packed state: a single long read and updated with compare-and-set
+ */
+public interface StateCell {
+
+    /**
+     * Left in a cell whose client has been retired; no strategy packs its state to this value.
+     * A request that reads it looks the client up again and gets its new cell.
+     */
+    long RETIRED = Long.MIN_VALUE;
+
+    long get();
+
+    boolean compareAndSet(long expected, long update);
+}
@@ -0,0 +1,10 @@
+package com.learning.ratelimiter.store;
+
+public enum StateStoreType {
+    // ConcurrentHashMap of one small object per client
+    HEAP,
+    // Fixed-size table of fingerprints and states in native memory, outside the GC's view
+    OFF_HEAP,
+    // The same fixed-size table as two parallel long[] arrays on the heap: no per-client objects or String keys
+    ARRAY
+}
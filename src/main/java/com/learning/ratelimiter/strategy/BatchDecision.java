@@ -0,0 +1,23 @@
+package com.learning.ratelimiter.strategy;
+
+/**
+ * One batch decision packed into a long: the allowed flag in bit 0 and the remaining requests
+ * in the bits above it. Remaining is signed, so -1 (unknown, e.g. a fail-safe decision) survives.
+ */
+public final class BatchDecision {
+
+    private BatchDecision() {
+    }
+
+    public static long encode(boolean allowed, long remaining) {
+        return (remaining << 1) | (allowed ? 1L : 0L);
+    }
+
+    public static boolean isAllowed(long decision) {
+        return (decision & 1L) != 0;
+    }
+
+    public static long remaining(long decision) {
+        return decision >> 1;
+    }
+}
@@ -0,0 +1,269 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps how many clients a strategy keeps state for, whatever the number of distinct client ids it sees.
+ *
+ * Clients are tracked W-TinyLFU style. A new client always gets in, into a small window of recent
+ * clients. When the window is full its least recently seen client competes with the next client to go
+ * from the main region, and the one a frequency sketch has seen less often is dropped, through reset()
+ * on the wrapped strategy. A flood of one-shot ids (a scan, spoofed addresses) only ever pushes one-shot
+ * ids out of the window; clients that keep coming back move into the main region's protected segment and
+ * stay there. A dropped client that comes back starts from a fresh state, so only a client seen less
+ * often than the one replacing it ever gets its quota back early.
+ *
+ * Requests from tracked clients only append to a lossy buffer, replayed into the policy by whichever
+ * thread gets the lock; only new clients wait for it. A request racing with its own client's eviction
+ * still gets its decision, and the state it left behind is dropped before it returns, so the wrapped
+ * strategy never holds more than maxClients plus the requests in flight.
+ */
+public class BoundedClientStrategy implements RateLimitingStrategy {
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_MASK = READ_BUFFER_SIZE - 1;
+    // Replay the buffer after this many recorded hits
+    private static final int DRAIN_MASK = 31;
+
+    private final RateLimitingStrategy delegate;
+    private final int maxClients;
+    private final int windowCapacity;
+    private final int protectedCapacity;
+
+    private final Set<String> tracked = ConcurrentHashMap.newKeySet();
+    private final AtomicReferenceArray<String> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readsRecorded = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Guarded by policyLock. Access-ordered, so the first key is the least recently seen.
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<String, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> protectedClients = new LinkedHashMap<>(16, 0.75f, true);
+
+    public BoundedClientStrategy(RateLimitingStrategy delegate, int maxClients) {
+        if (maxClients < 1) {
+            throw new RateLimiterExceptions.ConfigurationException("maxClients must be at least 1, got " + maxClients);
+        }
+        this.delegate = delegate;
+        this.maxClients = maxClients;
+        // 1% window, the rest split 20/80 between probation and protected
+        this.windowCapacity = Math.max(1, maxClients / 100);
+        this.protectedCapacity = (int) ((maxClients - windowCapacity) * 0.8);
+        this.sketch = new FrequencySketch(maxClients);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId) {
+        track(clientId);
+        boolean allowed = delegate.allowRequest(clientId);
+        dropIfEvicted(clientId);
+        return allowed;
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        track(clientId);
+        boolean allowed = delegate.allowRequest(clientId, permits);
+        dropIfEvicted(clientId);
+        return allowed;
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        track(clientId);
+        delegate.tryAcquire(clientId, permits, decision);
+        dropIfEvicted(clientId);
+        return decision;
+    }
+
+    @Override
+    public long[] allowRequests(String[] clientIds) {
+        for (String clientId : clientIds) {
+            track(clientId);
+        }
+        long[] decisions = delegate.allowRequests(clientIds);
+        for (String clientId : clientIds) {
+            dropIfEvicted(clientId);
+        }
+        return decisions;
+    }
+
+    @Override
+    public void release(String clientId, int permits) {
+        delegate.release(clientId, permits);
+    }
+
+    @Override
+    public void reset(String clientId) {
+        policyLock.lock();
+        try {
+            untrack(clientId);
+        } finally {
+            policyLock.unlock();
+        }
+        delegate.reset(clientId);
+    }
+
+    /**
+     * Does not count as a visit
+     */
+    @Override
+    public long getRemainingRequests(String clientId) {
+        return delegate.getRemainingRequests(clientId);
+    }
+
+    @Override
+    public int expireIdleClients() {
+        return delegate.expireIdleClients();
+    }
+
+    public RateLimitingStrategy getDelegate() {
+        return delegate;
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    public int getTrackedClients() {
+        return tracked.size();
+    }
+
+    /**
+     * Clients dropped to make room for others since this limiter was created
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private void track(String clientId) {
+        if (tracked.contains(clientId)) {
+            recordRead(clientId);
+        } else {
+            admit(clientId);
+        }
+    }
+
+    // The client may have been evicted between track() and the delegate creating its state again.
+    // Eviction untracks before it resets, so either that reset or this one comes after the delegate's write.
+    private void dropIfEvicted(String clientId) {
+        if (!tracked.contains(clientId)) {
+            delegate.reset(clientId);
+        }
+    }
+
+    private void recordRead(String clientId) {
+        long index = readsRecorded.getAndIncrement();
+        // Lossy: a slot not replayed yet is overwritten, which only costs the policy one sample
+        readBuffer.lazySet((int) index & READ_MASK, clientId);
+        if ((index & DRAIN_MASK) == DRAIN_MASK && policyLock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private void admit(String clientId) {
+        policyLock.lock();
+        try {
+            drainReads();
+            if (tracked.contains(clientId)) {
+                onRead(clientId);
+                return;
+            }
+            sketch.increment(clientId);
+            tracked.add(clientId);
+            window.put(clientId, Boolean.TRUE);
+            if (window.size() > windowCapacity) {
+                String candidate = removeEldest(window);
+                probation.put(candidate, Boolean.TRUE);
+                if (window.size() + probation.size() + protectedClients.size() > maxClients) {
+                    evictOne(candidate);
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // The window's evictee has just joined probation; it stays only if it is seen more often than the
+    // client main would drop next
+    private void evictOne(String candidate) {
+        String victim = eldestOther(candidate);
+        String evicted = victim == null || sketch.frequency(candidate) <= sketch.frequency(victim)
+                ? candidate : victim;
+        probation.remove(evicted);
+        tracked.remove(evicted);
+        evictions.incrementAndGet();
+        delegate.reset(evicted);
+    }
+
+    private String eldestOther(String candidate) {
+        Iterator<String> it = probation.keySet().iterator();
+        while (it.hasNext()) {
+            String clientId = it.next();
+            if (!clientId.equals(candidate)) {
+                return clientId;
+            }
+        }
+        // Probation holds only the candidate: take from protected instead
+        return protectedClients.isEmpty() ? null : demoteEldest();
+    }
+
+    private String demoteEldest() {
+        String demoted = removeEldest(protectedClients);
+        probation.put(demoted, Boolean.TRUE);
+        return demoted;
+    }
+
+    private void drainReads() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            String clientId = readBuffer.getAndSet(i, null);
+            if (clientId != null) {
+                onRead(clientId);
+            }
+        }
+    }
+
+    private void onRead(String clientId) {
+        sketch.increment(clientId);
+        if (window.get(clientId) != null || protectedClients.get(clientId) != null) {
+            return;
+        }
+        // Seen again while on probation: promote, making room in protected if it is full
+        if (probation.remove(clientId) != null) {
+            protectedClients.put(clientId, Boolean.TRUE);
+            if (protectedClients.size() > protectedCapacity) {
+                demoteEldest();
+            }
+        }
+    }
+
+    private void untrack(String clientId) {
+        if (tracked.remove(clientId)) {
+            window.remove(clientId);
+            probation.remove(clientId);
+            protectedClients.remove(clientId);
+        }
+    }
+
+    private static String removeEldest(Map<String, Boolean> segment) {
+        Iterator<String> it = segment.keySet().iterator();
+        String eldest = it.next();
+        it.remove();
+        return eldest;
+    }
+}
@@ -0,0 +1,69 @@
+package com.learning.ratelimiter.strategy;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Request counts for any number of client ids in a fixed DEPTH x width table of int counters.
+ *
+ * A client adds to one counter per row, picked by a different hash each time, and its count is the
+ * smallest of them. Counters only ever hold more than the client's own requests, so the estimate never
+ * undercounts: it can only be inflated by other clients sharing all DEPTH counters with it. Counters are
+ * updated atomically; keeping one client's read-then-add consistent is up to the caller.
+ */
+final class CountMinSketch {
+
+    static final int DEPTH = 4;
+
+    private static final long[] SEEDS = {
+            0x9e3779b97f4a7c15L, 0xbf58476d1ce4e5b9L, 0x94d049bb133111ebL, 0xd6e8feb86659fd93L};
+
+    private final AtomicIntegerArray counters;
+    private final int width;
+    private final int widthMask;
+
+    CountMinSketch(int width) {
+        this.width = Integer.highestOneBit(Math.max(2, Math.min(width, 1 << 26)) * 2 - 1);
+        this.widthMask = this.width - 1;
+        this.counters = new AtomicIntegerArray(DEPTH * this.width);
+    }
+
+    int estimate(long hash) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(indexOf(hash, row)));
+        }
+        return estimate;
+    }
+
+    void add(long hash, int delta) {
+        for (int row = 0; row < DEPTH; row++) {
+            counters.getAndAdd(indexOf(hash, row), delta);
+        }
+    }
+
+    /**
+     * Takes back up to amount of what the client added, never more than its estimate, so no counter
+     * drops below what the other clients in it added
+     */
+    void subtract(long hash, int amount) {
+        int delta = Math.min(amount, estimate(hash));
+        if (delta > 0) {
+            add(hash, -delta);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    private int indexOf(long hash, int row) {
+        long h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) & (DEPTH - 1)];
+        return row * width + ((int) (h ^ (h >>> 32)) & widthMask);
+    }
+}
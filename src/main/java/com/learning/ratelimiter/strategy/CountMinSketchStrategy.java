@@ -0,0 +1,256 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.ClientFingerprint;
+
+/**
+ * Approximate sliding window counter that keeps no per-client state at all.
+ *
+ * Counts go into a pair of Count-Min Sketches: one for the current clock-aligned window and one for the
+ * previous window. The estimate is the classic current + weighted previous window count, as in
+ * SLIDING_WINDOW_COUNTER with one sub-bucket. When a window ends the older sketch is cleared and becomes
+ * the current one, so memory is two sketches of DEPTH x sketchWidth ints, whatever the number of distinct
+ * clients, and a decision costs DEPTH counter reads and writes per sketch.
+ *
+ * The estimate never undercounts, so a client never gets more than its limit; the error is all on the
+ * side of denying early. Per sketch the overcount is at most e * N / sketchWidth with probability
+ * 1 - e^-DEPTH (about 98%), where N is every client's requests in that window together. At the default
+ * width of 65,536 that is 0.004% of the window's total traffic: 41 requests for a million requests a
+ * window. Size the width so that share of the busiest window's traffic is small next to maxRequests.
+ *
+ * A sketch cannot forget one client without undercounting the others sharing its counters, so reset()
+ * does nothing and a client's count ages out with the window instead.
+ */
+public class CountMinSketchStrategy implements RateLimitingStrategy {
+
+    public static final int DEFAULT_SKETCH_WIDTH = 65_536;
+
+    // Per-client check-then-add is serialized on a stripe picked by the client's hash
+    private static final int LOCK_STRIPES = 256;
+
+    private final int maxRequests;
+    private final long timeWindowMillis;
+    private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Object rotationLock = new Object();
+    private volatile Generation generation;
+
+    public CountMinSketchStrategy(int maxRequests, long timeWindowMillis, int sketchWidth,
+                                  TimeProvider timeProvider, ContentionMonitor contentionMonitor) {
+        if (sketchWidth < 1) {
+            throw new RateLimiterExceptions.ConfigurationException("Sketch width must be at least 1, got " + sketchWidth);
+        }
+        this.maxRequests = maxRequests;
+        this.timeWindowMillis = timeWindowMillis;
+        this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.generation = new Generation(Math.floorDiv(timeProvider.getCurrentTimeMillis(), timeWindowMillis),
+                new CountMinSketch(sketchWidth), new CountMinSketch(sketchWidth));
+    }
+
+    public CountMinSketchStrategy(int maxRequests, long timeWindowMillis, int sketchWidth, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, sketchWidth, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public CountMinSketchStrategy(int maxRequests, long timeWindowMillis) {
+        this(maxRequests, timeWindowMillis, DEFAULT_SKETCH_WIDTH, new SystemTimeProvider());
+    }
+
+    @Override
+    public boolean allowRequest(String clientId) {
+        return allowRequest(clientId, 1);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        if (permits > maxRequests) {
+            return false;
+        }
+        long hash = ClientFingerprint.of(clientId);
+        boolean monitored = contentionMonitor.isEnabled();
+        long lockStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        synchronized (lockFor(hash)) {
+            long currentTime = timeProvider.getCurrentTimeMillis();
+            Generation gen = generationAt(currentTime);
+            allowed = estimate(gen, hash, currentTime) + permits <= maxRequests;
+            if (allowed) {
+                gen.current.add(hash, permits);
+            }
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - lockStart);
+        }
+        return allowed;
+    }
+
+    /**
+     * Reset is when the newest window with requests in it has slid out; retry is when the decaying
+     * estimate first leaves room for the permits. Both are for the client's estimate, collisions included.
+     */
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        long hash = ClientFingerprint.of(clientId);
+        boolean monitored = contentionMonitor.isEnabled();
+        long lockStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        long remaining;
+        long resetAfter;
+        long retryAfter;
+        synchronized (lockFor(hash)) {
+            long currentTime = timeProvider.getCurrentTimeMillis();
+            Generation gen = generationAt(currentTime);
+            double estimate = estimate(gen, hash, currentTime);
+            allowed = permits <= maxRequests && estimate + permits <= maxRequests;
+            if (allowed) {
+                gen.current.add(hash, permits);
+                estimate += permits;
+            }
+            int current = gen.current.estimate(hash);
+            int previous = gen.previous.estimate(hash);
+            remaining = Math.max(0, (long) Math.floor(maxRequests - estimate));
+            resetAfter = resetAfter(gen, current, previous, currentTime);
+            retryAfter = allowed ? 0 : permits > maxRequests ? -1
+                    : retryAfter(gen, current, previous, currentTime, permits);
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - lockStart);
+        }
+        return decision.set(allowed, remaining, maxRequests, resetAfter, retryAfter);
+    }
+
+    /**
+     * Only from the current window, and never more than the client's estimate there
+     */
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        long hash = ClientFingerprint.of(clientId);
+        synchronized (lockFor(hash)) {
+            generationAt(timeProvider.getCurrentTimeMillis()).current.subtract(hash, permits);
+        }
+    }
+
+    @Override
+    public void reset(String clientId) {
+        // Nothing to forget: see the class comment
+    }
+
+    @Override
+    public long getRemainingRequests(String clientId) {
+        long hash = ClientFingerprint.of(clientId);
+        synchronized (lockFor(hash)) {
+            long currentTime = timeProvider.getCurrentTimeMillis();
+            return Math.max(0, (long) Math.floor(maxRequests - estimate(generationAt(currentTime), hash, currentTime)));
+        }
+    }
+
+    /**
+     * Bytes held by the two sketches, the same for one client or millions
+     */
+    public long getSketchBytes() {
+        return 2L * CountMinSketch.DEPTH * generation.current.getWidth() * Integer.BYTES;
+    }
+
+    public int getSketchWidth() {
+        return generation.current.getWidth();
+    }
+
+    public long getTimeWindowMillis() {
+        return timeWindowMillis;
+    }
+
+    private Object lockFor(long hash) {
+        return locks[(int) (hash >>> 40) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * The generation for the window containing currentTime. The first request of a new window clears the
+     * sketch that has slid out of reach and makes it the current one; a clock that goes backwards keeps
+     * counting in the current window.
+     */
+    private Generation generationAt(long currentTime) {
+        long window = Math.floorDiv(currentTime, timeWindowMillis);
+        Generation gen = generation;
+        if (window <= gen.window) {
+            return gen;
+        }
+        synchronized (rotationLock) {
+            gen = generation;
+            if (window <= gen.window) {
+                return gen;
+            }
+            // Cleared before it is published, so no request counts into it while it is being cleared
+            CountMinSketch reused = gen.previous;
+            reused.clear();
+            if (window > gen.window + 1) {
+                // Skipped a whole window: the old current window is out of reach too
+                gen.current.clear();
+            }
+            generation = new Generation(window, reused, gen.current);
+            return generation;
+        }
+    }
+
+    private double estimate(Generation gen, long hash, long currentTime) {
+        // Share of the previous window that is still inside the sliding window
+        double elapsedInWindow = (double) Math.floorMod(currentTime, timeWindowMillis) / timeWindowMillis;
+        return gen.current.estimate(hash) + gen.previous.estimate(hash) * (1.0 - elapsedInWindow);
+    }
+
+    private long resetAfter(Generation gen, int current, int previous, long currentTime) {
+        if (current != 0) {
+            return (gen.window + 2) * timeWindowMillis - currentTime;
+        }
+        if (previous != 0) {
+            return (gen.window + 1) * timeWindowMillis - currentTime;
+        }
+        return 0;
+    }
+
+    /**
+     * Within this window the current count stays and the previous one decays; from the next window on
+     * only the current count is left, decaying in turn
+     */
+    private long retryAfter(Generation gen, int current, int previous, long currentTime, int permits) {
+        long room = maxRequests - permits - current;
+        long at;
+        if (room >= 0) {
+            at = gen.window * timeWindowMillis + decayTime(previous, room);
+        } else {
+            at = (gen.window + 1) * timeWindowMillis + decayTime(current, maxRequests - permits);
+        }
+        return Math.max(0, at - currentTime);
+    }
+
+    // Time into a window until a count carried over from the window before has decayed to room
+    private long decayTime(int carried, long room) {
+        return carried > room ? (long) Math.ceil(timeWindowMillis * (1.0 - (double) room / carried)) : 0;
+    }
+
+    // The window number with its current and previous sketches; replaced as a whole at each rotation
+    private static final class Generation {
+        final long window;
+        final CountMinSketch current;
+        final CountMinSketch previous;
+
+        Generation(long window, CountMinSketch current, CountMinSketch previous) {
+            this.window = window;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+}
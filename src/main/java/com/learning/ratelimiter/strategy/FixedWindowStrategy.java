@@ -1,23 +1,71 @@
 package com.learning.ratelimiter.strategy;
 
-import com.learning.ratelimiter.core.RateLimiter;
 import com.learning.ratelimiter.core.SystemTimeProvider;
 import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.ClientStateStore;
+import com.learning.ratelimiter.store.HeapClientStateStore;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
+import com.learning.ratelimiter.store.StateCell;
 
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Fixed window counter with per-client state updated in place, so steady-state decisions allocate nothing.
+ *
+ * By default a client's window starts at its first request (anchored); its start time and count live
+ * in one small record guarded by its own monitor. With epoch-aligned windows every client shares the
+ * same boundaries (multiples of timeWindow since the epoch), the window start is implied by its index,
+ * and index and count are packed into a single long, kept in a ClientStateStore and updated with a CAS.
+ *
+ * With idle expiry a client is dropped once its window has ended, leaving nothing behind a new
+ * client's first request would not have started from.
+ */
 public class FixedWindowStrategy implements RateLimitingStrategy {
 
     private final int maxRequests;
     private final long timeWindowMillis;
+    private final boolean epochAligned;
     private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
+    // Only one of these is used, depending on epochAligned
     private final ConcurrentHashMap<String, ClientData> clientData = new ConcurrentHashMap<>();
+    private final ClientStateStore alignedWindows;
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
 
     public FixedWindowStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public FixedWindowStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+            ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, false, timeProvider, contentionMonitor);
+    }
+
+    public FixedWindowStrategy(int maxRequests, long timeWindowMillis, boolean epochAligned,
+            TimeProvider timeProvider, ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, epochAligned, timeProvider, contentionMonitor, new HeapClientStateStore());
+    }
+
+    public FixedWindowStrategy(int maxRequests, long timeWindowMillis, boolean epochAligned,
+            TimeProvider timeProvider, ContentionMonitor contentionMonitor, ClientStateStore stateStore) {
+        this(maxRequests, timeWindowMillis, epochAligned, timeProvider, contentionMonitor, stateStore, false);
+    }
+
+    /**
+     * @param stateStore holds the packed per-client windows when epochAligned; anchored windows stay in a map
+     */
+    public FixedWindowStrategy(int maxRequests, long timeWindowMillis, boolean epochAligned,
+            TimeProvider timeProvider, ContentionMonitor contentionMonitor, ClientStateStore stateStore,
+            boolean idleExpiry) {
+        this.alignedWindows = stateStore;
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
         this.maxRequests = maxRequests;
         this.timeWindowMillis = timeWindowMillis;
+        this.epochAligned = epochAligned;
         this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
     }
 
     public FixedWindowStrategy(int maxRequests, long timeWindowMillis) {
@@ -26,67 +74,331 @@ public class FixedWindowStrategy implements RateLimitingStrategy {
 
     @Override
     public boolean allowRequest(String clientId) {
-        // Use AtomicBoolean to capture the decision inside compute()
-        AtomicBoolean shouldAllow = new AtomicBoolean(false);
+        return allowRequest(clientId, 1);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        boolean result = epochAligned ? allowAligned(clientId, permits) : allowAnchored(clientId, permits);
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        return result;
+    }
+
+    private boolean allowAnchored(String clientId, int permits) {
+        while (true) {
+            ClientData data = clientDataFor(clientId);
+            synchronized (data) {
+                if (!data.retired) {
+                    return allowAnchored(data, permits, timeProvider.getCurrentTimeMillis());
+                }
+            }
+        }
+    }
+
+    private ClientData clientDataFor(String clientId) {
+        ClientData data = clientData.get(clientId);
+        if (data == null) {
+            // Starts out expired, so the first request opens a window
+            data = clientData.computeIfAbsent(clientId, this::newClientData);
+        }
+        return data;
+    }
 
-        clientData.compute(clientId, (key, existingData) -> {
-            long currentTime = timeProvider.getCurrentTimeMillis();
+    private ClientData newClientData(String clientId) {
+        ClientData data = new ClientData(Long.MIN_VALUE / 2);
+        if (idleClients != null) {
+            idleClients.schedule(clientId, data, timeProvider.getCurrentTimeMillis() + timeWindowMillis);
+        }
+        return data;
+    }
 
-            // Case 1: New client or expired window - create new window
-            if (existingData == null || isTimeWindowExpired(existingData, currentTime)) {
-                shouldAllow.set(true); // First request in new window - always allow
-                return new ClientData(1, currentTime);
+    // Caller holds the record's monitor
+    private boolean allowAnchored(ClientData data, int permits, long currentTime) {
+        // Case 1: New client or expired window - start a new window
+        if (isTimeWindowExpired(data, currentTime)) {
+            if (!fitsEmptyWindow(permits)) {
+                return false;
             }
+            data.windowStartTime = currentTime;
+            data.requestCount = permits;
+            return true;
+        }
+
+        // Case 2: Existing window - check if we can allow more requests
+        if ((long) data.requestCount + permits <= maxRequests) {
+            data.requestCount += permits;
+            return true;
+        }
+        return false; // Over limit - deny and don't change data
+    }
+
+    private boolean allowAligned(String clientId, int permits) {
+        int window = windowIndex(timeProvider.getCurrentTimeMillis());
+        return BatchDecision.isAllowed(acquireAligned(clientId, permits, window));
+    }
+
+    private StateCell alignedStateFor(String clientId, int window) {
+        StateCell state = alignedWindows.find(clientId);
+        if (state == null) {
+            // Starts out in the previous window, so the first request opens a window
+            state = alignedWindows.findOrCreate(clientId, pack(window - 1, 0));
+            if (idleClients != null) {
+                idleClients.schedule(clientId, alignedWindows.idleToken(state), timeProvider.getCurrentTimeMillis() + timeWindowMillis);
+            }
+        }
+        return state;
+    }
 
-            // Case 2: Existing window - check if we can allow more requests
-            if (existingData.requestCount < maxRequests) {
-                shouldAllow.set(true); // Under limit - allow and increment
-                return new ClientData(existingData.requestCount + 1, existingData.windowStartTime);
+    /**
+     * The decision and the remaining count it leaves, as a BatchDecision long
+     */
+    private long acquireAligned(String clientId, int permits, int window) {
+        StateCell state = alignedStateFor(clientId, window);
+        int attempts = 0;
+        try {
+            while (true) {
+                attempts++;
+                long current = state.get();
+                if (current == StateCell.RETIRED) {
+                    // Expired under us: carry on with the client's new cell
+                    Thread.onSpinWait();
+                    state = alignedStateFor(clientId, window);
+                    continue;
+                }
+                long next;
+                if (windowOf(current) != window) {
+                    if (!fitsEmptyWindow(permits)) {
+                        return BatchDecision.encode(false, maxRequests);
+                    }
+                    next = pack(window, permits);
+                } else if ((long) countOf(current) + permits <= maxRequests) {
+                    next = current + permits;
+                } else {
+                    return BatchDecision.encode(false, Math.max(0, maxRequests - countOf(current)));
+                }
+                if (state.compareAndSet(current, next)) {
+                    return BatchDecision.encode(true, Math.max(0, maxRequests - countOf(next)));
+                }
+            }
+        } finally {
+            contentionMonitor.recordCasRetries(attempts - 1);
+        }
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+        long currentTime = timeProvider.getCurrentTimeMillis();
+
+        boolean allowed;
+        long remaining;
+        long resetAfter;
+        if (epochAligned) {
+            int window = windowIndex(currentTime);
+            long result = acquireAligned(clientId, permits, window);
+            allowed = BatchDecision.isAllowed(result);
+            remaining = BatchDecision.remaining(result);
+            resetAfter = remaining == maxRequests ? 0 : timeWindowMillis - Math.floorMod(currentTime, timeWindowMillis);
+        } else {
+            while (true) {
+                ClientData data = clientDataFor(clientId);
+                synchronized (data) {
+                    if (data.retired) {
+                        continue;
+                    }
+                    allowed = allowAnchored(data, permits, currentTime);
+                    boolean expired = isTimeWindowExpired(data, currentTime);
+                    remaining = expired ? maxRequests : Math.max(0, maxRequests - data.requestCount);
+                    resetAfter = expired ? 0 : data.windowStartTime + timeWindowMillis - currentTime;
+                }
+                break;
+            }
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        long retryAfter = allowed ? 0 : fitsEmptyWindow(permits) ? resetAfter : -1;
+        return decision.set(allowed, remaining, maxRequests, resetAfter, retryAfter);
+    }
+
+    /**
+     * Reads the clock once for the whole batch and reports remaining from the same update as the decision
+     */
+    @Override
+    public long[] allowRequests(String[] clientIds) {
+        long currentTime = timeProvider.getCurrentTimeMillis();
+        int window = windowIndex(currentTime);
+        long[] decisions = new long[clientIds.length];
+        for (int i = 0; i < clientIds.length; i++) {
+            if (epochAligned) {
+                decisions[i] = acquireAligned(clientIds[i], 1, window);
             } else {
-                shouldAllow.set(false); // Over limit - deny and don't change data
-                return existingData; // Return unchanged data
+                decisions[i] = acquireAnchored(clientIds[i], currentTime);
             }
-        });
+        }
+        return decisions;
+    }
 
-        boolean result = shouldAllow.get();
-        System.out.println((result ? "✅ ALLOWED" : "❌ DENIED") + ": " + clientId +
-                " - Current data: " + clientData.get(clientId));
+    private long acquireAnchored(String clientId, long currentTime) {
+        while (true) {
+            ClientData data = clientDataFor(clientId);
+            synchronized (data) {
+                if (!data.retired) {
+                    boolean allowed = allowAnchored(data, 1, currentTime);
+                    return BatchDecision.encode(allowed, Math.max(0, maxRequests - data.requestCount));
+                }
+            }
+        }
+    }
 
-        return result;
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        long currentTime = timeProvider.getCurrentTimeMillis();
+        if (epochAligned) {
+            StateCell state = alignedWindows.find(clientId);
+            if (state == null) {
+                return;
+            }
+            int window = windowIndex(currentTime);
+            while (true) {
+                long current = state.get();
+                if (windowOf(current) != window
+                        || state.compareAndSet(current, pack(window, Math.max(0, countOf(current) - permits)))) {
+                    return;
+                }
+            }
+        }
+        ClientData data = clientData.get(clientId);
+        if (data == null) {
+            return;
+        }
+        synchronized (data) {
+            if (!isTimeWindowExpired(data, currentTime)) {
+                data.requestCount = Math.max(0, data.requestCount - permits);
+            }
+        }
     }
 
     @Override
     public void reset(String clientId) {
         clientData.remove(clientId);
-        System.out.println("🔄 RESET: " + clientId);
+        alignedWindows.remove(clientId);
     }
 
     @Override
     public long getRemainingRequests(String clientId) {
+        long currentTime = timeProvider.getCurrentTimeMillis();
+        if (epochAligned) {
+            StateCell state = alignedWindows.find(clientId);
+            if (state == null) {
+                return maxRequests;
+            }
+            long current = state.get();
+            if (windowOf(current) != windowIndex(currentTime)) {
+                return maxRequests; // Window expired, full limit available
+            }
+            return Math.max(0, maxRequests - countOf(current));
+        }
+
         ClientData data = clientData.get(clientId);
         if (data == null) {
             return maxRequests;
         }
+        synchronized (data) {
+            if (isTimeWindowExpired(data, currentTime)) {
+                return maxRequests; // Window expired, full limit available
+            }
+            return Math.max(0, maxRequests - data.requestCount);
+        }
+    }
 
-        long currentTime = timeProvider.getCurrentTimeMillis();
-        if (isTimeWindowExpired(data, currentTime)) {
-            return maxRequests; // Window expired, full limit available
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
+
+    private long expire(String clientId, Object scheduled, long now) {
+        if (epochAligned) {
+            StateCell state = alignedWindows.find(clientId);
+            if (state == null || !scheduled.equals(alignedWindows.idleToken(state))) {
+                return IdleExpiryWheel.REMOVED; // Reset since; the new cell has its own entry
+            }
+            long current = state.get();
+            if (windowOf(current) == windowIndex(now) && countOf(current) > 0) {
+                return (Math.floorDiv(now, timeWindowMillis) + 1) * timeWindowMillis;
+            }
+            // A failed retire means a request just changed the window: look again next tick
+            return alignedWindows.retire(clientId, state, current) ? IdleExpiryWheel.REMOVED : now;
+        }
+        ClientData data = clientData.get(clientId);
+        if (data != scheduled) {
+            return IdleExpiryWheel.REMOVED;
+        }
+        synchronized (data) {
+            if (!isTimeWindowExpired(data, now)) {
+                return data.windowStartTime + timeWindowMillis;
+            }
+            // Requests already holding the record see it retired and look the client up again
+            data.retired = true;
+            clientData.remove(clientId, data);
+            return IdleExpiryWheel.REMOVED;
         }
+    }
+
+    public boolean isEpochAligned() {
+        return epochAligned;
+    }
 
-        return Math.max(0, maxRequests - data.requestCount);
+    /**
+     * The first single request of a window is always allowed, even with a limit of 0
+     */
+    private boolean fitsEmptyWindow(int permits) {
+        return permits <= Math.max(1, maxRequests);
     }
 
     private boolean isTimeWindowExpired(ClientData data, long currentTime) {
         return (currentTime - data.windowStartTime) >= timeWindowMillis;
     }
 
-    // Immutable ClientData for thread safety
-    private static class ClientData {
-        final int requestCount;
-        final long windowStartTime;
+    /**
+     * Low 32 bits of the window number. Two different windows only look the same to a client
+     * that has been idle for an exact multiple of 2^32 windows.
+     */
+    private int windowIndex(long currentTime) {
+        return (int) Math.floorDiv(currentTime, timeWindowMillis);
+    }
+
+    private static long pack(int window, int count) {
+        return ((long) window << 32) | (count & 0xFFFFFFFFL);
+    }
+
+    private static int windowOf(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int countOf(long state) {
+        return (int) state;
+    }
+
+    // Mutable per-client window, guarded by its own monitor
+    private static final class ClientData {
+        long windowStartTime;
+        int requestCount;
+        // Set once the record has been expired and removed from the map
+        boolean retired;
 
-        ClientData(int requestCount, long windowStartTime) {
-            this.requestCount = requestCount;
+        ClientData(long windowStartTime) {
             this.windowStartTime = windowStartTime;
         }
 
@@ -95,4 +407,4 @@ public class FixedWindowStrategy implements RateLimitingStrategy {
             return "ClientData{count=" + requestCount + ", windowStart=" + windowStartTime + "}";
         }
     }
-}
\ No newline at end of file
+}
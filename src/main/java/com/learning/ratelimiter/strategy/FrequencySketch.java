@@ -0,0 +1,77 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.store.ClientFingerprint;
+
+/**
+ * Approximate popularity of client ids: a count-min sketch of 4-bit counters, sixteen to a long.
+ *
+ * Each id counts in four counters picked by different hashes and its frequency is the smallest of them,
+ * so collisions can only overestimate. Once the sketch has counted ten times as many hits as it is sized
+ * for, every counter is halved, so popularity fades and a client has to keep coming back to stay popular.
+ * Not thread-safe; the owner guards it.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedClients) {
+        int size = Integer.highestOneBit(Math.max(2, Math.min(expectedClients, 1 << 30)) * 2 - 1);
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * size);
+    }
+
+    void increment(String clientId) {
+        long hash = ClientFingerprint.of(clientId);
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i), offsetOf(hash, i));
+        }
+        if (added && ++additions >= sampleSize) {
+            halve();
+        }
+    }
+
+    int frequency(String clientId) {
+        long hash = ClientFingerprint.of(clientId);
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xF));
+        }
+        return frequency;
+    }
+
+    private boolean incrementAt(int index, int offset) {
+        long mask = 0xFL << offset;
+        if ((table[index] & mask) == mask) {
+            return false;
+        }
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    private void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(long hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    // Which of the long's sixteen 4-bit counters, as a bit offset
+    private static int offsetOf(long hash, int i) {
+        return (int) ((hash >>> (i * 4 + 40)) & 0xF) << 2;
+    }
+}
@@ -0,0 +1,240 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.ClientStateStore;
+import com.learning.ratelimiter.store.HeapClientStateStore;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
+import com.learning.ratelimiter.store.StateCell;
+
+/**
+ * Generic cell rate algorithm: token bucket semantics with a single long of state per client.
+ *
+ * Each client stores its theoretical arrival time (TAT), the time at which its bucket would be full again.
+ * A request pushes the TAT one emission interval (timeWindow / maxRequests) into the future and is allowed
+ * if that leaves the TAT no more than a full burst (maxRequests intervals) ahead of now. The update is one
+ * CAS, with no lock and no bucket object.
+ *
+ * Times are kept in units of 1/maxRequests ms, counted from when the strategy was created, so the
+ * emission interval is exactly timeWindow units and no rounding creeps in for limits that don't
+ * divide the window evenly.
+ *
+ * With idle expiry a client is dropped once its TAT is behind now, which is exactly the state of a
+ * client that has never been seen.
+ */
+public class GcraStrategy implements RateLimitingStrategy {
+
+    private final int maxRequests;
+    private final long timeWindowMillis;
+    private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
+    private final ClientStateStore theoreticalArrivalTimes;
+    private final long epochMillis;
+    // Emission interval and burst tolerance in scaled units
+    private final long emissionInterval;
+    private final long burstTolerance;
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
+
+    public GcraStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                        ContentionMonitor contentionMonitor, ClientStateStore stateStore, boolean idleExpiry) {
+        this.theoreticalArrivalTimes = stateStore;
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
+        this.maxRequests = maxRequests;
+        this.timeWindowMillis = timeWindowMillis;
+        this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
+        this.epochMillis = timeProvider.getCurrentTimeMillis();
+        this.emissionInterval = timeWindowMillis;
+        this.burstTolerance = timeWindowMillis * maxRequests;
+    }
+
+    public GcraStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                        ContentionMonitor contentionMonitor, ClientStateStore stateStore) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, stateStore, false);
+    }
+
+    public GcraStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                        ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, new HeapClientStateStore());
+    }
+
+    public GcraStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public GcraStrategy(int maxRequests, long timeWindowMillis) {
+        this(maxRequests, timeWindowMillis, new SystemTimeProvider());
+    }
+
+    @Override
+    public boolean allowRequest(String clientId) {
+        return allowRequest(clientId, 1);
+    }
+
+    /**
+     * permits requests push the TAT permits emission intervals ahead
+     */
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        if (permits > maxRequests) {
+            return false;
+        }
+        StateCell tat = tatFor(clientId);
+        long now = scaledNow();
+        return acquire(clientId, tat, now, permits) - now <= burstTolerance;
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        if (permits > maxRequests) {
+            return decision.set(false, getRemainingRequests(clientId), maxRequests, getResetMillis(clientId), -1);
+        }
+        StateCell tat = tatFor(clientId);
+        long now = scaledNow();
+        long candidate = acquire(clientId, tat, now, permits);
+        boolean allowed = candidate - now <= burstTolerance;
+        // The stored TAT is the candidate when allowed, and what it was pushed from when denied
+        long backlog = Math.max(0, (allowed ? candidate : candidate - emissionInterval * permits) - now);
+        long remaining = Math.max(0, (burstTolerance - backlog) / emissionInterval);
+        long retryAfter = allowed ? 0 : ceilToMillis(candidate - burstTolerance - now);
+        return decision.set(allowed, remaining, maxRequests, ceilToMillis(backlog), retryAfter);
+    }
+
+    /**
+     * Runs the CAS loop and returns the candidate TAT it settled on: stored if it was within the
+     * burst tolerance of now, rejected otherwise
+     */
+    private long acquire(String clientId, StateCell tat, long now, int permits) {
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        long newTat;
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            long current = tat.get();
+            if (current == StateCell.RETIRED) {
+                // Expired under us: carry on with the client's new cell
+                Thread.onSpinWait();
+                tat = tatFor(clientId);
+                continue;
+            }
+            newTat = Math.max(current, now) + emissionInterval * permits;
+            if (newTat - now > burstTolerance || tat.compareAndSet(current, newTat)) {
+                break;
+            }
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCasRetries(attempts - 1);
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        return newTat;
+    }
+
+    /**
+     * Pulls the TAT back by the released emission intervals, but not behind now
+     */
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        StateCell tat = theoreticalArrivalTimes.find(clientId);
+        if (tat == null) {
+            return;
+        }
+        long now = scaledNow();
+        while (true) {
+            long current = tat.get();
+            if (current <= now || current == StateCell.RETIRED
+                    || tat.compareAndSet(current, Math.max(now, current - emissionInterval * permits))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void reset(String clientId) {
+        theoreticalArrivalTimes.remove(clientId);
+    }
+
+    @Override
+    public long getRemainingRequests(String clientId) {
+        StateCell tat = theoreticalArrivalTimes.find(clientId);
+        if (tat == null) {
+            return maxRequests;
+        }
+        long backlog = Math.max(0, tat.get() - scaledNow());
+        return Math.max(0, (burstTolerance - backlog) / emissionInterval);
+    }
+
+    /**
+     * Milliseconds until the next request from this client would be allowed, 0 if it would be allowed now
+     */
+    public long getRetryAfterMillis(String clientId) {
+        StateCell tat = theoreticalArrivalTimes.find(clientId);
+        if (tat == null) {
+            return 0;
+        }
+        long wait = tat.get() + emissionInterval - burstTolerance - scaledNow();
+        return wait <= 0 ? 0 : ceilToMillis(wait);
+    }
+
+    /**
+     * Milliseconds until this client is back to a full burst
+     */
+    public long getResetMillis(String clientId) {
+        StateCell tat = theoreticalArrivalTimes.find(clientId);
+        if (tat == null) {
+            return 0;
+        }
+        long backlog = tat.get() - scaledNow();
+        return backlog <= 0 ? 0 : ceilToMillis(backlog);
+    }
+
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
+
+    private long expire(String clientId, Object scheduled, long nowMillis) {
+        StateCell tat = theoreticalArrivalTimes.find(clientId);
+        if (tat == null || !scheduled.equals(theoreticalArrivalTimes.idleToken(tat))) {
+            return IdleExpiryWheel.REMOVED; // Reset since; the new cell has its own entry
+        }
+        long current = tat.get();
+        if (current <= scaledNow()) {
+            // A failed retire means a request just moved the TAT: look again next tick
+            return theoreticalArrivalTimes.retire(clientId, tat, current) ? IdleExpiryWheel.REMOVED : nowMillis;
+        }
+        return epochMillis + ceilToMillis(current);
+    }
+
+    private StateCell tatFor(String clientId) {
+        StateCell tat = theoreticalArrivalTimes.find(clientId);
+        if (tat != null) {
+            return tat;
+        }
+        // A new client starts with an empty backlog: its TAT is the distant past
+        tat = theoreticalArrivalTimes.findOrCreate(clientId, Long.MIN_VALUE / 2);
+        if (idleClients != null) {
+            idleClients.schedule(clientId, theoreticalArrivalTimes.idleToken(tat), timeProvider.getCurrentTimeMillis() + timeWindowMillis);
+        }
+        return tat;
+    }
+
+    private long scaledNow() {
+        return (timeProvider.getCurrentTimeMillis() - epochMillis) * maxRequests;
+    }
+
+    private long ceilToMillis(long scaled) {
+        return (scaled + maxRequests - 1) / maxRequests;
+    }
+
+    public long getTimeWindowMillis() {
+        return timeWindowMillis;
+    }
+}
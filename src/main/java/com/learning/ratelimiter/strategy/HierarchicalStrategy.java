@@ -0,0 +1,137 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+
+import java.util.List;
+
+/**
+ * Several limits decided as one: for example a client's limit on one endpoint, the same client's budget
+ * across a group of endpoints, and a ceiling on the endpoint's traffic from all clients together.
+ *
+ * Levels are tried in order and each takes its permits as it goes. When one denies, the levels before it
+ * release theirs, so a denied request is not charged anywhere. Put the most selective level first: it
+ * denies most often, and the shared levels after it then only see requests that got through it.
+ * Per-client levels are keyed by the client id; the others count every client under one shared key.
+ */
+public class HierarchicalStrategy implements RateLimitingStrategy {
+
+    // Key under which levels that are not per client count everyone
+    static final String ALL_CLIENTS = "*";
+
+    private final Level[] levels;
+
+    public HierarchicalStrategy(List<Level> levels) {
+        if (levels.isEmpty()) {
+            throw new RateLimiterExceptions.ConfigurationException("A hierarchical limit needs at least one level");
+        }
+        this.levels = levels.toArray(new Level[0]);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId) {
+        return allowRequest(clientId, 1);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        for (int i = 0; i < levels.length; i++) {
+            Level level = levels[i];
+            if (!level.strategy().allowRequest(level.keyFor(clientId), permits)) {
+                releaseLevels(clientId, permits, i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An allowed decision reports the level with the fewest permits left; a denied one reports the
+     * level that denied it
+     */
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        long remaining = Long.MAX_VALUE;
+        long limit = -1;
+        long resetAfter = -1;
+        for (int i = 0; i < levels.length; i++) {
+            Level level = levels[i];
+            level.strategy().tryAcquire(level.keyFor(clientId), permits, decision);
+            if (!decision.isAllowed()) {
+                releaseLevels(clientId, permits, i);
+                return decision;
+            }
+            if (decision.getRemaining() < remaining) {
+                remaining = decision.getRemaining();
+                limit = decision.getLimit();
+                resetAfter = decision.getResetAfterMillis();
+            }
+        }
+        return decision.set(true, remaining, limit, resetAfter, 0);
+    }
+
+    /**
+     * Gives the permits back on every level
+     */
+    @Override
+    public void release(String clientId, int permits) {
+        releaseLevels(clientId, permits, levels.length);
+    }
+
+    /**
+     * Only the per-client levels: the shared ones hold other clients' requests too
+     */
+    @Override
+    public void reset(String clientId) {
+        for (Level level : levels) {
+            if (level.perClient()) {
+                level.strategy().reset(clientId);
+            }
+        }
+    }
+
+    @Override
+    public long getRemainingRequests(String clientId) {
+        long remaining = Long.MAX_VALUE;
+        for (Level level : levels) {
+            remaining = Math.min(remaining, level.strategy().getRemainingRequests(level.keyFor(clientId)));
+        }
+        return remaining;
+    }
+
+    /**
+     * Shared levels may be swept again through another endpoint's hierarchy; a sweep with nothing
+     * due is cheap
+     */
+    @Override
+    public int expireIdleClients() {
+        int expired = 0;
+        for (Level level : levels) {
+            expired += level.strategy().expireIdleClients();
+        }
+        return expired;
+    }
+
+    public List<Level> getLevels() {
+        return List.of(levels);
+    }
+
+    // Levels [0, end) allowed the request; give their permits back
+    private void releaseLevels(String clientId, int permits, int end) {
+        for (int i = 0; i < end; i++) {
+            levels[i].strategy().release(levels[i].keyFor(clientId), permits);
+        }
+    }
+
+    /**
+     * One limit in the hierarchy. perClient levels count each client separately, the others count
+     * all clients together.
+     */
+    public record Level(String name, RateLimitingStrategy strategy, boolean perClient) {
+
+        String keyFor(String clientId) {
+            return perClient ? clientId : ALL_CLIENTS;
+        }
+    }
+}
@@ -4,8 +4,9 @@ package com.learning.ratelimiter.strategy;
 
 import com.learning.ratelimiter.core.TimeProvider;
 import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class LeakyBucketStrategy implements RateLimitingStrategy {
@@ -13,13 +14,31 @@ public class LeakyBucketStrategy implements RateLimitingStrategy {
     private final int maxRequests;
     private final long timeWindowMillis;
     private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
     private final ConcurrentHashMap<String, LeakyBucket> clientBuckets;
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
 
     public LeakyBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public LeakyBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+            ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, false);
+    }
+
+    /**
+     * @param idleExpiry drop a client's bucket once it has drained (see expireIdleClients)
+     */
+    public LeakyBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+            ContentionMonitor contentionMonitor, boolean idleExpiry) {
         this.maxRequests = maxRequests;
         this.timeWindowMillis = timeWindowMillis;
         this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
         this.clientBuckets = new ConcurrentHashMap<>();
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
     }
 
     public LeakyBucketStrategy(int maxRequests, long timeWindowMillis) {
@@ -31,6 +50,7 @@ public class LeakyBucketStrategy implements RateLimitingStrategy {
         final AtomicLong lastLeakTime;     // When bucket last leaked
         final long capacity;               // Bucket size (max requests)
         final double leakRate;             // Volume leaked per millisecond
+        boolean retired;                   // Set under the bucket's monitor once expired and removed from the map
 
         LeakyBucket(long capacity, double leakRate, long currentTime) {
             this.currentVolume = new AtomicLong(0);  // Start empty
@@ -49,39 +69,128 @@ public class LeakyBucketStrategy implements RateLimitingStrategy {
 
     @Override
     public boolean allowRequest(String clientId) {
-        AtomicBoolean shouldAllow = new AtomicBoolean(false);
+        return allowRequest(clientId, 1);
+    }
 
-        clientBuckets.compute(clientId, (key, leakyBucket) -> {
-            long currentTime = timeProvider.getCurrentTimeMillis();
-            double leakRate = (double) maxRequests / timeWindowMillis; // Volume leaked per ms
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        LeakyBucket leakyBucket = bucketFor(clientId);
+
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
 
-            // Create new bucket if client doesn't exist
-            if (leakyBucket == null) {
-                leakyBucket = new LeakyBucket(maxRequests, leakRate, currentTime);
+        boolean allowed;
+        while (true) {
+            synchronized (leakyBucket) {
+                if (!leakyBucket.retired) {
+                    allowed = admit(leakyBucket, permits);
+                    break;
+                }
             }
+            leakyBucket = bucketFor(clientId);
+        }
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+
+        return allowed;
+    }
+
+    // Caller holds the bucket's monitor
+    private boolean admit(LeakyBucket leakyBucket, int permits) {
+        // Leak water from bucket based on time elapsed
+        leakWater(leakyBucket, timeProvider.getCurrentTimeMillis());
 
-            // Leak water from bucket based on time elapsed
-            leakWater(leakyBucket, currentTime);
-
-            // Try to add 1 request to bucket
-            long currentVolume = leakyBucket.currentVolume.get();
-            if (currentVolume < leakyBucket.capacity) {
-                // Bucket has space - add request
-                leakyBucket.currentVolume.incrementAndGet();
-                shouldAllow.set(true);
-                System.out.println("✅ ALLOWED: " + clientId + " - Added to bucket. Volume: " +
-                        (currentVolume + 1) + "/" + leakyBucket.capacity);
-            } else {
-                // Bucket is full - deny request
-                shouldAllow.set(false);
-                System.out.println("❌ DENIED: " + clientId + " - Bucket overflow! Volume: " +
-                        currentVolume + "/" + leakyBucket.capacity);
+        // Try to add the request's permits to bucket
+        long currentVolume = leakyBucket.currentVolume.get();
+        if (currentVolume + permits <= leakyBucket.capacity) {
+            // Bucket has space - add request
+            leakyBucket.currentVolume.addAndGet(permits);
+            return true;
+        }
+        // Bucket is full - deny request
+        return false;
+    }
+
+    /**
+     * Leaking happens in whole units from the last leak time, so the reset and retry times are
+     * estimates from the leak rate rather than exact
+     */
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        double leakRate = (double) maxRequests / timeWindowMillis;
+        LeakyBucket leakyBucket = bucketFor(clientId);
+
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        long volume;
+        while (true) {
+            synchronized (leakyBucket) {
+                if (!leakyBucket.retired) {
+                    leakWater(leakyBucket, timeProvider.getCurrentTimeMillis());
+                    volume = leakyBucket.currentVolume.get();
+                    allowed = volume + permits <= leakyBucket.capacity;
+                    if (allowed) {
+                        volume = leakyBucket.currentVolume.addAndGet(permits);
+                    }
+                    break;
+                }
             }
+            leakyBucket = bucketFor(clientId);
+        }
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
 
-            return leakyBucket;
-        });
+        long resetAfter = (long) Math.ceil(volume / leakRate);
+        long retryAfter = allowed ? 0 : permits > maxRequests ? -1
+                : (long) Math.ceil((volume + permits - maxRequests) / leakRate);
+        return decision.set(allowed, Math.max(0, maxRequests - volume), maxRequests, resetAfter, retryAfter);
+    }
 
-        return shouldAllow.get();
+    private LeakyBucket bucketFor(String clientId) {
+        LeakyBucket bucket = clientBuckets.get(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        return clientBuckets.computeIfAbsent(clientId, this::newBucket);
+    }
+
+    // Runs inside computeIfAbsent(), once per bucket created
+    private LeakyBucket newBucket(String clientId) {
+        long currentTime = timeProvider.getCurrentTimeMillis();
+        LeakyBucket bucket = new LeakyBucket(maxRequests, (double) maxRequests / timeWindowMillis, currentTime);
+        if (idleClients != null) {
+            idleClients.schedule(clientId, bucket, currentTime + timeWindowMillis);
+        }
+        return bucket;
+    }
+
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
+
+    private long expire(String clientId, Object scheduled, long now) {
+        LeakyBucket bucket = clientBuckets.get(clientId);
+        if (bucket != scheduled) {
+            return IdleExpiryWheel.REMOVED; // Reset since; the new bucket has its own entry
+        }
+        synchronized (bucket) {
+            leakWater(bucket, now);
+            long volume = bucket.currentVolume.get();
+            if (volume > 0) {
+                return now + (long) Math.ceil(volume / bucket.leakRate);
+            }
+            // Requests already holding the bucket see it retired and look the client up again
+            bucket.retired = true;
+            clientBuckets.remove(clientId, bucket);
+            return IdleExpiryWheel.REMOVED;
+        }
     }
 
     /**
@@ -100,30 +209,34 @@ public class LeakyBucketStrategy implements RateLimitingStrategy {
                 // Reduce current volume (but not below 0)
                 long currentVolume;
                 long newVolume;
+                int attempts = 0;
                 do {
+                    attempts++;
                     currentVolume = bucket.currentVolume.get();
                     newVolume = Math.max(0, currentVolume - volumeToLeak);
                 } while (!bucket.currentVolume.compareAndSet(currentVolume, newVolume));
+                contentionMonitor.recordCasRetries(attempts - 1);
 
                 // Update last leak time
                 bucket.lastLeakTime.set(currentTime);
-
-                if (volumeToLeak > 0) {
-                    System.out.println("💧 LEAK: Reduced volume by " + (currentVolume - newVolume) +
-                            ". New volume: " + newVolume);
-                }
             }
         }
     }
 
     @Override
-    public void reset(String clientId) {
-        LeakyBucket removed = clientBuckets.remove(clientId);
-        if (removed != null) {
-            System.out.println("🔄 RESET: " + clientId + " - Bucket removed");
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        LeakyBucket bucket = clientBuckets.get(clientId);
+        if (bucket != null) {
+            bucket.currentVolume.accumulateAndGet(permits, (volume, released) -> Math.max(0, volume - released));
         }
     }
 
+    @Override
+    public void reset(String clientId) {
+        clientBuckets.remove(clientId);
+    }
+
     @Override
     public long getRemainingRequests(String clientId) {
         LeakyBucket bucket = clientBuckets.get(clientId);
@@ -136,9 +249,6 @@ public class LeakyBucketStrategy implements RateLimitingStrategy {
         leakWater(bucket, currentTime);
 
         long remaining = bucket.capacity - bucket.currentVolume.get();
-        System.out.println("📊 REMAINING: " + clientId + " - " + remaining +
-                " requests available (current volume: " + bucket.currentVolume.get() + ")");
-
         return Math.max(0, remaining);
     }
 
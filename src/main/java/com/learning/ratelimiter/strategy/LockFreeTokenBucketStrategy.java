@@ -0,0 +1,221 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.ClientStateStore;
+import com.learning.ratelimiter.store.HeapClientStateStore;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
+import com.learning.ratelimiter.store.StateCell;
+
+import static com.learning.ratelimiter.strategy.PackedBucketState.*;
+
+/**
+ * Token bucket whose tokens and last refill time are packed into one long per client in a ClientStateStore.
+ *
+ * A decision is a read, a refill computed from that snapshot, and one CAS to take a token; the store is
+ * only written when a client is first seen. Denials and getRemainingRequests never write, so a hot key
+ * that is being denied costs a single volatile read. Refill carries fractional tokens forward by only
+ * moving the refill time on by the time the whole tokens took.
+ *
+ * With idle expiry a client is dropped once its bucket has refilled, the state a new client starts in.
+ */
+public class LockFreeTokenBucketStrategy implements RateLimitingStrategy {
+
+    private final int maxRequests;
+    private final long timeWindowMillis;
+    private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
+    private final ClientStateStore clientBuckets;
+    private final long epochMillis;
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
+
+    public LockFreeTokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                                       ContentionMonitor contentionMonitor, ClientStateStore stateStore,
+                                       boolean idleExpiry) {
+        validate(maxRequests, timeWindowMillis);
+        this.clientBuckets = stateStore;
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
+        this.maxRequests = maxRequests;
+        this.timeWindowMillis = timeWindowMillis;
+        this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
+        this.epochMillis = timeProvider.getCurrentTimeMillis();
+    }
+
+    public LockFreeTokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                                       ContentionMonitor contentionMonitor, ClientStateStore stateStore) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, stateStore, false);
+    }
+
+    public LockFreeTokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                                       ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, new HeapClientStateStore());
+    }
+
+    public LockFreeTokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public LockFreeTokenBucketStrategy(int maxRequests, long timeWindowMillis) {
+        this(maxRequests, timeWindowMillis, new SystemTimeProvider());
+    }
+
+    @Override
+    public boolean allowRequest(String clientId) {
+        return allowRequest(clientId, 1);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        StateCell bucket = bucketFor(clientId);
+        return hasRoom(acquire(clientId, bucket, elapsedMillis(), permits), permits);
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        StateCell bucket = bucketFor(clientId);
+        long now = elapsedMillis();
+        long state = acquire(clientId, bucket, now, permits);
+        boolean allowed = hasRoom(state, permits);
+        long tokens = allowed ? level(state) - permits : level(state);
+        long resetAfter = Math.max(0, time(state) + millisFor(maxRequests - tokens, maxRequests, timeWindowMillis) - now);
+        long retryAfter = allowed ? 0 : permits > maxRequests ? -1
+                : Math.max(0, time(state) + millisFor(permits - level(state), maxRequests, timeWindowMillis) - now);
+        return decision.set(allowed, tokens, maxRequests, resetAfter, retryAfter);
+    }
+
+    /**
+     * Runs the CAS loop and returns the refilled snapshot it decided on; the request was allowed
+     * if that snapshot had room for the permits
+     */
+    private long acquire(String clientId, StateCell bucket, long now, int permits) {
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        long state;
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            long current = bucket.get();
+            if (current == StateCell.RETIRED) {
+                // Expired under us: carry on with the client's new cell
+                Thread.onSpinWait();
+                bucket = bucketFor(clientId);
+                continue;
+            }
+            state = refill(current, now);
+            if (!hasRoom(state, permits)
+                    || bucket.compareAndSet(current, pack(level(state) - permits, time(state)))) {
+                break;
+            }
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCasRetries(attempts - 1);
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        return state;
+    }
+
+    private boolean hasRoom(long state, int permits) {
+        return level(state) >= permits;
+    }
+
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        StateCell bucket = clientBuckets.find(clientId);
+        if (bucket == null) {
+            return;
+        }
+        long now = elapsedMillis();
+        while (true) {
+            long current = bucket.get();
+            if (current == StateCell.RETIRED) {
+                return;
+            }
+            long state = refill(current, now);
+            long next = pack(Math.min(maxRequests, level(state) + permits), time(state));
+            if (current == next || bucket.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void reset(String clientId) {
+        clientBuckets.remove(clientId);
+    }
+
+    @Override
+    public long getRemainingRequests(String clientId) {
+        StateCell bucket = clientBuckets.find(clientId);
+        long current = bucket == null ? StateCell.RETIRED : bucket.get();
+        if (current == StateCell.RETIRED) {
+            return maxRequests;
+        }
+        return level(refill(current, elapsedMillis()));
+    }
+
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
+
+    private long expire(String clientId, Object scheduled, long nowMillis) {
+        StateCell bucket = clientBuckets.find(clientId);
+        if (bucket == null || !scheduled.equals(clientBuckets.idleToken(bucket))) {
+            return IdleExpiryWheel.REMOVED; // Reset since; the new cell has its own entry
+        }
+        long current = bucket.get();
+        long state = refill(current, elapsedMillis());
+        if (level(state) == maxRequests) {
+            // A failed retire means a request just changed the bucket: look again next tick
+            return clientBuckets.retire(clientId, bucket, current) ? IdleExpiryWheel.REMOVED : nowMillis;
+        }
+        return epochMillis + time(state) + millisFor(maxRequests - level(state), maxRequests, timeWindowMillis);
+    }
+
+    private StateCell bucketFor(String clientId) {
+        StateCell bucket = clientBuckets.find(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        bucket = clientBuckets.findOrCreate(clientId, pack(maxRequests, elapsedMillis()));
+        if (idleClients != null) {
+            idleClients.schedule(clientId, clientBuckets.idleToken(bucket), timeProvider.getCurrentTimeMillis() + timeWindowMillis);
+        }
+        return bucket;
+    }
+
+    /**
+     * The state as it would be at now, without writing it back
+     */
+    private long refill(long state, long now) {
+        long tokens = level(state);
+        long lastRefill = time(state);
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return state;
+        }
+        if (tokens == maxRequests || elapsed >= timeWindowMillis) {
+            return pack(maxRequests, now);
+        }
+        long newTokens = unitsFor(elapsed, maxRequests, timeWindowMillis);
+        if (newTokens == 0) {
+            return state;
+        }
+        if (tokens + newTokens >= maxRequests) {
+            return pack(maxRequests, now);
+        }
+        return pack(tokens + newTokens, lastRefill + millisFor(newTokens, maxRequests, timeWindowMillis));
+    }
+
+    private long elapsedMillis() {
+        return Math.min(MAX_TIME, Math.max(0, timeProvider.getCurrentTimeMillis() - epochMillis));
+    }
+}
@@ -0,0 +1,62 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+
+/**
+ * Bucket level and last update time packed into one long, so a bucket can be read and
+ * replaced with a single CAS and never seen half-updated.
+ *
+ * Layout: the high 40 bits hold milliseconds since the strategy was created (about 34 years),
+ * the low 24 bits hold the level (tokens for a token bucket, volume for a leaky bucket).
+ */
+final class PackedBucketState {
+
+    static final int LEVEL_BITS = 24;
+    static final long MAX_LEVEL = (1L << LEVEL_BITS) - 1;
+    static final long MAX_TIME = (1L << (Long.SIZE - LEVEL_BITS)) - 1;
+
+    private PackedBucketState() {
+    }
+
+    static long pack(long level, long time) {
+        return (time << LEVEL_BITS) | level;
+    }
+
+    static long level(long state) {
+        return state & MAX_LEVEL;
+    }
+
+    static long time(long state) {
+        return state >>> LEVEL_BITS;
+    }
+
+    /**
+     * Rejects limits the packed layout can't hold, or whose refill arithmetic could overflow
+     */
+    static void validate(int maxRequests, long timeWindowMillis) {
+        if (maxRequests < 0 || maxRequests > MAX_LEVEL) {
+            throw new RateLimiterExceptions.ConfigurationException(
+                    "Lock-free buckets support at most " + MAX_LEVEL + " requests per window, got " + maxRequests);
+        }
+        if (timeWindowMillis <= 0 || timeWindowMillis > Long.MAX_VALUE / Math.max(1, maxRequests)) {
+            throw new RateLimiterExceptions.ConfigurationException(
+                    "Unsupported time window for a lock-free bucket: " + timeWindowMillis + "ms");
+        }
+    }
+
+    /**
+     * Whole units that flow in (or out) over elapsed ms at maxRequests per timeWindowMillis.
+     * Callers pass elapsed below timeWindowMillis, where the product can't overflow.
+     */
+    static long unitsFor(long elapsed, int maxRequests, long timeWindowMillis) {
+        return elapsed * maxRequests / timeWindowMillis;
+    }
+
+    /**
+     * Time the given units took to flow, rounded up so the fractional remainder is carried
+     * into the next update instead of being handed out early.
+     */
+    static long millisFor(long units, int maxRequests, long timeWindowMillis) {
+        return maxRequests == 0 ? 0 : (units * timeWindowMillis + maxRequests - 1) / maxRequests;
+    }
+}
@@ -0,0 +1,242 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket on the nanosecond clock with integer fixed-point accounting, for high rates and short windows.
+ *
+ * The bucket holds credits rather than tokens: every nanosecond adds maxRequests credits and a token costs
+ * timeWindow (in ns) credits, so the refill rate is represented exactly and no fraction of a token is ever
+ * dropped between refills. There is no floating point on the decision path. Per-client state is two longs
+ * updated in place under the bucket's monitor. With idle expiry a client's bucket is dropped once it
+ * has refilled.
+ */
+public class PreciseTokenBucketStrategy implements RateLimitingStrategy {
+
+    private final int maxRequests;
+    private final long timeWindowNanos;
+    private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
+    private final ConcurrentHashMap<String, CreditBucket> clientBuckets = new ConcurrentHashMap<>();
+    // Credits per token and bucket capacity in credits
+    private final long tokenCost;
+    private final long capacity;
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
+
+    public PreciseTokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                                      ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, false);
+    }
+
+    public PreciseTokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+                                      ContentionMonitor contentionMonitor, boolean idleExpiry) {
+        this.timeWindowNanos = TimeUnit.MILLISECONDS.toNanos(timeWindowMillis);
+        if (maxRequests < 0 || timeWindowNanos <= 0 || timeWindowNanos > Long.MAX_VALUE / Math.max(1, maxRequests)) {
+            throw new RateLimiterExceptions.ConfigurationException(
+                    "Unsupported limit for a high-precision token bucket: " + maxRequests + " per " + timeWindowMillis + "ms");
+        }
+        this.maxRequests = maxRequests;
+        this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
+        this.tokenCost = timeWindowNanos;
+        this.capacity = tokenCost * maxRequests;
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
+    }
+
+    public PreciseTokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public PreciseTokenBucketStrategy(int maxRequests, long timeWindowMillis) {
+        this(maxRequests, timeWindowMillis, new SystemTimeProvider());
+    }
+
+    @Override
+    public boolean allowRequest(String clientId) {
+        return allowRequest(clientId, 1);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        if (permits > maxRequests) {
+            return false;
+        }
+        long cost = tokenCost * permits;
+        CreditBucket bucket = bucketFor(clientId);
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        while (true) {
+            synchronized (bucket) {
+                if (!bucket.retired) {
+                    refill(bucket, timeProvider.getCurrentTimeNanos());
+                    allowed = bucket.credits >= cost;
+                    if (allowed) {
+                        bucket.credits -= cost;
+                    }
+                    break;
+                }
+            }
+            bucket = bucketFor(clientId);
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        return allowed;
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        long cost = tokenCost * (long) Math.min(permits, maxRequests);
+        CreditBucket bucket = bucketFor(clientId);
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        long credits;
+        while (true) {
+            synchronized (bucket) {
+                if (!bucket.retired) {
+                    refill(bucket, timeProvider.getCurrentTimeNanos());
+                    allowed = permits <= maxRequests && bucket.credits >= cost;
+                    if (allowed) {
+                        bucket.credits -= cost;
+                    }
+                    credits = bucket.credits;
+                    break;
+                }
+            }
+            bucket = bucketFor(clientId);
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        long retryAfter = allowed ? 0 : permits > maxRequests ? -1 : millisToRefill(cost - credits);
+        return decision.set(allowed, credits / tokenCost, maxRequests, millisToRefill(capacity - credits), retryAfter);
+    }
+
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        CreditBucket bucket = clientBuckets.get(clientId);
+        if (bucket == null) {
+            return;
+        }
+        long credits = tokenCost * (long) Math.min(permits, maxRequests);
+        synchronized (bucket) {
+            refill(bucket, timeProvider.getCurrentTimeNanos());
+            bucket.credits = Math.min(capacity, bucket.credits + credits);
+        }
+    }
+
+    @Override
+    public void reset(String clientId) {
+        clientBuckets.remove(clientId);
+    }
+
+    @Override
+    public long getRemainingRequests(String clientId) {
+        CreditBucket bucket = clientBuckets.get(clientId);
+        if (bucket == null) {
+            return maxRequests;
+        }
+        synchronized (bucket) {
+            refill(bucket, timeProvider.getCurrentTimeNanos());
+            return bucket.credits / tokenCost;
+        }
+    }
+
+    private CreditBucket bucketFor(String clientId) {
+        CreditBucket bucket = clientBuckets.get(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        return clientBuckets.computeIfAbsent(clientId, this::newBucket);
+    }
+
+    private CreditBucket newBucket(String clientId) {
+        CreditBucket bucket = new CreditBucket(capacity, timeProvider.getCurrentTimeNanos());
+        if (idleClients != null) {
+            idleClients.schedule(clientId, bucket,
+                    timeProvider.getCurrentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(timeWindowNanos));
+        }
+        return bucket;
+    }
+
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
+
+    private long expire(String clientId, Object scheduled, long nowMillis) {
+        CreditBucket bucket = clientBuckets.get(clientId);
+        if (bucket != scheduled) {
+            return IdleExpiryWheel.REMOVED; // Reset since; the new bucket has its own entry
+        }
+        synchronized (bucket) {
+            refill(bucket, timeProvider.getCurrentTimeNanos());
+            if (bucket.credits < capacity) {
+                return nowMillis + millisToRefill(capacity - bucket.credits);
+            }
+            // Requests already holding the bucket see it retired and look the client up again
+            bucket.retired = true;
+            clientBuckets.remove(clientId, bucket);
+            return IdleExpiryWheel.REMOVED;
+        }
+    }
+
+    // Time for the refill to add the missing credits, rounded up to whole milliseconds
+    private long millisToRefill(long missingCredits) {
+        if (missingCredits <= 0 || maxRequests == 0) {
+            return 0;
+        }
+        long nanos = (missingCredits + maxRequests - 1) / maxRequests;
+        return (nanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // Caller holds the bucket's monitor
+    private void refill(CreditBucket bucket, long now) {
+        long elapsed = now - bucket.lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        bucket.lastRefillNanos = now;
+        // Past a full window the bucket is full anyway; capping first keeps elapsed * maxRequests in range
+        if (elapsed >= timeWindowNanos) {
+            bucket.credits = capacity;
+            return;
+        }
+        bucket.credits = Math.min(capacity, bucket.credits + elapsed * maxRequests);
+    }
+
+    // Mutable per-client state, guarded by its own monitor
+    private static final class CreditBucket {
+        long credits;
+        long lastRefillNanos;
+        // Set once the bucket has been expired and removed from the map
+        boolean retired;
+
+        CreditBucket(long credits, long lastRefillNanos) {
+            this.credits = credits;
+            this.lastRefillNanos = lastRefillNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "CreditBucket{credits=" + credits + ", lastRefillNanos=" + lastRefillNanos + "}";
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.learning.ratelimiter.strategy;
+
+/**
+ * Everything a caller needs about one decision, filled in by RateLimitingStrategy.tryAcquire from the
+ * same update that made the decision. Mutable so a caller can reuse one instance per thread.
+ *
+ * Times are durations from the moment of the decision; -1 means the strategy can't tell.
+ */
+public final class RateLimitDecision {
+
+    private boolean allowed;
+    private long remaining;
+    private long limit;
+    private long resetAfterMillis;
+    private long retryAfterMillis;
+
+    public RateLimitDecision set(boolean allowed, long remaining, long limit, long resetAfterMillis, long retryAfterMillis) {
+        this.allowed = allowed;
+        this.remaining = remaining;
+        this.limit = limit;
+        this.resetAfterMillis = resetAfterMillis;
+        this.retryAfterMillis = retryAfterMillis;
+        return this;
+    }
+
+    public boolean isAllowed() { return allowed; }
+
+    /**
+     * Requests still available right after this decision
+     */
+    public long getRemaining() { return remaining; }
+
+    public long getLimit() { return limit; }
+
+    /**
+     * Until the client is back to its full limit
+     */
+    public long getResetAfterMillis() { return resetAfterMillis; }
+
+    /**
+     * Until a request like this one could be allowed; 0 when it was allowed
+     */
+    public long getRetryAfterMillis() { return retryAfterMillis; }
+
+    /**
+     * The allowed bit and remaining count as a BatchDecision long
+     */
+    public long toBatchDecision() {
+        return BatchDecision.encode(allowed, remaining);
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitDecision{allowed=" + allowed + ", remaining=" + remaining + ", limit=" + limit
+                + ", resetAfterMillis=" + resetAfterMillis + ", retryAfterMillis=" + retryAfterMillis + "}";
+    }
+}
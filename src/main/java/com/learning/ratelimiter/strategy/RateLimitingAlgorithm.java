@@ -4,6 +4,9 @@ public enum RateLimitingAlgorithm {
     FIXED_WINDOW,
     SLIDING_WINDOW,
     LEAKY_BUCKET,
-    TOKEN_BUCKET
+    TOKEN_BUCKET,
+    SLIDING_WINDOW_COUNTER,
+    GCRA,
+    COUNT_MIN_SKETCH
 }
 
@@ -4,4 +4,58 @@ public interface RateLimitingStrategy {
     boolean allowRequest(String clientId);
     void reset(String ClientId);
     long getRemainingRequests(String ClientId);
+
+    /**
+     * Take permits units in one decision: either all of them are granted or none are.
+     * A request costing more than the limit is always denied.
+     */
+    boolean allowRequest(String clientId, int permits);
+
+    /**
+     * Take permits and describe the outcome in decision, all from one step. The default falls back to
+     * allowRequest + getRemainingRequests and leaves the limit and times unknown (-1); strategies
+     * override it to report them consistently with the decision.
+     */
+    default RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        boolean allowed = allowRequest(clientId, permits);
+        return decision.set(allowed, getRemainingRequests(clientId), -1, -1, allowed ? 0 : -1);
+    }
+
+    /**
+     * Give back permits an allowed request took, when a decision made alongside it has to be rolled back.
+     * Best effort: if the client's state has moved on since (a new window, a refill) the permits are only
+     * returned as far as they still count, and never past the limit. Required, so a rollback (see
+     * HierarchicalStrategy) can never fail halfway through with permits already taken.
+     */
+    void release(String clientId, int permits);
+
+    /**
+     * One decision per client id, in order, each encoded with BatchDecision (allowed bit plus remaining).
+     * Each comes from a single tryAcquire, so remaining is the one that went with the decision.
+     * Implementations can override this to share work, such as clock reads, across the batch.
+     */
+    default long[] allowRequests(String[] clientIds) {
+        long[] decisions = new long[clientIds.length];
+        RateLimitDecision decision = new RateLimitDecision();
+        for (int i = 0; i < clientIds.length; i++) {
+            decisions[i] = tryAcquire(clientIds[i], 1, decision).toBatchDecision();
+        }
+        return decisions;
+    }
+
+    /**
+     * Drop the clients whose state is back to a full quota, so memory tracks active clients rather than
+     * every client ever seen. Meant to be called periodically from one background thread; returns how
+     * many clients were dropped. A dropped client that comes back starts from a fresh state, which is
+     * the state it had anyway.
+     */
+    default int expireIdleClients() {
+        return 0;
+    }
+
+    static void checkPermits(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be at least 1, got " + permits);
+        }
+    }
 }
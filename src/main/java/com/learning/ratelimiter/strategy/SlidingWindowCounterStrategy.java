@@ -0,0 +1,328 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.SystemTimeProvider;
+import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate sliding window built from counters instead of timestamps.
+ *
+ * The window is split into subBuckets buckets of timeWindow / subBuckets ms, aligned to the clock.
+ * A client keeps one count per bucket for the buckets the window currently covers plus the one it is
+ * sliding out of. The request count estimate is the full buckets plus the oldest bucket weighted by how
+ * much of it is still inside the window, which assumes requests were spread evenly over that bucket.
+ *
+ * With 1 sub-bucket this is the classic current + weighted previous window counter; more sub-buckets
+ * shrink the part of the window that is estimated rather than counted. Per-client memory is
+ * subBuckets + 1 ints regardless of maxRequests. With idle expiry a client's counter is dropped once
+ * every bucket it counted in has slid out of the window.
+ */
+public class SlidingWindowCounterStrategy implements RateLimitingStrategy {
+
+    private final int maxRequests;
+    private final long timeWindowMillis;
+    private final int subBuckets;
+    private final long bucketMillis;
+    private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
+    private final ConcurrentHashMap<String, WindowCounter> clientCounters = new ConcurrentHashMap<>();
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
+
+    public SlidingWindowCounterStrategy(int maxRequests, long timeWindowMillis, int subBuckets,
+                                        TimeProvider timeProvider, ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, subBuckets, timeProvider, contentionMonitor, false);
+    }
+
+    public SlidingWindowCounterStrategy(int maxRequests, long timeWindowMillis, int subBuckets,
+                                        TimeProvider timeProvider, ContentionMonitor contentionMonitor,
+                                        boolean idleExpiry) {
+        if (subBuckets < 1) {
+            throw new RateLimiterExceptions.ConfigurationException(
+                    "Sliding window counter needs at least 1 sub-bucket, got " + subBuckets);
+        }
+        if (timeWindowMillis < subBuckets) {
+            throw new RateLimiterExceptions.ConfigurationException(
+                    "Time window of " + timeWindowMillis + "ms is too short for " + subBuckets + " sub-buckets");
+        }
+        this.maxRequests = maxRequests;
+        this.timeWindowMillis = timeWindowMillis;
+        this.subBuckets = subBuckets;
+        // Integer division: the effective window is subBuckets * bucketMillis, at most timeWindowMillis
+        this.bucketMillis = timeWindowMillis / subBuckets;
+        this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
+    }
+
+    public SlidingWindowCounterStrategy(int maxRequests, long timeWindowMillis, int subBuckets, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, subBuckets, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public SlidingWindowCounterStrategy(int maxRequests, long timeWindowMillis, int subBuckets) {
+        this(maxRequests, timeWindowMillis, subBuckets, new SystemTimeProvider());
+    }
+
+    @Override
+    public boolean allowRequest(String clientId) {
+        return allowRequest(clientId, 1);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        WindowCounter counter = counterFor(clientId);
+        boolean monitored = contentionMonitor.isEnabled();
+        long lockStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        while (true) {
+            synchronized (counter) {
+                if (!counter.retired) {
+                    long currentTime = timeProvider.getCurrentTimeMillis();
+                    advance(counter, currentTime);
+                    allowed = estimate(counter, currentTime) + permits <= maxRequests;
+                    if (allowed) {
+                        counter.counts[index(counter, counter.currentBucket)] += permits;
+                    }
+                    break;
+                }
+            }
+            counter = counterFor(clientId);
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - lockStart);
+        }
+        return allowed;
+    }
+
+    /**
+     * Reset is when the newest non-empty bucket slides out of the window; retry is when the decaying
+     * estimate first leaves room for the permits.
+     */
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        WindowCounter counter = counterFor(clientId);
+        boolean monitored = contentionMonitor.isEnabled();
+        long lockStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        long remaining;
+        long resetAfter;
+        long retryAfter;
+        while (true) {
+            synchronized (counter) {
+                if (!counter.retired) {
+                    long currentTime = timeProvider.getCurrentTimeMillis();
+                    advance(counter, currentTime);
+                    double estimate = estimate(counter, currentTime);
+                    allowed = estimate + permits <= maxRequests;
+                    if (allowed) {
+                        counter.counts[index(counter, counter.currentBucket)] += permits;
+                        estimate += permits;
+                    }
+                    remaining = Math.max(0, (long) Math.floor(maxRequests - estimate));
+                    resetAfter = resetAfter(counter, currentTime);
+                    retryAfter = allowed ? 0 : permits > maxRequests ? -1 : retryAfter(counter, currentTime, permits);
+                    break;
+                }
+            }
+            counter = counterFor(clientId);
+        }
+
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - lockStart);
+        }
+        return decision.set(allowed, remaining, maxRequests, resetAfter, retryAfter);
+    }
+
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        WindowCounter counter = clientCounters.get(clientId);
+        if (counter == null) {
+            return;
+        }
+        synchronized (counter) {
+            advance(counter, timeProvider.getCurrentTimeMillis());
+            int index = index(counter, counter.currentBucket);
+            counter.counts[index] = Math.max(0, counter.counts[index] - permits);
+        }
+    }
+
+    @Override
+    public void reset(String clientId) {
+        clientCounters.remove(clientId);
+    }
+
+    @Override
+    public long getRemainingRequests(String clientId) {
+        WindowCounter counter = clientCounters.get(clientId);
+        if (counter == null) {
+            return maxRequests;
+        }
+        synchronized (counter) {
+            long currentTime = timeProvider.getCurrentTimeMillis();
+            advance(counter, currentTime);
+            return Math.max(0, (long) Math.floor(maxRequests - estimate(counter, currentTime)));
+        }
+    }
+
+    /**
+     * Weighted request count for the window ending at currentTime (for debugging/monitoring)
+     */
+    public double getEstimatedCount(String clientId) {
+        WindowCounter counter = clientCounters.get(clientId);
+        if (counter == null) {
+            return 0;
+        }
+        synchronized (counter) {
+            long currentTime = timeProvider.getCurrentTimeMillis();
+            advance(counter, currentTime);
+            return estimate(counter, currentTime);
+        }
+    }
+
+    private WindowCounter counterFor(String clientId) {
+        WindowCounter counter = clientCounters.get(clientId);
+        if (counter != null) {
+            return counter;
+        }
+        return clientCounters.computeIfAbsent(clientId, this::newCounter);
+    }
+
+    private WindowCounter newCounter(String clientId) {
+        long currentTime = timeProvider.getCurrentTimeMillis();
+        WindowCounter counter = new WindowCounter(subBuckets + 1, Math.floorDiv(currentTime, bucketMillis));
+        if (idleClients != null) {
+            idleClients.schedule(clientId, counter, currentTime + timeWindowMillis + bucketMillis);
+        }
+        return counter;
+    }
+
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
+
+    private long expire(String clientId, Object scheduled, long now) {
+        WindowCounter counter = clientCounters.get(clientId);
+        if (counter != scheduled) {
+            return IdleExpiryWheel.REMOVED; // Reset since; the new counter has its own entry
+        }
+        synchronized (counter) {
+            advance(counter, now);
+            long resetAfter = resetAfter(counter, now);
+            if (resetAfter > 0) {
+                return now + resetAfter;
+            }
+            // Requests already holding the counter see it retired and look the client up again
+            counter.retired = true;
+            clientCounters.remove(clientId, counter);
+            return IdleExpiryWheel.REMOVED;
+        }
+    }
+
+    /**
+     * Move the counter to the bucket containing currentTime, zeroing the buckets it skipped over.
+     * A clock that goes backwards keeps counting in the current bucket.
+     */
+    private void advance(WindowCounter counter, long currentTime) {
+        long bucket = Math.floorDiv(currentTime, bucketMillis);
+        long gap = bucket - counter.currentBucket;
+        if (gap <= 0) {
+            return;
+        }
+        if (gap >= counter.counts.length) {
+            Arrays.fill(counter.counts, 0);
+        } else {
+            for (long b = counter.currentBucket + 1; b <= bucket; b++) {
+                counter.counts[index(counter, b)] = 0;
+            }
+        }
+        counter.currentBucket = bucket;
+    }
+
+    private double estimate(WindowCounter counter, long currentTime) {
+        long counted = 0;
+        for (int i = 0; i < subBuckets; i++) {
+            counted += counter.counts[index(counter, counter.currentBucket - i)];
+        }
+        // Share of the oldest bucket that is still inside the window
+        double elapsedInBucket = (double) Math.floorMod(currentTime, bucketMillis) / bucketMillis;
+        int oldest = counter.counts[index(counter, counter.currentBucket - subBuckets)];
+        return counted + oldest * (1.0 - elapsedInBucket);
+    }
+
+    private long resetAfter(WindowCounter counter, long currentTime) {
+        for (int i = 0; i <= subBuckets; i++) {
+            if (counter.counts[index(counter, counter.currentBucket - i)] != 0) {
+                return (counter.currentBucket - i + subBuckets + 1) * bucketMillis - currentTime;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Walks forward bucket by bucket: k buckets from now the newest subBuckets - k buckets are still
+     * counted in full and the oldest one decays linearly, so the first time with room is either the
+     * start of that bucket or the point in it where the oldest bucket's weighted share fits.
+     */
+    private long retryAfter(WindowCounter counter, long currentTime, int permits) {
+        for (int k = 0; k <= subBuckets; k++) {
+            long counted = 0;
+            for (int i = 0; i < subBuckets - k; i++) {
+                counted += counter.counts[index(counter, counter.currentBucket - i)];
+            }
+            long room = maxRequests - permits - counted;
+            if (room < 0) {
+                continue;
+            }
+            long bucket = counter.currentBucket + k;
+            int oldest = counter.counts[index(counter, bucket - subBuckets)];
+            long at = bucket * bucketMillis;
+            if (oldest > room) {
+                at += (long) Math.ceil(bucketMillis * (1.0 - (double) room / oldest));
+            }
+            return Math.max(0, at - currentTime);
+        }
+        return -1;
+    }
+
+    private static int index(WindowCounter counter, long bucket) {
+        return (int) Math.floorMod(bucket, (long) counter.counts.length);
+    }
+
+    public int getSubBuckets() {
+        return subBuckets;
+    }
+
+    public long getTimeWindowMillis() {
+        return timeWindowMillis;
+    }
+
+    // Mutable per-client state, guarded by its own monitor
+    private static final class WindowCounter {
+        final int[] counts;
+        long currentBucket;
+        // Set once the counter has been expired and removed from the map
+        boolean retired;
+
+        WindowCounter(int buckets, long currentBucket) {
+            this.counts = new int[buckets];
+            this.currentBucket = currentBucket;
+        }
+
+        @Override
+        public String toString() {
+            return "WindowCounter{bucket=" + currentBucket + ", counts=" + Arrays.toString(counts) + "}";
+        }
+    }
+}
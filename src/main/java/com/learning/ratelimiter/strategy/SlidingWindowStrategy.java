@@ -2,23 +2,47 @@ package com.learning.ratelimiter.strategy;
 
 import com.learning.ratelimiter.core.SystemTimeProvider;
 import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
 
+import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Exact sliding window log.
+ *
+ * Each client keeps the timestamps of its allowed requests in a fixed-size long[] ring sized to
+ * maxRequests: a full ring means the window is full, so it never needs to grow. Timestamps are appended
+ * in arrival order, so expiring them is just moving the head forward past the ones that left the window.
+ * With idle expiry a client's ring is dropped once its newest timestamp has left the window.
+ */
 public class SlidingWindowStrategy implements RateLimitingStrategy {
 
     private final int maxRequests;
     private final long timeWindowMillis;
     private final TimeProvider timeProvider;
-    private final ConcurrentHashMap<String, Queue<Long>> clientTimestamps = new ConcurrentHashMap<>();
+    private final ContentionMonitor contentionMonitor;
+    private final ConcurrentHashMap<String, TimestampRing> clientTimestamps = new ConcurrentHashMap<>();
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
 
     public SlidingWindowStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public SlidingWindowStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+            ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, false);
+    }
+
+    public SlidingWindowStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+            ContentionMonitor contentionMonitor, boolean idleExpiry) {
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
         this.maxRequests = maxRequests;
         this.timeWindowMillis = timeWindowMillis;
         this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
     }
 
     public SlidingWindowStrategy(int maxRequests, long timeWindowMillis) {
@@ -27,100 +51,237 @@ public class SlidingWindowStrategy implements RateLimitingStrategy {
 
     @Override
     public boolean allowRequest(String clientId) {
-        // Use AtomicBoolean to capture the decision inside compute()
-        AtomicBoolean shouldAllow = new AtomicBoolean(false);
+        return allowRequest(clientId, 1);
+    }
 
-        clientTimestamps.compute(clientId, (key, timestamps) -> {
-            long currentTime = timeProvider.getCurrentTimeMillis();
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        TimestampRing timestamps = ringFor(clientId);
+
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
 
-            // Case 1: create new queue if clicnt doesnot exist
-            if (timestamps == null) {
-               timestamps=new ConcurrentLinkedDeque<>();
+        boolean result;
+        while (true) {
+            synchronized (timestamps) {
+                if (!timestamps.retired) {
+                    result = admit(timestamps, permits, timeProvider.getCurrentTimeMillis());
+                    break;
+                }
             }
+            timestamps = ringFor(clientId);
+        }
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        return result;
+    }
 
-            //remove all time stamps outside the sliding window
-            removeExpiredTimestamps(timestamps, currentTime);
+    /**
+     * Reset is when the newest timestamp leaves the window; a denied request can retry once enough of
+     * the oldest ones have left to make room for its permits
+     */
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        TimestampRing timestamps = ringFor(clientId);
 
-            //check if we can allow the requests
-            if(timestamps.size()<maxRequests){
-                timestamps.offer(currentTime);
-                shouldAllow.set(true);
-                System.out.println("✅ ALLOWED: " + clientId + " - Current requests in window: " + timestamps.size());
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
 
-            }else{
-                shouldAllow.set(false);
-                System.out.println("❌ DENIED: " + clientId + " - Sliding window full: " + timestamps.size() + "/" + maxRequests);
+        while (true) {
+            synchronized (timestamps) {
+                if (!timestamps.retired) {
+                    decide(timestamps, permits, decision);
+                    break;
+                }
+            }
+            timestamps = ringFor(clientId);
+        }
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        return decision;
+    }
+
+    // Caller holds the ring's monitor
+    private void decide(TimestampRing timestamps, int permits, RateLimitDecision decision) {
+        long currentTime = timeProvider.getCurrentTimeMillis();
+        boolean allowed = admit(timestamps, permits, currentTime);
+        int size = timestamps.size;
+        long resetAfter = size == 0 ? 0 : timestamps.get(size - 1) + timeWindowMillis - currentTime;
+        long retryAfter;
+        if (allowed) {
+            retryAfter = 0;
+        } else if (permits > maxRequests) {
+            retryAfter = -1;
+        } else {
+            retryAfter = timestamps.get(size + permits - maxRequests - 1) + timeWindowMillis - currentTime;
+        }
+        decision.set(allowed, Math.max(0, maxRequests - size), maxRequests, resetAfter, retryAfter);
+    }
+
+    // Caller holds the ring's monitor
+    private boolean admit(TimestampRing timestamps, int permits, long currentTime) {
+        //remove all time stamps outside the sliding window
+        removeExpiredTimestamps(timestamps, currentTime);
 
+        //check if we can allow the requests
+        if ((long) timestamps.size + permits <= maxRequests) {
+            // One timestamp per permit, so each unit leaves the window on its own
+            for (int i = 0; i < permits; i++) {
+                timestamps.append(currentTime);
             }
-            return timestamps;
+            return true;
+        }
+        return false;
+    }
 
-        });
+    private TimestampRing ringFor(String clientId) {
+        TimestampRing timestamps = clientTimestamps.get(clientId);
+        if (timestamps != null) {
+            return timestamps;
+        }
+        return clientTimestamps.computeIfAbsent(clientId, this::newRing);
+    }
 
-        boolean result = shouldAllow.get();
-        System.out.println((result ? "✅ ALLOWED" : "❌ DENIED") + ": " + clientId +
-                " - Current data: " + clientTimestamps.get(clientId));
+    private TimestampRing newRing(String clientId) {
+        TimestampRing timestamps = new TimestampRing(Math.max(0, maxRequests));
+        if (idleClients != null) {
+            idleClients.schedule(clientId, timestamps, timeProvider.getCurrentTimeMillis() + timeWindowMillis);
+        }
+        return timestamps;
+    }
 
-        return result;
+    // Caller holds the ring's monitor
+    private void removeExpiredTimestamps(TimestampRing timestamps, long currentTime) {
+        timestamps.expireUpTo(currentTime - timeWindowMillis);
     }
 
-    private void removeExpiredTimestamps(Queue<Long> timestamps, long currentTime) {
-        long windowstart=currentTime-timeWindowMillis;
-        int removedCount=0;
-        while(!timestamps.isEmpty() && timestamps.peek()<=windowstart){
-            timestamps.poll();
-            removedCount++;
+    /**
+     * Drops the newest timestamps: the rolled back request's own, or others taken at the same time or later
+     */
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        TimestampRing timestamps = clientTimestamps.get(clientId);
+        if (timestamps == null) {
+            return;
         }
-        if (removedCount > 0) {
-            System.out.println("🧹 CLEANUP: Removed " + removedCount + " expired timestamps. Current window size: " + timestamps.size());
+        synchronized (timestamps) {
+            timestamps.size -= Math.min(permits, timestamps.size);
         }
     }
 
     @Override
     public void reset(String clientId) {
-        Queue<Long> removed = clientTimestamps.remove(clientId);
-        if (removed != null) {
-            System.out.println("🔄 RESET: " + clientId + " - Cleared " + removed.size() + " timestamps");
-        }
+        clientTimestamps.remove(clientId);
     }
 
     @Override
     public long getRemainingRequests(String clientId) {
-        long currentTime = timeProvider.getCurrentTimeMillis();
-
-        Queue<Long> timestamps = clientTimestamps.get(clientId);
+        TimestampRing timestamps = clientTimestamps.get(clientId);
         if (timestamps == null) {
             return maxRequests; // New client - full limit available
         }
 
         // Count valid timestamps in current sliding window
-        long validTimestamps = timestamps.stream()
-                .filter(timestamp -> (currentTime - timestamp) < timeWindowMillis)
-                .count();
+        int validTimestamps;
+        synchronized (timestamps) {
+            removeExpiredTimestamps(timestamps, timeProvider.getCurrentTimeMillis());
+            validTimestamps = timestamps.size;
+        }
 
-        long remaining = Math.max(0, maxRequests - validTimestamps);
-        System.out.println("📊 REMAINING: " + clientId + " - " + remaining + " requests left (valid: " + validTimestamps + ")");
+        return Math.max(0, maxRequests - validTimestamps);
+    }
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
 
-        return remaining;
+    private long expire(String clientId, Object scheduled, long now) {
+        TimestampRing timestamps = clientTimestamps.get(clientId);
+        if (timestamps != scheduled) {
+            return IdleExpiryWheel.REMOVED; // Reset since; the new ring has its own entry
+        }
+        synchronized (timestamps) {
+            timestamps.expireUpTo(now - timeWindowMillis);
+            if (timestamps.size > 0) {
+                return timestamps.get(timestamps.size - 1) + timeWindowMillis;
+            }
+            // Requests already holding the ring see it retired and look the client up again
+            timestamps.retired = true;
+            clientTimestamps.remove(clientId, timestamps);
+            return IdleExpiryWheel.REMOVED;
+        }
     }
+
     /**
      * Get current window size for debugging/monitoring
      */
     public int getCurrentWindowSize(String clientId) {
-        Queue<Long> timestamps = clientTimestamps.get(clientId);
+        TimestampRing timestamps = clientTimestamps.get(clientId);
         if (timestamps == null) {
             return 0;
         }
 
-        long currentTime = timeProvider.getCurrentTimeMillis();
-        removeExpiredTimestamps(timestamps, currentTime);
-        return timestamps.size();
+        synchronized (timestamps) {
+            removeExpiredTimestamps(timestamps, timeProvider.getCurrentTimeMillis());
+            return timestamps.size;
+        }
     }
 
     /**
-     * Get all timestamps for debugging
+     * Get a snapshot of the client's timestamps, oldest first, for debugging
      */
     public Queue<Long> getClientTimestamps(String clientId) {
-        return clientTimestamps.get(clientId);
+        TimestampRing timestamps = clientTimestamps.get(clientId);
+        if (timestamps == null) {
+            return null;
+        }
+        synchronized (timestamps) {
+            Queue<Long> snapshot = new ArrayDeque<>(timestamps.size);
+            for (int i = 0; i < timestamps.size; i++) {
+                snapshot.add(timestamps.get(i));
+            }
+            return snapshot;
+        }
+    }
+
+    // Fixed-capacity ring of timestamps in arrival order, guarded by its own monitor
+    private static final class TimestampRing {
+        final long[] timestamps;
+        int head;
+        int size;
+        // Set once the ring has been expired and removed from the map
+        boolean retired;
+
+        TimestampRing(int capacity) {
+            this.timestamps = new long[capacity];
+        }
+
+        long get(int i) {
+            return timestamps[(head + i) % timestamps.length];
+        }
+
+        void append(long timestamp) {
+            timestamps[(head + size) % timestamps.length] = timestamp;
+            size++;
+        }
+
+        /**
+         * Drop timestamps at or before windowStart from the head; returns how many were dropped
+         */
+        int expireUpTo(long windowStart) {
+            int removed = 0;
+            while (size > 0 && timestamps[head] <= windowStart) {
+                head = head + 1 == timestamps.length ? 0 : head + 1;
+                size--;
+                removed++;
+            }
+            return removed;
+        }
     }
 //    private boolean isTimeWindowExpired(ClientData data, long currentTime) {
 //        return (currentTime - data.windowStartTime) >= timeWindowMillis;
@@ -2,9 +2,10 @@ package com.learning.ratelimiter.strategy;
 
 import com.learning.ratelimiter.core.SystemTimeProvider;
 import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import com.learning.ratelimiter.store.IdleExpiryWheel;
 
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class TokenBucketStrategy implements RateLimitingStrategy {
@@ -12,15 +13,20 @@ public class TokenBucketStrategy implements RateLimitingStrategy {
     private final int maxRequests;
     private final long timeWindowMillis;
     private final TimeProvider timeProvider;
+    private final ContentionMonitor contentionMonitor;
     private final ConcurrentHashMap<String, TokenBucket> clientBuckets;
     private final long capacity;      // Max tokens bucket can hold
     private final double refillRate;
+    // Null unless idle expiry is on
+    private final IdleExpiryWheel idleClients;
     // Tokens per millisecond
     private static class TokenBucket {
         final AtomicLong tokens;
         final AtomicLong lastRefillTime;
         final long capacity;
         final double refillRate;
+        // Set under the bucket's monitor once it has been expired and removed from the map
+        boolean retired;
 
         private TokenBucket(AtomicLong tokens, AtomicLong lastRefillTime, long capacity, double refillRate) {
             this.tokens = tokens;
@@ -39,14 +45,29 @@ public class TokenBucketStrategy implements RateLimitingStrategy {
         }
     }
     public TokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider) {
+        this(maxRequests, timeWindowMillis, timeProvider, ContentionMonitor.NOOP);
+    }
+
+    public TokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+            ContentionMonitor contentionMonitor) {
+        this(maxRequests, timeWindowMillis, timeProvider, contentionMonitor, false);
+    }
+
+    /**
+     * @param idleExpiry drop a client's bucket once it has refilled (see expireIdleClients)
+     */
+    public TokenBucketStrategy(int maxRequests, long timeWindowMillis, TimeProvider timeProvider,
+            ContentionMonitor contentionMonitor, boolean idleExpiry) {
         this.maxRequests = maxRequests;
         this.timeWindowMillis = timeWindowMillis;
         this.timeProvider = timeProvider;
+        this.contentionMonitor = contentionMonitor;
 
         // Initialize the missing fields:
         this.capacity = maxRequests;  // Bucket capacity = max requests
         this.refillRate = (double) maxRequests / timeWindowMillis;  // Tokens per millisecond
         this.clientBuckets = new ConcurrentHashMap<>();  // Initialize the map
+        this.idleClients = idleExpiry ? IdleExpiryWheel.forWindow(timeWindowMillis) : null;
     }
 
     public TokenBucketStrategy(int maxRequests, long timeWindowMillis) {
@@ -55,28 +76,112 @@ public class TokenBucketStrategy implements RateLimitingStrategy {
 
     @Override
     public boolean allowRequest(String clientId) {
-        // Use AtomicBoolean to capture the decision inside compute()
-        AtomicBoolean shouldAllow = new AtomicBoolean(false);
+        return allowRequest(clientId, 1);
+    }
+
+    @Override
+    public boolean allowRequest(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        TokenBucket tokenBucket = bucketFor(clientId);
+
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        boolean result;
+        while (true) {
+            synchronized (tokenBucket) {
+                if (!tokenBucket.retired) {
+                    refillTokens(tokenBucket);
+                    result = tryConsumeTokens(tokenBucket, permits);
+                    break;
+                }
+            }
+            tokenBucket = bucketFor(clientId);
+        }
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
+        return result;
+    }
+
+    /**
+     * Refill happens in whole tokens from the last refill time, so the reset and retry times are
+     * estimates from the refill rate rather than exact
+     */
+    @Override
+    public RateLimitDecision tryAcquire(String clientId, int permits, RateLimitDecision decision) {
+        RateLimitingStrategy.checkPermits(permits);
+        TokenBucket tokenBucket = bucketFor(clientId);
+
+        boolean monitored = contentionMonitor.isEnabled();
+        long computeStart = monitored ? System.nanoTime() : 0;
+
+        boolean allowed;
+        long tokens;
+        while (true) {
+            synchronized (tokenBucket) {
+                if (!tokenBucket.retired) {
+                    refillTokens(tokenBucket);
+                    allowed = tryConsumeTokens(tokenBucket, permits);
+                    tokens = tokenBucket.tokens.get();
+                    break;
+                }
+            }
+            tokenBucket = bucketFor(clientId);
+        }
+        if (monitored) {
+            contentionMonitor.recordCompute(clientId, System.nanoTime() - computeStart);
+        }
 
-        clientBuckets.compute(clientId,(key,tokenBucket)->{
-            long currentTime = timeProvider.getCurrentTimeMillis();
-            if(tokenBucket==null)
-                tokenBucket=new TokenBucket(new AtomicLong(maxRequests),new AtomicLong(currentTime),this.capacity,this.refillRate);
-            refillTokens(tokenBucket);
-            boolean isConsumed= tryConsumeToken(tokenBucket);
-            shouldAllow.set(isConsumed); // ← ADD THIS LINE!
+        long retryAfter = allowed ? 0 : permits > maxRequests ? -1 : millisToRefill(permits - tokens);
+        return decision.set(allowed, tokens, maxRequests, millisToRefill(capacity - tokens), retryAfter);
+    }
 
-            return tokenBucket;
+    private TokenBucket bucketFor(String clientId) {
+        TokenBucket bucket = clientBuckets.get(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        return clientBuckets.computeIfAbsent(clientId, this::newBucket);
+    }
 
-        });
+    // Runs inside computeIfAbsent(), once per bucket created
+    private TokenBucket newBucket(String clientId) {
+        long currentTime = timeProvider.getCurrentTimeMillis();
+        TokenBucket bucket = new TokenBucket(new AtomicLong(maxRequests), new AtomicLong(currentTime), capacity, refillRate);
+        if (idleClients != null) {
+            idleClients.schedule(clientId, bucket, currentTime + timeWindowMillis);
+        }
+        return bucket;
+    }
 
+    @Override
+    public int expireIdleClients() {
+        return idleClients == null ? 0 : idleClients.advance(timeProvider.getCurrentTimeMillis(), this::expire);
+    }
 
-        boolean result = shouldAllow.get();
-        System.out.println((result ? "✅ ALLOWED" : "❌ DENIED") + ": " + clientId +
-                " - Current data: " + clientBuckets.get(clientId));
+    private long expire(String clientId, Object scheduled, long now) {
+        TokenBucket bucket = clientBuckets.get(clientId);
+        if (bucket != scheduled) {
+            return IdleExpiryWheel.REMOVED; // Reset since; the new bucket has its own entry
+        }
+        synchronized (bucket) {
+            refillTokens(bucket);
+            long missing = capacity - bucket.tokens.get();
+            if (missing > 0) {
+                return now + millisToRefill(missing);
+            }
+            // Requests already holding the bucket see it retired and look the client up again
+            bucket.retired = true;
+            clientBuckets.remove(clientId, bucket);
+            return IdleExpiryWheel.REMOVED;
+        }
+    }
 
-        return result;
+    private long millisToRefill(long tokens) {
+        return tokens <= 0 ? 0 : (long) Math.ceil(tokens / refillRate);
     }
+
     private void refillTokens(TokenBucket bucket) {
         long currentTime = timeProvider.getCurrentTimeMillis();
         long lastRefill = bucket.lastRefillTime.get();
@@ -95,22 +200,34 @@ public class TokenBucketStrategy implements RateLimitingStrategy {
             }
         }
     }
-    private boolean tryConsumeToken(TokenBucket bucket) {
+    private boolean tryConsumeTokens(TokenBucket bucket, int permits) {
         long currentTokens;
+        int attempts = 0;
         do {
+            attempts++;
             currentTokens = bucket.tokens.get();
-            if (currentTokens <= 0) {
-                return false; // No tokens available
+            if (currentTokens < permits) {
+                contentionMonitor.recordCasRetries(attempts - 1);
+                return false; // Not enough tokens available
             }
-            // Try to decrement by 1 atomically
-        } while (!bucket.tokens.compareAndSet(currentTokens, currentTokens - 1));
+            // Try to take all permits atomically
+        } while (!bucket.tokens.compareAndSet(currentTokens, currentTokens - permits));
 
-        return true; // Successfully consumed a token
+        contentionMonitor.recordCasRetries(attempts - 1);
+        return true; // Successfully consumed the tokens
     }
+    @Override
+    public void release(String clientId, int permits) {
+        RateLimitingStrategy.checkPermits(permits);
+        TokenBucket bucket = clientBuckets.get(clientId);
+        if (bucket != null) {
+            bucket.tokens.accumulateAndGet(permits, (tokens, released) -> Math.min(bucket.capacity, tokens + released));
+        }
+    }
+
     @Override
     public void reset(String clientId) {
         clientBuckets.remove(clientId);
-        System.out.println("🔄 RESET: " + clientId);
     }
 
     @Override
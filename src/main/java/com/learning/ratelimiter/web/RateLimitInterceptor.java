@@ -4,11 +4,14 @@ package com.learning.ratelimiter.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.learning.ratelimiter.resilience.AdaptiveConcurrencyLimiter;
+import com.learning.ratelimiter.resilience.AdaptiveConcurrencyRegistry;
 import com.learning.ratelimiter.service.RateLimitService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -23,11 +26,21 @@ public class RateLimitInterceptor implements HandlerInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitInterceptor.class);
 
+    // Request attribute holding the concurrency permit between preHandle and afterCompletion
+    static final String CONCURRENCY_PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".concurrencyPermit";
+
     private final RateLimitService rateLimitService;
+    private final AdaptiveConcurrencyRegistry concurrencyLimits;
     private final ObjectMapper objectMapper;
 
     public RateLimitInterceptor(RateLimitService rateLimitService) {
+        this(rateLimitService, AdaptiveConcurrencyRegistry.disabled());
+    }
+
+    @Autowired
+    public RateLimitInterceptor(RateLimitService rateLimitService, AdaptiveConcurrencyRegistry concurrencyLimits) {
         this.rateLimitService = rateLimitService;
+        this.concurrencyLimits = concurrencyLimits;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
@@ -43,6 +56,18 @@ public class RateLimitInterceptor implements HandlerInterceptor {
             return true;
         }
 
+        // Shed load before the per-client check, so a request turned away here costs the client nothing
+        AdaptiveConcurrencyLimiter concurrencyLimiter = concurrencyLimits.limiterFor(requestURI);
+        AdaptiveConcurrencyLimiter.Permit permit = null;
+        if (concurrencyLimiter != null) {
+            permit = concurrencyLimiter.tryAcquire();
+            if (permit == null) {
+                logger.warn("Request shed at concurrency limit {}: uri={}", concurrencyLimiter.getLimit(), requestURI);
+                handleConcurrencyLimitExceeded(request, response, concurrencyLimiter);
+                return false;
+            }
+        }
+
         try {
             // Check rate limit
             RateLimitService.RateLimitResult result = rateLimitService.checkRateLimit(request);
@@ -53,10 +78,14 @@ public class RateLimitInterceptor implements HandlerInterceptor {
             if (result.isAllowed()) {
                 // Request allowed - continue processing
                 logger.debug("Request allowed: {}", result);
+                holdPermit(request, permit);
                 return true;
             } else {
                 // Request denied - return 429 Too Many Requests
                 logger.warn("Request rate limited: {}", result);
+                if (permit != null) {
+                    permit.release();
+                }
                 handleRateLimitExceeded(request, response, result);
                 return false;
             }
@@ -64,10 +93,18 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         } catch (Exception e) {
             logger.error("Error in rate limiting interceptor", e);
             // Fail open - allow request to continue if rate limiting fails
+            holdPermit(request, permit);
             return true;
         }
     }
 
+    // afterCompletion gives the permit back once the request has been served
+    private static void holdPermit(HttpServletRequest request, AdaptiveConcurrencyLimiter.Permit permit) {
+        if (permit != null) {
+            request.setAttribute(CONCURRENCY_PERMIT_ATTRIBUTE, permit);
+        }
+    }
+
     /**
      * Check if rate limiting should be skipped for this path
      */
@@ -109,6 +146,13 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         response.setHeader("X-RateLimit-Remaining", String.valueOf(result.getRemainingRequests()));
         response.setHeader("X-RateLimit-Algorithm", result.getAlgorithm());
         response.setHeader("X-RateLimit-ClientId", result.getClientId());
+        // Limit and reset come from the same decision as Remaining; omitted when the strategy can't tell
+        if (result.getLimit() >= 0) {
+            response.setHeader("X-RateLimit-Limit", String.valueOf(result.getLimit()));
+        }
+        if (result.getResetAfterMillis() >= 0) {
+            response.setHeader("X-RateLimit-Reset", String.valueOf(toSeconds(result.getResetAfterMillis())));
+        }
 
         // Additional debugging headers (can be disabled in production)
         response.setHeader("X-RateLimit-Endpoint", result.getEndpoint());
@@ -116,7 +160,15 @@ public class RateLimitInterceptor implements HandlerInterceptor {
 
         // CORS headers for browser requests
         response.setHeader("Access-Control-Expose-Headers",
-                "X-RateLimit-Remaining,X-RateLimit-Algorithm,X-RateLimit-ClientId");
+                "X-RateLimit-Remaining,X-RateLimit-Algorithm,X-RateLimit-ClientId,"
+                        + "X-RateLimit-Limit,X-RateLimit-Reset,Retry-After");
+    }
+
+    /**
+     * Header values are whole seconds, rounded up so a client waiting that long is never early
+     */
+    private static long toSeconds(long millis) {
+        return (millis + 999) / 1000;
     }
 
     /**
@@ -128,6 +180,9 @@ public class RateLimitInterceptor implements HandlerInterceptor {
 
         response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (result.getRetryAfterMillis() >= 0) {
+            response.setHeader("Retry-After", String.valueOf(toSeconds(result.getRetryAfterMillis())));
+        }
 
         // Create detailed error response
         Map<String, Object> errorResponse = new HashMap<>();
@@ -144,12 +199,20 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         rateLimitInfo.put("clientId", result.getClientId());
         rateLimitInfo.put("remainingRequests", result.getRemainingRequests());
         rateLimitInfo.put("endpoint", result.getEndpoint());
+        if (result.getLimit() >= 0) {
+            rateLimitInfo.put("limit", result.getLimit());
+        }
+        if (result.getRetryAfterMillis() >= 0) {
+            rateLimitInfo.put("retryAfterMillis", result.getRetryAfterMillis());
+        }
 
         errorResponse.put("rateLimitInfo", rateLimitInfo);
 
         // Suggestions for client
         Map<String, Object> suggestions = new HashMap<>();
-        suggestions.put("retryAfter", "Wait before making another request");
+        suggestions.put("retryAfter", result.getRetryAfterMillis() >= 0
+                ? "Wait " + toSeconds(result.getRetryAfterMillis()) + " seconds before making another request"
+                : "Wait before making another request");
         suggestions.put("contact", "Contact support if you need higher limits");
         suggestions.put("documentation", "/api/docs for rate limiting information");
 
@@ -164,10 +227,43 @@ public class RateLimitInterceptor implements HandlerInterceptor {
                 request.getMethod(), request.getRequestURI(), result.getClientId(), result.getAlgorithm());
     }
 
+    /**
+     * Handle a request shed by the endpoint's concurrency limit - return 503, the backend is saturated
+     */
+    private void handleConcurrencyLimitExceeded(HttpServletRequest request,
+                                                HttpServletResponse response,
+                                                AdaptiveConcurrencyLimiter limiter) throws Exception {
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader("X-Concurrency-Limit", String.valueOf(limiter.getLimit()));
+
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Concurrency limit exceeded");
+        errorResponse.put("message", "The service is at capacity. Please retry shortly.");
+        errorResponse.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("path", request.getRequestURI());
+        errorResponse.put("method", request.getMethod());
+        errorResponse.put("concurrencyLimit", limiter.getLimit());
+
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+        response.getWriter().flush();
+    }
+
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
                                 Object handler, Exception ex) throws Exception {
-        // Optional: Log request completion, collect metrics, etc.
+        // Latency of served requests drives the endpoint's concurrency limit; failures only free their slot
+        Object permit = request.getAttribute(CONCURRENCY_PERMIT_ATTRIBUTE);
+        if (permit instanceof AdaptiveConcurrencyLimiter.Permit concurrencyPermit) {
+            request.removeAttribute(CONCURRENCY_PERMIT_ATTRIBUTE);
+            if (ex == null) {
+                concurrencyPermit.complete();
+            } else {
+                concurrencyPermit.release();
+            }
+        }
         if (ex != null) {
             logger.error("Request completed with exception: {}", ex.getMessage());
         }
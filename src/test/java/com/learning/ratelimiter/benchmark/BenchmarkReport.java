@@ -0,0 +1,161 @@
+package com.learning.ratelimiter.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Folds the throughput and sample-time runs of the same benchmark/params/threads
+ * into one summary row: ops/s, p50/p99/p99.9 latency, bytes allocated and lock contention per operation.
+ * printScaling() pivots the same rows into one line per benchmark/params with a column per thread count.
+ */
+public final class BenchmarkReport {
+
+    private BenchmarkReport() {
+    }
+
+    public static void print(Collection<RunResult> results, PrintStream out) {
+        Map<String, Row> rows = collectRows(results);
+
+        out.println();
+        out.println("=".repeat(155));
+        out.printf("%-28s %-70s %7s %14s %10s %10s %10s %10s %12s%n",
+                "Benchmark", "Params", "Threads", "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "B/op", "lock ns/op");
+        out.println("=".repeat(155));
+        for (Row row : rows.values()) {
+            out.printf("%-28s %-70s %7d %14.0f %10.0f %10.0f %10.0f %10.1f %12.1f%n",
+                    row.benchmark, row.params, row.threads, row.opsPerSecond,
+                    row.p50, row.p99, row.p999, row.bytesPerOp, row.contentionNsPerOp);
+        }
+        out.println("=".repeat(155));
+    }
+
+    /**
+     * Throughput per thread count, one line per benchmark/params combination.
+     */
+    public static void printScaling(Collection<RunResult> results, PrintStream out) {
+        Map<String, Map<Integer, Row>> curves = scalingCurves(collectRows(results));
+        TreeSet<Integer> threadCounts = threadCounts(curves);
+
+        out.println();
+        out.println("SCALING CURVE (ops/s, lock ns/op in brackets)");
+        StringBuilder header = new StringBuilder(String.format("%-100s", "Benchmark / Params"));
+        threadCounts.forEach(threads -> header.append(String.format(" %22s", threads + " threads")));
+        out.println(header);
+        curves.forEach((name, curve) -> {
+            StringBuilder line = new StringBuilder(String.format("%-100s", name));
+            for (int threads : threadCounts) {
+                Row row = curve.get(threads);
+                line.append(row == null
+                        ? String.format(" %22s", "-")
+                        : String.format(" %12.0f [%7.1f]", row.opsPerSecond, row.contentionNsPerOp));
+            }
+            out.println(line);
+        });
+    }
+
+    public static void writeScalingCsv(Collection<RunResult> results, File file) throws IOException {
+        Map<String, Map<Integer, Row>> curves = scalingCurves(collectRows(results));
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("benchmark,params,threads,ops_per_second,p50_ns,p99_ns,p999_ns,bytes_per_op,contention_ns_per_op");
+            curves.values().forEach(curve -> curve.values().forEach(row ->
+                    writer.printf("%s,\"%s\",%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f%n",
+                            row.benchmark, row.params, row.threads, row.opsPerSecond,
+                            row.p50, row.p99, row.p999, row.bytesPerOp, row.contentionNsPerOp)));
+        }
+    }
+
+    private static Map<String, Row> collectRows(Collection<RunResult> results) {
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String benchmark = params.getBenchmark();
+            String benchmarkClass = benchmark.substring(0, benchmark.lastIndexOf('.'));
+            String paramString = params.getParamsKeys().stream()
+                    .map(key -> key + "=" + params.getParam(key))
+                    .collect(Collectors.joining(", "));
+            String rowKey = benchmarkClass + "|" + paramString + "|" + params.getThreads();
+
+            Row row = rows.computeIfAbsent(rowKey,
+                    k -> new Row(benchmarkClass.substring(benchmarkClass.lastIndexOf('.') + 1),
+                            paramString, params.getThreads()));
+
+            Statistics statistics = result.getPrimaryResult().getStatistics();
+            if (params.getMode() == Mode.Throughput) {
+                row.opsPerSecond = result.getPrimaryResult().getScore();
+            } else if (params.getMode() == Mode.SampleTime) {
+                row.p50 = statistics.getPercentile(50.0);
+                row.p99 = statistics.getPercentile(99.0);
+                row.p999 = statistics.getPercentile(99.9);
+            }
+
+            double allocation = secondaryScore(result, "gc.alloc.rate.norm");
+            if (!Double.isNaN(allocation)) {
+                row.bytesPerOp = allocation;
+            }
+            double contention = secondaryScore(result, "contention.norm");
+            if (!Double.isNaN(contention) && params.getMode() == Mode.Throughput) {
+                row.contentionNsPerOp = contention;
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, Map<Integer, Row>> scalingCurves(Map<String, Row> rows) {
+        Map<String, Map<Integer, Row>> curves = new LinkedHashMap<>();
+        for (Row row : rows.values()) {
+            curves.computeIfAbsent(row.benchmark + " " + row.params, k -> new TreeMap<>())
+                    .put(row.threads, row);
+        }
+        return curves;
+    }
+
+    private static TreeSet<Integer> threadCounts(Map<String, Map<Integer, Row>> curves) {
+        TreeSet<Integer> threadCounts = new TreeSet<>();
+        curves.values().forEach(curve -> threadCounts.addAll(curve.keySet()));
+        return threadCounts;
+    }
+
+    static double secondaryScore(RunResult result, String label) {
+        Map<String, Result> secondary = result.getSecondaryResults();
+        // Older JMH versions prefix secondary labels with a middle dot
+        for (String key : new String[]{label, "\u00b7" + label}) {
+            Result secondaryResult = secondary.get(key);
+            if (secondaryResult != null) {
+                return secondaryResult.getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static class Row {
+        final String benchmark;
+        final String params;
+        final int threads;
+        double opsPerSecond = Double.NaN;
+        double p50 = Double.NaN;
+        double p99 = Double.NaN;
+        double p999 = Double.NaN;
+        double bytesPerOp = Double.NaN;
+        double contentionNsPerOp = Double.NaN;
+
+        Row(String benchmark, String params, int threads) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.threads = threads;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.learning.ratelimiter.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entry point for the JMH suite (mvn -Pbenchmark test-compile exec:exec).
+ *
+ * args[0] - benchmark include regex (default: every *Benchmark class)
+ * args[1] - comma separated thread counts, "default" for 1, 2, 4 ... up to the CPU count,
+ *           or "scaling" for 1, 2, 4 ... 64
+ *
+ * Each thread count is a separate JMH run so the summary can show how a benchmark scales.
+ * Raw JSON results and the scaling curve (CSV) are written to target/benchmarks for later comparison.
+ */
+public class BenchmarkRunner {
+
+    private static final int[] SCALING_THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = args.length > 0 ? args[0] : "Benchmark";
+        int[] threadCounts = parseThreadCounts(args.length > 1 ? args[1] : "default");
+
+        File resultDir = new File("target/benchmarks");
+        resultDir.mkdirs();
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .addProfiler(ContentionProfiler.class)
+                    .result(new File(resultDir, sanitize(include) + "-t" + threads + ".json").getPath())
+                    .resultFormat(ResultFormatType.JSON)
+                    .build();
+            Collection<RunResult> runResults = new Runner(options).run();
+            results.addAll(runResults);
+        }
+
+        BenchmarkReport.print(results, System.out);
+        if (threadCounts.length > 1) {
+            BenchmarkReport.printScaling(results, System.out);
+            BenchmarkReport.writeScalingCsv(results, new File(resultDir, sanitize(include) + "-scaling.csv"));
+        }
+    }
+
+    static int[] parseThreadCounts(String spec) {
+        if ("scaling".equalsIgnoreCase(spec)) {
+            return SCALING_THREADS.clone();
+        }
+        if (spec == null || spec.isBlank() || "default".equalsIgnoreCase(spec)) {
+            int cpus = Runtime.getRuntime().availableProcessors();
+            List<Integer> counts = new ArrayList<>();
+            for (int threads = 1; threads < cpus; threads *= 2) {
+                counts.add(threads);
+            }
+            counts.add(cpus);
+            return counts.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return Arrays.stream(spec.split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+
+    private static String sanitize(String include) {
+        return include.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
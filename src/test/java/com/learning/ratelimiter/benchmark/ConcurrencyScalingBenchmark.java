@@ -0,0 +1,71 @@
+package com.learning.ratelimiter.benchmark;
+
+import com.learning.ratelimiter.algorithms.AtomicRateLimiter;
+import com.learning.ratelimiter.algorithms.ComputeRateLimiter;
+import com.learning.ratelimiter.algorithms.ReentrantLockRateLimiter;
+import com.learning.ratelimiter.algorithms.SynchronizedRateLimiter;
+import com.learning.ratelimiter.core.RateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency shootout for the four fixed-window variants in the algorithms package.
+ *
+ * Same key distributions as StrategyBenchmark; run it across thread counts to get a scaling curve:
+ *   mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=ConcurrencyScalingBenchmark -Dbenchmark.threads=scaling
+ * BenchmarkRunner attaches ContentionProfiler, so every row also carries blocked/waited lock time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyScalingBenchmark {
+
+    public enum Implementation {
+        SYNCHRONIZED,
+        REENTRANT_LOCK,
+        ATOMIC,
+        COMPUTE;
+
+        RateLimiter create(int maxRequests, long timeWindowMs) {
+            return switch (this) {
+                case SYNCHRONIZED -> new SynchronizedRateLimiter(maxRequests, timeWindowMs);
+                case REENTRANT_LOCK -> new ReentrantLockRateLimiter(maxRequests, timeWindowMs);
+                case ATOMIC -> new AtomicRateLimiter(maxRequests, timeWindowMs);
+                case COMPUTE -> new ComputeRateLimiter(maxRequests, timeWindowMs);
+            };
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LimiterState {
+        @Param
+        public Implementation implementation;
+
+        @Param({"1000"})
+        public int maxRequests;
+
+        @Param({"60000"})
+        public long timeWindowMs;
+
+        RateLimiter rateLimiter;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            QuietConsole.mute();
+            rateLimiter = implementation.create(maxRequests, timeWindowMs);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            QuietConsole.restore();
+        }
+    }
+
+    @Benchmark
+    public boolean allowRequest(LimiterState limiter, KeyStream keys) {
+        return limiter.rateLimiter.allowRequest(keys.next());
+    }
+}
@@ -0,0 +1,77 @@
+package com.learning.ratelimiter.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * JMH profiler that reports how long the benchmark worker threads spent blocked on
+ * monitors (synchronized, ConcurrentHashMap bin locks) and parked/waiting (ReentrantLock).
+ *
+ * Uses ThreadMXBean thread contention monitoring, which only counts time while enabled,
+ * so the numbers cover the measured iteration and nothing else.
+ */
+public class ContentionProfiler implements InternalProfiler {
+
+    private static final String WORKER_THREAD_MARKER = "jmh-worker";
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private long blockedAtStart;
+    private long waitedAtStart;
+
+    public ContentionProfiler() {
+        if (threadBean.isThreadContentionMonitoringSupported()) {
+            threadBean.setThreadContentionMonitoringEnabled(true);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Lock contention (blocked + waited time) of benchmark threads";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        long[] totals = workerContentionMillis();
+        blockedAtStart = totals[0];
+        waitedAtStart = totals[1];
+    }
+
+    @Override
+    public List<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                 IterationResult result) {
+        long[] totals = workerContentionMillis();
+        long blockedMs = totals[0] - blockedAtStart;
+        long waitedMs = totals[1] - waitedAtStart;
+        long ops = Math.max(1, result.getMetadata().getMeasuredOps());
+        double contentionNsPerOp = (blockedMs + waitedMs) * 1_000_000.0 / ops;
+
+        return List.of(
+                new ScalarResult("contention.blocked", blockedMs, "ms", AggregationPolicy.AVG),
+                new ScalarResult("contention.waited", waitedMs, "ms", AggregationPolicy.AVG),
+                new ScalarResult("contention.norm", contentionNsPerOp, "ns/op", AggregationPolicy.AVG)
+        );
+    }
+
+    private long[] workerContentionMillis() {
+        long blocked = 0;
+        long waited = 0;
+        for (ThreadInfo info : threadBean.getThreadInfo(threadBean.getAllThreadIds())) {
+            if (info == null || !info.getThreadName().contains(WORKER_THREAD_MARKER)) {
+                continue;
+            }
+            blocked += Math.max(0, info.getBlockedTime());
+            waited += Math.max(0, info.getWaitedTime());
+        }
+        return new long[]{blocked, waited};
+    }
+}
@@ -0,0 +1,62 @@
+package com.learning.ratelimiter.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Client key workloads used by the benchmarks.
+ * Keys are generated up front so the measured loop only pays for the rate limiter itself.
+ */
+public enum KeyDistribution {
+    SINGLE,     // One hot client - worst case for per-key locking
+    UNIFORM,    // Every client equally likely
+    ZIPF;       // A few heavy clients and a long tail, like real API traffic
+
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    public String[] generate(int length, int cardinality, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] clientIds = new String[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            clientIds[i] = "client-" + i;
+        }
+
+        String[] keys = new String[length];
+        double[] zipfCdf = this == ZIPF ? zipfCdf(cardinality) : null;
+        for (int i = 0; i < length; i++) {
+            int index = switch (this) {
+                case SINGLE -> 0;
+                case UNIFORM -> random.nextInt(cardinality);
+                case ZIPF -> sampleZipf(zipfCdf, random.nextDouble());
+            };
+            keys[i] = clientIds[index];
+        }
+        return keys;
+    }
+
+    private static double[] zipfCdf(int cardinality) {
+        double[] cdf = new double[cardinality];
+        double sum = 0;
+        for (int rank = 1; rank <= cardinality; rank++) {
+            sum += 1.0 / Math.pow(rank, ZIPF_EXPONENT);
+            cdf[rank - 1] = sum;
+        }
+        for (int i = 0; i < cardinality; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sampleZipf(double[] cdf, double u) {
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,48 @@
+package com.learning.ratelimiter.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.function.Consumer;
+
+/**
+ * Per-thread client keys for the benchmarks, drawn from a KeyDistribution.
+ * Each thread gets its own pre-generated stream (seeded by thread index) and walks it in a loop.
+ */
+@State(Scope.Thread)
+public class KeyStream {
+
+    // Power of two so the key cursor can wrap with a mask
+    private static final int KEY_STREAM_LENGTH = 1 << 16;
+
+    @Param
+    public KeyDistribution distribution;
+
+    @Param({"10000"})
+    public int keyCardinality;
+
+    private String[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(ThreadParams threadParams) {
+        keys = distribution.generate(KEY_STREAM_LENGTH, keyCardinality, 42L + threadParams.getThreadIndex());
+    }
+
+    // Every key of the stream, in order, without moving the cursor
+    void forEachKey(Consumer<String> action) {
+        for (String key : keys) {
+            action.accept(key);
+        }
+    }
+
+    String next() {
+        String key = keys[cursor];
+        cursor = (cursor + 1) & (KEY_STREAM_LENGTH - 1);
+        return key;
+    }
+}
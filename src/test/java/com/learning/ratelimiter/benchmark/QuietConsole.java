@@ -0,0 +1,31 @@
+package com.learning.ratelimiter.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Swaps System.out for a discarding stream while a benchmark runs.
+ * The strategies still build their debug strings (so allocation numbers stay honest),
+ * but the console I/O no longer dominates the measurement.
+ */
+public final class QuietConsole {
+
+    private static PrintStream original;
+
+    private QuietConsole() {
+    }
+
+    public static synchronized void mute() {
+        if (original == null) {
+            original = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+
+    public static synchronized void restore() {
+        if (original != null) {
+            System.setOut(original);
+            original = null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.learning.ratelimiter.benchmark;
+
+import com.learning.ratelimiter.core.TimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
+import com.learning.ratelimiter.strategy.RateLimitingStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decision cost of every RateLimitingStrategy built by RateLimiterFactory.
+ *
+ * throughput() reports ops/s, latency() reports the sampled distribution (p50/p99/p99.9),
+ * and the GC profiler added by BenchmarkRunner reports bytes allocated per decision.
+ * Algorithms and key distributions default to every enum constant.
+ *
+ * Allowed and denied decisions cost very different amounts (the sliding log appends, GCRA only CASes),
+ * so each is measured on its own: the strategies run on a benchmark clock instead of the wall clock,
+ * and the outcome param decides how it moves. ALLOWED steps it on every call by twice the time one
+ * permit takes to come back, so even a single hot key stays at half its quota. DENIED stops it and
+ * drains every key of the thread's stream before measuring, so every call is denied.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrategyBenchmark {
+
+    public enum Outcome {
+        ALLOWED,
+        DENIED
+    }
+
+    @State(Scope.Benchmark)
+    public static class LimiterState {
+        @Param
+        public RateLimitingAlgorithm algorithm;
+
+        @Param
+        public Outcome outcome;
+
+        @Param({"1000"})
+        public int maxRequests;
+
+        @Param({"60000"})
+        public long timeWindowMs;
+
+        final BenchmarkClock clock = new BenchmarkClock();
+        RateLimitingStrategy strategy;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            QuietConsole.mute();
+            RateLimiterFactory.Configuration config = new RateLimiterFactory.Configuration(maxRequests, timeWindowMs);
+            strategy = new RateLimiterFactory(algorithm, config, clock).createStrategy();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            QuietConsole.restore();
+        }
+    }
+
+    /**
+     * One thread's requests: its keys, and its share of moving the clock
+     */
+    @State(Scope.Thread)
+    public static class Traffic {
+        // Calls between clock steps, so threads only rarely write the shared clock
+        private static final int CALLS_PER_STEP = 16;
+
+        private KeyStream keys;
+        private BenchmarkClock clock;
+        private long stepMillis;
+        private int calls;
+
+        @Setup(Level.Trial)
+        public void setUp(LimiterState limiter, KeyStream keys) {
+            this.keys = keys;
+            this.clock = limiter.clock;
+            if (limiter.outcome == Outcome.ALLOWED) {
+                stepMillis = CALLS_PER_STEP * Math.max(1, 2 * limiter.timeWindowMs / limiter.maxRequests);
+            } else {
+                keys.forEachKey(key -> limiter.strategy.allowRequest(key, limiter.maxRequests));
+            }
+        }
+
+        String next() {
+            if (stepMillis > 0 && ++calls == CALLS_PER_STEP) {
+                calls = 0;
+                clock.advance(stepMillis);
+            }
+            return keys.next();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean throughput(LimiterState limiter, Traffic traffic) {
+        return limiter.strategy.allowRequest(traffic.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean latency(LimiterState limiter, Traffic traffic) {
+        return limiter.strategy.allowRequest(traffic.next());
+    }
+
+    // Starts at the wall clock and only moves when a Traffic steps it
+    static final class BenchmarkClock implements TimeProvider {
+        private final AtomicLong millis = new AtomicLong(System.currentTimeMillis());
+
+        @Override
+        public long getCurrentTimeMillis() {
+            return millis.get();
+        }
+
+        void advance(long stepMillis) {
+            millis.addAndGet(stepMillis);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.learning.ratelimiter.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.service.RateLimitMetricsService;
+import com.learning.ratelimiter.service.RateLimitService;
+import com.learning.ratelimiter.strategy.BatchDecision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BatchDecisionControllerTest {
+
+    private static final String TOKEN = "gateway-secret";
+
+    private RateLimiterProperties properties;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimiterProperties();
+        properties.setBatchToken(TOKEN);
+        RateLimiterProperties.EndpointConfig endpoint = new RateLimiterProperties.EndpointConfig();
+        endpoint.setMaxRequests(1);
+        properties.getEndpoints().put("/api/hello", endpoint);
+        RateLimitService service = new RateLimitService(properties, new RateLimitMetricsService(new SimpleMeterRegistry()));
+        mockMvc = MockMvcBuilders.standaloneSetup(new BatchDecisionController(service, properties, new ObjectMapper())).build();
+    }
+
+    @Test
+    void shouldAnswerJsonBatch() throws Exception {
+        MvcResult result = mockMvc.perform(post("/ratelimit/batch")
+                        .header(BatchDecisionController.TOKEN_HEADER, TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clientIds\":[\"API_a\",\"API_a\",\"API_b\"],"
+                                + "\"endpoints\":[\"/api/hello\",\"/api/hello\",\"/api/hello\"]}"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.allowed[0]").value(true))
+                .andExpect(jsonPath("$.allowed[1]").value(false))
+                .andExpect(jsonPath("$.allowed[2]").value(true))
+                .andExpect(jsonPath("$.remaining[2]").value(0));
+    }
+
+    @Test
+    void shouldAnswerBinaryBatch() throws Exception {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(request);
+        out.writeInt(2);
+        out.writeUTF("API_a");
+        out.writeUTF("/api/hello");
+        out.writeUTF("API_a");
+        out.writeUTF("/api/hello");
+
+        MvcResult result = mockMvc.perform(post("/ratelimit/batch")
+                        .header(BatchDecisionController.TOKEN_HEADER, TOKEN)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(request.toByteArray()))
+                .andReturn();
+        byte[] response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        long[] decisions = readLongs(response, 2);
+        assertThat(BatchDecision.isAllowed(decisions[0])).isTrue();
+        assertThat(BatchDecision.isAllowed(decisions[1])).isFalse();
+    }
+
+    @Test
+    void shouldRejectMismatchedJsonArrays() throws Exception {
+        mockMvc.perform(post("/ratelimit/batch")
+                        .header(BatchDecisionController.TOKEN_HEADER, TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clientIds\":[\"API_a\"],\"endpoints\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectCallsWithoutTheGatewayToken() throws Exception {
+        String body = "{\"clientIds\":[\"API_a\"],\"endpoints\":[\"/api/hello\"]}";
+        mockMvc.perform(post("/ratelimit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/ratelimit/batch")
+                        .header(BatchDecisionController.TOKEN_HEADER, "guess")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[4]))
+                .andExpect(status().isForbidden());
+
+        // No token configured: the endpoint is off
+        properties.setBatchToken("");
+        mockMvc.perform(post("/ratelimit/batch")
+                        .header(BatchDecisionController.TOKEN_HEADER, "")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void shouldRejectEndpointsThatAreNotConfigured() throws Exception {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(request);
+        out.writeInt(2);
+        out.writeUTF("API_a");
+        out.writeUTF("/api/hello");
+        out.writeUTF("API_a");
+        out.writeUTF("/made-up-1");
+
+        mockMvc.perform(post("/ratelimit/batch")
+                        .header(BatchDecisionController.TOKEN_HEADER, TOKEN)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(request.toByteArray()))
+                .andExpect(status().isBadRequest());
+
+        // Nothing was decided: API_a still has its one request on /api/hello
+        MvcResult result = mockMvc.perform(post("/ratelimit/batch")
+                        .header(BatchDecisionController.TOKEN_HEADER, TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clientIds\":[\"API_a\"],\"endpoints\":[\"/api/hello\"]}"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.allowed[0]").value(true));
+    }
+
+    private static long[] readLongs(byte[] bytes, int count) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+}
@@ -80,6 +80,49 @@ public class RateLimiterFactoryTest {
         assertThat(strategy).isInstanceOf(LeakyBucketStrategy.class);
         assertThat(strategy.allowRequest("client-1")).isTrue();
     }
+    @Test
+    void shouldCreateSlidingWindowCounterStrategy() {
+        // Given
+        RateLimiterFactory.Configuration config = new RateLimiterFactory.Configuration(100, 60000).withSubBuckets(6);
+        RateLimiterFactory factory = new RateLimiterFactory(SLIDING_WINDOW_COUNTER, config);
+
+        // When
+        RateLimitingStrategy strategy = factory.createStrategy();
+
+        // Then
+        assertThat(strategy).isInstanceOf(SlidingWindowCounterStrategy.class);
+        assertThat(((SlidingWindowCounterStrategy) strategy).getSubBuckets()).isEqualTo(6);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+    }
+    @Test
+    void shouldCreateGcraStrategy() {
+        // Given
+        RateLimiterFactory.Configuration config = new RateLimiterFactory.Configuration(100, 60000);
+        RateLimiterFactory factory = new RateLimiterFactory(GCRA, config);
+
+        // When
+        RateLimitingStrategy strategy = factory.createStrategy();
+
+        // Then
+        assertThat(strategy).isInstanceOf(GcraStrategy.class);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(99);
+    }
+    @Test
+    void shouldCreateCountMinSketchStrategy() {
+        // Given
+        RateLimiterFactory.Configuration config = new RateLimiterFactory.Configuration(100, 60000).withSketchWidth(1000);
+        RateLimiterFactory factory = new RateLimiterFactory(COUNT_MIN_SKETCH, config);
+
+        // When
+        RateLimitingStrategy strategy = factory.createStrategy();
+
+        // Then
+        assertThat(strategy).isInstanceOf(CountMinSketchStrategy.class);
+        assertThat(((CountMinSketchStrategy) strategy).getSketchWidth()).isEqualTo(1024);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(99);
+    }
 //    @Test
 //    void shouldMeasureRateLimiterPerformanceDirectly() {
 //        RateLimiterProperties properties=new RateLimiterProperties();
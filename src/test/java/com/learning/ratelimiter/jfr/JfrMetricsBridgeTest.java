@@ -0,0 +1,64 @@
+package com.learning.ratelimiter.jfr;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.service.RateLimitMetricsService;
+import com.learning.ratelimiter.service.RateLimitService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrMetricsBridgeTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JfrMetricsBridge bridge = new JfrMetricsBridge(meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        bridge.stop();
+    }
+
+    @Test
+    void shouldFeedDecisionEventsIntoMicrometer() throws InterruptedException {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        properties.setDefaultMaxRequests(3);
+        RateLimitService service = new RateLimitService(properties, new RateLimitMetricsService(new SimpleMeterRegistry()));
+        bridge.start();
+
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hello");
+            request.addHeader("X-API-Key", "jfr-client");
+            service.checkRateLimit(request);
+        }
+
+        // The stream flushes roughly once a second
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (deniedCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertThat(allowedCount()).isEqualTo(3);
+        assertThat(deniedCount()).isEqualTo(2);
+    }
+
+    private long allowedCount() {
+        return count("allowed");
+    }
+
+    private long deniedCount() {
+        return count("denied");
+    }
+
+    private long count(String status) {
+        Timer timer = meterRegistry.find("rate_limiter_jfr_decision_duration")
+                .tag("endpoint", "/api/hello")
+                .tag("algorithm", "FIXED_WINDOW")
+                .tag("status", status)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,108 @@
+package com.learning.ratelimiter.monitoring;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.service.RateLimitMetricsService;
+import com.learning.ratelimiter.service.RateLimitService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHitterRegistryTest {
+
+    @Test
+    void shouldFindHeavyClientsAmongManyLightOnes() {
+        SpaceSavingSummary summary = new SpaceSavingSummary(20, Long.MAX_VALUE);
+        for (int i = 0; i < 10_000; i++) {
+            summary.offer("light-" + i, 1, false);
+            if (i % 10 == 0) {
+                summary.offer("heavy-a", 3, false);
+                summary.offer("heavy-b", 2, true);
+            }
+        }
+
+        List<SpaceSavingSummary.Entry> top = summary.top(2);
+        assertThat(top).extracting(SpaceSavingSummary.Entry::clientId).containsExactly("heavy-a", "heavy-b");
+        // Never an undercount, and never more than error above the true count
+        assertThat(top.get(0).count()).isGreaterThanOrEqualTo(3_000);
+        assertThat(top.get(0).count() - top.get(0).error()).isLessThanOrEqualTo(3_000);
+        assertThat(top.get(1).denied()).isLessThanOrEqualTo(2_000).isPositive();
+    }
+
+    @Test
+    void shouldHalveCountsSoOldHeavyHittersFadeOut() {
+        SpaceSavingSummary summary = new SpaceSavingSummary(4, 100);
+        for (int i = 0; i < 99; i++) {
+            summary.offer("old", 1, false);
+        }
+        summary.offer("old", 1, false);
+
+        assertThat(summary.top(1).get(0).count()).isEqualTo(50);
+    }
+
+    @Test
+    void shouldPublishOneGaugePerRankWithoutClientIdTags() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HeavyHitterRegistry registry = new HeavyHitterRegistry(3, 1, meterRegistry);
+        for (int i = 0; i < 1_000; i++) {
+            registry.record("/api/hello", "client-" + i, 1, true);
+            registry.record("/api/hello", "hot", 2, true);
+        }
+
+        assertThat(meterRegistry.find("rate_limiter_top_client_permits").gauges()).hasSize(3)
+                .allSatisfy(gauge -> assertThat(gauge.getId().getTag("clientId")).isNull());
+        Gauge first = meterRegistry.find("rate_limiter_top_client_permits").tag("rank", "1").gauge();
+        assertThat(first.value()).isEqualTo(2_000);
+        assertThat(registry.topClients("/api/hello").get(0).clientId()).isEqualTo("hot");
+    }
+
+    @Test
+    void shouldReportTheErrorSamplingAdds() {
+        HeavyHitterRegistry sampled = new HeavyHitterRegistry(1, 4, new SimpleMeterRegistry());
+        HeavyHitterRegistry exact = new HeavyHitterRegistry(1, 1, new SimpleMeterRegistry());
+        for (int i = 0; i < 10_000; i++) {
+            sampled.record("/api/hello", "hot", 1, true);
+            exact.record("/api/hello", "hot", 1, true);
+        }
+
+        HeavyHitterRegistry.HeavyHitter hot = sampled.topClients("/api/hello").get(0);
+        // About 3 standard deviations of sqrt(10_000 * 3); twice that is never exceeded in practice
+        assertThat(hot.samplingError()).isBetween(450L, 600L);
+        assertThat(Math.abs(hot.estimatedPermits() - 10_000)).isLessThanOrEqualTo(2 * hot.samplingError());
+        assertThat(exact.topClients("/api/hello").get(0).samplingError()).isZero();
+        assertThat(exact.topClients("/api/hello").get(0).estimatedPermits()).isEqualTo(10_000);
+    }
+
+    @Test
+    void shouldRecordChecksFromTheService() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        HeavyHitterRegistry registry = new HeavyHitterRegistry(5, 1, new SimpleMeterRegistry());
+        RateLimitService service = new RateLimitService(properties,
+                new RateLimitMetricsService(new SimpleMeterRegistry()), ContentionMonitorRegistry.disabled(), registry);
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hello");
+            request.addHeader("X-API-Key", "key-1");
+            service.checkRateLimit(request);
+        }
+
+        List<HeavyHitterRegistry.HeavyHitter> top = registry.topClients("/api/hello");
+        assertThat(top).hasSize(1);
+        assertThat(top.get(0).clientId()).isEqualTo("API_key-1");
+        assertThat(top.get(0).estimatedPermits()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldTrackNothingWhenDisabled() {
+        HeavyHitterRegistry registry = HeavyHitterRegistry.disabled();
+        registry.record("/api/hello", "client-1", 1, true);
+
+        assertThat(registry.getSummaries()).isEmpty();
+        assertThat(registry.topClients("/api/hello")).isEmpty();
+    }
+}
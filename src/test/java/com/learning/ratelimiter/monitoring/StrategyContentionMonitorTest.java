@@ -0,0 +1,78 @@
+package com.learning.ratelimiter.monitoring;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
+import com.learning.ratelimiter.strategy.RateLimitingStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StrategyContentionMonitorTest {
+
+    @Test
+    void shouldCountComputeCallsAndRankHotKeys() {
+        StrategyContentionMonitor monitor = new StrategyContentionMonitor("/api/hello", "TOKEN_BUCKET", 1);
+        RateLimitingStrategy strategy = new RateLimiterFactory(RateLimitingAlgorithm.TOKEN_BUCKET,
+                new RateLimiterFactory.Configuration(1000, 60000), new FakeTimeProvider(), monitor).createStrategy();
+
+        for (int i = 0; i < 50; i++) {
+            strategy.allowRequest("hot-client");
+        }
+        strategy.allowRequest("cold-client");
+
+        assertThat(monitor.getComputeCalls()).isEqualTo(51);
+        assertThat(monitor.getComputeNanos()).isPositive();
+        List<Map<String, Object>> topKeys = monitor.topKeys(2);
+        assertThat(topKeys).hasSize(2);
+        assertThat(topKeys.get(0)).containsEntry("clientId", "hot-client").containsEntry("samples", 50L);
+        assertThat(topKeys.get(1)).containsEntry("clientId", "cold-client");
+    }
+
+    @Test
+    void shouldAgeOutRareKeysOnceTrackingIsFull() {
+        StrategyContentionMonitor monitor = new StrategyContentionMonitor("/api/hello", "FIXED_WINDOW", 1);
+        for (int i = 0; i < 10; i++) {
+            monitor.recordCompute("hot-client", 100);
+        }
+        for (int i = 0; i <= StrategyContentionMonitor.MAX_TRACKED_KEYS; i++) {
+            monitor.recordCompute("client-" + i, 100);
+        }
+
+        List<Map<String, Object>> topKeys = monitor.topKeys(StrategyContentionMonitor.MAX_TRACKED_KEYS * 2);
+        assertThat(topKeys.size()).isLessThanOrEqualTo(StrategyContentionMonitor.MAX_TRACKED_KEYS);
+        assertThat(topKeys.get(0)).containsEntry("clientId", "hot-client");
+    }
+
+    @Test
+    void shouldHandOutNoopWhenMonitoringIsDisabled() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        ContentionMonitorRegistry registry = new ContentionMonitorRegistry(properties, new SimpleMeterRegistry());
+
+        assertThat(registry.monitorFor("/api/hello", RateLimitingAlgorithm.FIXED_WINDOW)).isSameAs(ContentionMonitor.NOOP);
+        assertThat(registry.getMonitors()).isEmpty();
+    }
+
+    @Test
+    void shouldPublishCountersWhenMonitoringIsEnabled() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setContentionMonitoringEnabled(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ContentionMonitorRegistry registry = new ContentionMonitorRegistry(properties, meterRegistry);
+
+        ContentionMonitor monitor = registry.monitorFor("/api/hello", RateLimitingAlgorithm.FIXED_WINDOW);
+        monitor.recordCompute("client-1", 1_000);
+        monitor.recordCasRetries(3);
+
+        assertThat(registry.monitorFor("/api/hello", RateLimitingAlgorithm.FIXED_WINDOW)).isSameAs(monitor);
+        assertThat(meterRegistry.get("rate_limiter_compute_calls").tag("endpoint", "/api/hello").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("rate_limiter_cas_retries").tag("endpoint", "/api/hello").functionCounter().count())
+                .isEqualTo(3);
+    }
+}
@@ -0,0 +1,282 @@
+package com.learning.ratelimiter.performance;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.learning.ratelimiter.benchmark.QuietConsole;
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import com.learning.ratelimiter.service.RateLimitMetricsService;
+import com.learning.ratelimiter.service.RateLimitService;
+import com.learning.ratelimiter.store.StateStoreType;
+import com.learning.ratelimiter.strategy.RateLimitDecision;
+import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
+import com.learning.ratelimiter.strategy.RateLimitingStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails when a decision allocates more than its declared budget (bytes per call, steady state).
+ *
+ * The budgets are set just above what the code allocates today. When a change makes a path
+ * cheaper, lower its budget in the same commit so the saving cannot quietly regress.
+ * Every RateLimitingAlgorithm needs an entry; the switch below stops compiling otherwise.
+ *
+ * Numbers come out a little higher when the JVM has already run the Spring tests (call sites
+ * that saw other types compile with less escape analysis), so leave ~20% headroom.
+ */
+class AllocationBudgetTest {
+
+    private static final int KEYS = 1024;
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 100_000;
+
+    private final String[] clientIds = new String[KEYS];
+    private FakeTimeProvider timeProvider;
+
+    /**
+     * Bytes per allowed decision, one call of allowRequest().
+     */
+    private static long allowedBudget(RateLimitingAlgorithm algorithm) {
+        return switch (algorithm) {
+            case FIXED_WINDOW -> 64;
+            case SLIDING_WINDOW -> 64;
+            case LEAKY_BUCKET -> 64;
+            case TOKEN_BUCKET -> 64;
+            case SLIDING_WINDOW_COUNTER -> 64;
+            case GCRA -> 64;
+            case COUNT_MIN_SKETCH -> 64;
+        };
+    }
+
+    /**
+     * Bytes per denied decision, one call of allowRequest().
+     */
+    private static long deniedBudget(RateLimitingAlgorithm algorithm) {
+        return switch (algorithm) {
+            case FIXED_WINDOW -> 64;
+            case SLIDING_WINDOW -> 64;
+            case LEAKY_BUCKET -> 64;
+            case TOKEN_BUCKET -> 64;
+            case SLIDING_WINDOW_COUNTER -> 64;
+            case GCRA -> 64;
+            case COUNT_MIN_SKETCH -> 64;
+        };
+    }
+
+    /**
+     * Bytes per RateLimitService.checkRateLimit() call, including metrics and MDC but not log output.
+     */
+    private static final long SERVICE_ALLOWED_BUDGET = 2_400;
+    private static final long SERVICE_DENIED_BUDGET = 2_300;
+
+    /**
+     * Bytes per decision, allowed or denied, for the lock-free token and leaky buckets, and for every
+     * strategy keeping its state in an ARRAY or OFF_HEAP store.
+     */
+    private static final long LOCK_FREE_BUDGET = 16;
+
+    /**
+     * Bytes per tryAcquire() into a reused RateLimitDecision for the token and leaky buckets.
+     */
+    private static final long TRY_ACQUIRE_BUDGET = 32;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(AllocationMeter.isSupported(), "JVM does not report per-thread allocation");
+        for (int i = 0; i < KEYS; i++) {
+            clientIds[i] = "client-" + i;
+        }
+        timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000L);
+        QuietConsole.mute();
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuietConsole.restore();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RateLimitingAlgorithm.class)
+    void allowedDecisionStaysWithinBudget(RateLimitingAlgorithm algorithm) {
+        // 10 per minute, and the clock moves 6 s per pass over the keys: every call is allowed
+        // while per-client state (e.g. the sliding window's timestamps) stays bounded
+        RateLimitingStrategy strategy = createStrategy(algorithm, 10);
+
+        double bytesPerCall = AllocationMeter.bytesPerCall(i -> {
+            if ((i & (KEYS - 1)) == 0) {
+                timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 6_000);
+            }
+            strategy.allowRequest(clientIds[i & (KEYS - 1)]);
+        }, WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+
+        assertWithinBudget(algorithm + " allowed", bytesPerCall, allowedBudget(algorithm));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RateLimitingAlgorithm.class)
+    void deniedDecisionStaysWithinBudget(RateLimitingAlgorithm algorithm) {
+        // One request per client, then the clock stands still so every later call is denied
+        RateLimitingStrategy strategy = createStrategy(algorithm, 1);
+        for (String clientId : clientIds) {
+            strategy.allowRequest(clientId);
+        }
+
+        double bytesPerCall = AllocationMeter.bytesPerCall(
+                i -> strategy.allowRequest(clientIds[i & (KEYS - 1)]), WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+
+        assertWithinBudget(algorithm + " denied", bytesPerCall, deniedBudget(algorithm));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RateLimitingAlgorithm.class, names = {"TOKEN_BUCKET", "LEAKY_BUCKET"})
+    void lockFreeBucketDecisionStaysWithinBudget(RateLimitingAlgorithm algorithm) {
+        // 10 per minute with the clock moving 1 s per pass: a mix of refills, allows and denials
+        RateLimiterFactory.Configuration config = new RateLimiterFactory.Configuration(10, 60_000).withLockFree(true);
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+
+        double bytesPerCall = AllocationMeter.bytesPerCall(i -> {
+            if ((i & (KEYS - 1)) == 0) {
+                timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 1_000);
+            }
+            strategy.allowRequest(clientIds[i & (KEYS - 1)]);
+        }, WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+
+        assertWithinBudget(algorithm + " lock-free", bytesPerCall, LOCK_FREE_BUDGET);
+    }
+
+    static Stream<Arguments> fixedStores() {
+        return Stream.of(StateStoreType.ARRAY, StateStoreType.OFF_HEAP).flatMap(store -> Stream.of(
+                Arguments.of(RateLimitingAlgorithm.GCRA, store),
+                Arguments.of(RateLimitingAlgorithm.TOKEN_BUCKET, store),
+                Arguments.of(RateLimitingAlgorithm.LEAKY_BUCKET, store),
+                Arguments.of(RateLimitingAlgorithm.FIXED_WINDOW, store)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("fixedStores")
+    void fixedStoreDecisionStaysWithinBudget(RateLimitingAlgorithm algorithm, StateStoreType store) {
+        // Same traffic as the lock-free buckets, with the state in a fingerprint table instead of on the heap
+        RateLimiterFactory.Configuration config = new RateLimiterFactory.Configuration(10, 60_000)
+                .withLockFree(true)
+                .withEpochAligned(true)
+                .withStateStore(store, KEYS * 2);
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+
+        double bytesPerCall = AllocationMeter.bytesPerCall(i -> {
+            if ((i & (KEYS - 1)) == 0) {
+                timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 1_000);
+            }
+            strategy.allowRequest(clientIds[i & (KEYS - 1)]);
+        }, WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+
+        assertWithinBudget(algorithm + " " + store, bytesPerCall, LOCK_FREE_BUDGET);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RateLimitingAlgorithm.class, names = {"TOKEN_BUCKET", "LEAKY_BUCKET"})
+    void bucketTryAcquireStaysWithinBudget(RateLimitingAlgorithm algorithm) {
+        // 10 per minute with the clock moving 1 s per pass: refills or leaks, allows and denials, every call
+        // filling in the same decision
+        RateLimitingStrategy strategy = createStrategy(algorithm, 10);
+        RateLimitDecision decision = new RateLimitDecision();
+
+        double bytesPerCall = AllocationMeter.bytesPerCall(i -> {
+            if ((i & (KEYS - 1)) == 0) {
+                timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 1_000);
+            }
+            strategy.tryAcquire(clientIds[i & (KEYS - 1)], 1, decision);
+        }, WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+
+        assertWithinBudget(algorithm + " tryAcquire", bytesPerCall, TRY_ACQUIRE_BUDGET);
+    }
+
+    @Test
+    void serviceAllowedPathStaysWithinBudget() {
+        RateLimitService service = createService(Integer.MAX_VALUE / 2);
+        MockHttpServletRequest[] requests = createRequests();
+
+        double bytesPerCall = withLoggingOff(() -> AllocationMeter.bytesPerCall(
+                i -> service.checkRateLimit(requests[i & (KEYS - 1)]), WARMUP_ITERATIONS / 4, MEASURED_ITERATIONS / 4));
+
+        assertWithinBudget("RateLimitService allowed", bytesPerCall, SERVICE_ALLOWED_BUDGET);
+    }
+
+    @Test
+    void serviceDeniedPathStaysWithinBudget() {
+        RateLimitService service = createService(1);
+        MockHttpServletRequest[] requests = createRequests();
+
+        double bytesPerCall = withLoggingOff(() -> AllocationMeter.bytesPerCall(
+                i -> service.checkRateLimit(requests[i & (KEYS - 1)]), WARMUP_ITERATIONS / 4, MEASURED_ITERATIONS / 4));
+
+        assertWithinBudget("RateLimitService denied", bytesPerCall, SERVICE_DENIED_BUDGET);
+    }
+
+    private RateLimitingStrategy createStrategy(RateLimitingAlgorithm algorithm, int maxRequests) {
+        RateLimiterFactory.Configuration config = new RateLimiterFactory.Configuration(maxRequests, 60_000);
+        return new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+    }
+
+    private RateLimitService createService(int maxRequests) {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        properties.setDefaultMaxRequests(maxRequests);
+        return new RateLimitService(properties, new RateLimitMetricsService(new SimpleMeterRegistry()));
+    }
+
+    private MockHttpServletRequest[] createRequests() {
+        MockHttpServletRequest[] requests = new MockHttpServletRequest[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            requests[i] = new MockHttpServletRequest("GET", "/api/hello");
+            requests[i].addHeader("X-API-Key", clientIds[i]);
+        }
+        return requests;
+    }
+
+    /**
+     * What log statements cost depends on the appenders configured, not on the rate limiter,
+     * so the service budgets are measured with logging switched off. That includes third-party
+     * loggers: Micrometer logs a (rate limited) warning when recordRequest() re-registers a meter.
+     */
+    private static double withLoggingOff(DoubleSupplier measurement) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Map<Logger, Level> previousLevels = new HashMap<>();
+        for (Logger logger : context.getLoggerList()) {
+            if (logger.getLevel() != null) {
+                previousLevels.put(logger, logger.getLevel());
+            }
+        }
+        previousLevels.keySet().forEach(logger -> logger.setLevel(Level.OFF));
+        try {
+            return measurement.getAsDouble();
+        } finally {
+            previousLevels.forEach(Logger::setLevel);
+        }
+    }
+
+    private static void assertWithinBudget(String path, double bytesPerCall, long budget) {
+        System.err.printf("%-30s %8.1f B/call (budget %d)%n", path, bytesPerCall, budget);
+        assertThat(bytesPerCall)
+                .as("%s allocates %.1f bytes per call, budget is %d", path, bytesPerCall, budget)
+                .isLessThanOrEqualTo(budget);
+    }
+}
@@ -0,0 +1,43 @@
+package com.learning.ratelimiter.performance;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated per call on the current thread, from HotSpot's per-thread allocation counter.
+ *
+ * The operation is run for a warmup phase first so the JIT has compiled (and escape-analysed)
+ * the hot path before counting starts; interpreted code allocates things compiled code does not.
+ */
+final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationMeter() {
+    }
+
+    static boolean isSupported() {
+        return THREAD_MX_BEAN.isThreadAllocatedMemorySupported() && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * @param operation called with the iteration index, so callers can cycle through keys without allocating
+     */
+    static double bytesPerCall(IntOperation operation, int warmupIterations, int measuredIterations) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run(i);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < measuredIterations; i++) {
+            operation.run(i);
+        }
+        long after = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        return (double) (after - before) / measuredIterations;
+    }
+
+    @FunctionalInterface
+    interface IntOperation {
+        void run(int iteration);
+    }
+}
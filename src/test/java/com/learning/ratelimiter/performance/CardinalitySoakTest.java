@@ -0,0 +1,143 @@
+package com.learning.ratelimiter.performance;
+
+import com.learning.ratelimiter.benchmark.QuietConsole;
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import com.learning.ratelimiter.store.OffHeapClientStateStore;
+import com.learning.ratelimiter.store.StateStoreType;
+import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
+import com.learning.ratelimiter.strategy.RateLimitingStrategy;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Capacity soak: pushes millions of distinct client ids through each strategy and reports
+ * retained heap per client, GC time and decision latency as the client maps grow.
+ *
+ * Off by default. Run with, for example:
+ *   mvn test -Dtest=CardinalitySoakTest -Dsoak=true -Dsoak.clients=10000000 -DargLine=-Xmx8g
+ *
+ * soak.clients             distinct client ids per algorithm (default 1,000,000)
+ * soak.checkpoints         report rows per run (default 10)
+ * soak.requestsPerClient   requests each client makes before moving on (default 1)
+ * soak.maxBytesPerClient   fail if retained bytes per client ends up above this (default: report only)
+ * soak.stateStore          HEAP, OFF_HEAP or ARRAY, for the strategies that keep their state in a ClientStateStore (default HEAP)
+ *
+ * The clock is a FakeTimeProvider that never moves, so nothing expires and the run measures
+ * pure per-client state. An OutOfMemoryError ends that algorithm's run and is reported as its breaking point.
+ */
+@EnabledIfSystemProperty(named = "soak", matches = "true")
+class CardinalitySoakTest {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final PrintStream report = System.err;
+
+    private int clients;
+    private int checkpoints;
+    private int requestsPerClient;
+    private long maxBytesPerClient;
+    private StateStoreType stateStore;
+
+    @BeforeEach
+    void setUp() {
+        clients = Integer.getInteger("soak.clients", 1_000_000);
+        checkpoints = Integer.getInteger("soak.checkpoints", 10);
+        requestsPerClient = Integer.getInteger("soak.requestsPerClient", 1);
+        maxBytesPerClient = Long.getLong("soak.maxBytesPerClient", Long.MAX_VALUE);
+        stateStore = StateStoreType.valueOf(System.getProperty("soak.stateStore", "HEAP"));
+        QuietConsole.mute();
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuietConsole.restore();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RateLimitingAlgorithm.class)
+    void soakDistinctClients(RateLimitingAlgorithm algorithm) {
+        FakeTimeProvider timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000L);
+        // Limit above requestsPerClient so every request is stored, not just counted as denied
+        RateLimiterFactory.Configuration config =
+                new RateLimiterFactory.Configuration(Math.max(100, requestsPerClient), 60_000)
+                        .withStateStore(stateStore, Math.min(clients, OffHeapClientStateStore.MAX_CLIENTS));
+
+        long baselineHeap = usedHeapAfterGc();
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+
+        report.println();
+        report.printf("%s: %,d clients, %d request(s) each%n", algorithm, clients, requestsPerClient);
+        report.printf("%12s %12s %12s %10s %10s %10s %10s %10s%n",
+                "clients", "retained MB", "B/client", "gc ms", "p50 ns", "p99 ns", "p99.9 ns", "max ns");
+
+        Histogram latency = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        int segment = Math.max(1, clients / checkpoints);
+        long bytesPerClient = 0;
+        int client = 0;
+        try {
+            while (client < clients) {
+                long gcMillisBefore = totalGcMillis();
+                int segmentEnd = Math.min(clients, client + segment);
+                for (; client < segmentEnd; client++) {
+                    String clientId = "IP_" + client;
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        long start = System.nanoTime();
+                        strategy.allowRequest(clientId);
+                        latency.recordValue(Math.min(System.nanoTime() - start, HIGHEST_TRACKABLE_NANOS));
+                    }
+                }
+                long gcMillis = totalGcMillis() - gcMillisBefore;
+
+                long retained = usedHeapAfterGc() - baselineHeap;
+                bytesPerClient = retained / client;
+                report.printf("%,12d %12.1f %12d %10d %10d %10d %10d %10d%n",
+                        client, retained / (1024.0 * 1024.0), bytesPerClient, gcMillis,
+                        latency.getValueAtPercentile(50.0), latency.getValueAtPercentile(99.0),
+                        latency.getValueAtPercentile(99.9), latency.getMaxValue());
+                latency.reset();
+            }
+        } catch (OutOfMemoryError e) {
+            strategy = null;
+            report.printf("%s: breaking point at %,d clients (OutOfMemoryError, -Xmx %d MB)%n",
+                    algorithm, client, Runtime.getRuntime().maxMemory() / (1024 * 1024));
+            return;
+        }
+
+        // Keep the strategy reachable until the last measurement
+        assertThat(strategy.getRemainingRequests("IP_0")).isGreaterThanOrEqualTo(0);
+        assertThat(bytesPerClient)
+                .as("%s retains %d bytes per client", algorithm, bytesPerClient)
+                .isLessThanOrEqualTo(maxBytesPerClient);
+    }
+
+    private long usedHeapAfterGc() {
+        // Several rounds: a single System.gc() can leave floating garbage behind with concurrent collectors
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,300 @@
+package com.learning.ratelimiter.performance.loadgen;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator for a locally started application
+ * (mvn -Ploadgen test-compile exec:exec -Dloadgen.args="--mode=open --rate=2000").
+ *
+ * OPEN mode fires requests on a fixed arrival schedule regardless of how fast responses come back.
+ * CLOSED mode runs a fixed number of workers; give it --rate as well to pace each worker.
+ *
+ * Latency is measured from the time a request was *scheduled* to be sent, not from when it actually
+ * went out, so a stalled server shows up in the percentiles instead of silently lowering the send rate
+ * (coordinated omission). Unpaced closed-loop runs have no schedule and fall back to HdrHistogram's
+ * expected-interval correction when --expected-interval-us is given.
+ *
+ * Options (all --name=value):
+ *   --url=http://localhost:8080        --mode=open|closed        --rate=1000 (req/s, open default)
+ *   --concurrency=32                   --duration=30 (s)         --warmup=5 (s)
+ *   --keys=1000 (distinct clients)     --client-header=X-API-Key
+ *   --endpoints=/api/hello:70,/api/limited:20,POST@/api/submit:10
+ *   --expected-interval-us=0           --histogram-dir=target/loadgen
+ */
+public class LoadGenerator {
+
+    enum Mode { OPEN, CLOSED }
+
+    record Endpoint(String method, String path, int weight) {
+    }
+
+    private final Options options;
+    private final HttpClient httpClient;
+    private final ExecutorService callbackExecutor;
+    private final LoadReport report = new LoadReport();
+    private final String[] clientKeys;
+    private final Endpoint[] endpoints;
+    private final int totalWeight;
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+        this.callbackExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(callbackExecutor)
+                .build();
+        this.clientKeys = new String[options.keys];
+        for (int i = 0; i < options.keys; i++) {
+            clientKeys[i] = "loadgen-client-" + i;
+        }
+        this.endpoints = options.endpoints.toArray(new Endpoint[0]);
+        this.totalWeight = options.endpoints.stream().mapToInt(Endpoint::weight).sum();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        new LoadGenerator(options).run();
+    }
+
+    public void run() throws Exception {
+        System.out.println("Starting load: " + options);
+        long startNanos = System.nanoTime();
+        long warmupEndNanos = startNanos + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long endNanos = warmupEndNanos + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        report.measureFrom(warmupEndNanos);
+
+        if (options.mode == Mode.OPEN) {
+            runOpenLoop(startNanos, endNanos);
+        } else {
+            runClosedLoop(startNanos, endNanos);
+        }
+
+        awaitInFlight(TimeUnit.SECONDS.toNanos(30));
+        report.print(System.out, options.toString(), options.durationSeconds);
+        if (options.histogramDir != null) {
+            report.writeDistributions(new File(options.histogramDir));
+            System.out.println("Percentile distributions written to " + options.histogramDir);
+        }
+        callbackExecutor.shutdownNow();
+    }
+
+    private void runOpenLoop(long startNanos, long endNanos) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        for (long i = 0; ; i++) {
+            long intendedStart = startNanos + i * intervalNanos;
+            if (intendedStart >= endNanos) {
+                break;
+            }
+            waitUntil(intendedStart);
+            sendAsync(intendedStart);
+        }
+    }
+
+    private void runClosedLoop(long startNanos, long endNanos) throws InterruptedException {
+        long workerIntervalNanos = options.rate > 0
+                ? TimeUnit.SECONDS.toNanos(1) * options.concurrency / options.rate
+                : 0;
+        CountDownLatch done = new CountDownLatch(options.concurrency);
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < options.concurrency; w++) {
+            // Stagger paced workers so they do not fire in lock step
+            long offset = workerIntervalNanos * w / options.concurrency;
+            Thread worker = new Thread(() -> {
+                try {
+                    for (long i = 0; ; i++) {
+                        long intendedStart = workerIntervalNanos > 0
+                                ? startNanos + offset + i * workerIntervalNanos
+                                : System.nanoTime();
+                        if (intendedStart >= endNanos) {
+                            break;
+                        }
+                        waitUntil(intendedStart);
+                        sendBlocking(intendedStart, workerIntervalNanos > 0 ? 0 : options.expectedIntervalNanos);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "loadgen-worker-" + w);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+        done.await();
+    }
+
+    private void sendAsync(long intendedStartNanos) {
+        HttpRequest request = nextRequest();
+        report.recordSent(intendedStartNanos);
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - intendedStartNanos;
+                    if (error != null) {
+                        report.recordError(intendedStartNanos);
+                    } else {
+                        report.recordResponse(intendedStartNanos, response.statusCode(), latency, 0);
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+
+    private void sendBlocking(long intendedStartNanos, long expectedIntervalNanos) {
+        HttpRequest request = nextRequest();
+        report.recordSent(intendedStartNanos);
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            report.recordResponse(intendedStartNanos, response.statusCode(),
+                    System.nanoTime() - intendedStartNanos, expectedIntervalNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.recordError(intendedStartNanos);
+        } catch (Exception e) {
+            report.recordError(intendedStartNanos);
+        }
+    }
+
+    private HttpRequest nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Endpoint endpoint = pickEndpoint(random.nextInt(totalWeight));
+        String clientKey = clientKeys[random.nextInt(clientKeys.length)];
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(options.url + endpoint.path()))
+                .timeout(Duration.ofSeconds(10))
+                .header(options.clientHeader, clientKey);
+        if ("POST".equals(endpoint.method())) {
+            builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"source\":\"loadgen\"}"));
+        } else {
+            builder.GET();
+        }
+        return builder.build();
+    }
+
+    private Endpoint pickEndpoint(int ticket) {
+        for (Endpoint endpoint : endpoints) {
+            ticket -= endpoint.weight();
+            if (ticket < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+
+    private void awaitInFlight(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        if (inFlight.get() > 0) {
+            System.out.println("WARNING: " + inFlight.get() + " requests still in flight after timeout");
+        }
+    }
+
+    private static void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            // parkNanos overshoots by tens of microseconds, so spin for the last stretch
+            if (remaining > 100_000) {
+                LockSupport.parkNanos(remaining - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    static final class Options {
+        String url = "http://localhost:8080";
+        Mode mode = Mode.OPEN;
+        int rate = -1;
+        int concurrency = 32;
+        int durationSeconds = 30;
+        int warmupSeconds = 5;
+        int keys = 1000;
+        String clientHeader = "X-API-Key";
+        List<Endpoint> endpoints = List.of(new Endpoint("GET", "/api/hello", 1));
+        long expectedIntervalNanos = 0;
+        String histogramDir;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "url" -> options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    case "mode" -> options.mode = Mode.valueOf(value.toUpperCase());
+                    case "rate" -> options.rate = Integer.parseInt(value);
+                    case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                    case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "keys" -> options.keys = Integer.parseInt(value);
+                    case "client-header" -> options.clientHeader = value;
+                    case "endpoints" -> options.endpoints = parseEndpoints(value);
+                    case "expected-interval-us" -> options.expectedIntervalNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(value));
+                    case "histogram-dir" -> options.histogramDir = value;
+                    default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                }
+            }
+            if (options.rate < 0) {
+                // Open loop needs a schedule; closed loop runs unpaced unless asked otherwise
+                options.rate = options.mode == Mode.OPEN ? 1000 : 0;
+            }
+            if (options.mode == Mode.OPEN && options.rate == 0) {
+                throw new IllegalArgumentException("Open loop mode needs --rate > 0");
+            }
+            if (options.keys <= 0 || options.concurrency <= 0) {
+                throw new IllegalArgumentException("--keys and --concurrency must be positive");
+            }
+            return options;
+        }
+
+        /**
+         * "/api/hello:70,POST@/api/submit:10" - optional METHOD@ prefix, weight defaults to 1.
+         */
+        static List<Endpoint> parseEndpoints(String spec) {
+            List<Endpoint> endpoints = new ArrayList<>();
+            for (String entry : spec.split(",")) {
+                String method = "GET";
+                String pathAndWeight = entry.trim();
+                int at = pathAndWeight.indexOf('@');
+                if (at > 0) {
+                    method = pathAndWeight.substring(0, at).toUpperCase();
+                    pathAndWeight = pathAndWeight.substring(at + 1);
+                }
+                int colon = pathAndWeight.lastIndexOf(':');
+                String path = colon > 0 ? pathAndWeight.substring(0, colon) : pathAndWeight;
+                int weight = colon > 0 ? Integer.parseInt(pathAndWeight.substring(colon + 1)) : 1;
+                endpoints.add(new Endpoint(method, path, weight));
+            }
+            return endpoints;
+        }
+
+        @Override
+        public String toString() {
+            return "mode=" + mode +
+                    (mode == Mode.OPEN || rate > 0 ? ", rate=" + rate + "/s" : "") +
+                    (mode == Mode.CLOSED ? ", concurrency=" + concurrency : "") +
+                    ", duration=" + durationSeconds + "s, warmup=" + warmupSeconds + "s" +
+                    ", keys=" + keys + ", endpoints=" + endpoints;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.learning.ratelimiter.performance.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and counters for one load generator run.
+ *
+ * Allowed (2xx), rate limited (429) and everything else are kept in separate histograms,
+ * because a fast 429 path hides a slow allowed path when both land in the same distribution.
+ * All values are recorded in nanoseconds. With an expected interval the histograms also hold the
+ * synthetic samples that correct for coordinated omission, so they are only used for percentiles;
+ * every count comes from the per-status counters of real responses.
+ */
+class LoadReport {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Histogram allowed = newHistogram();
+    private final Histogram denied = newHistogram();
+    private final Histogram other = newHistogram();
+    private final LongAdder allowedResponses = new LongAdder();
+    private final LongAdder deniedResponses = new LongAdder();
+    private final LongAdder otherResponses = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private volatile long measureFromNanos = Long.MIN_VALUE;
+
+    private static Histogram newHistogram() {
+        return new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Only requests scheduled at or after this instant are counted; earlier ones belong to the warmup
+     * even when their response arrives later.
+     */
+    void measureFrom(long nanos) {
+        measureFromNanos = nanos;
+    }
+
+    void recordSent(long intendedStartNanos) {
+        if (intendedStartNanos >= measureFromNanos) {
+            sent.increment();
+        }
+    }
+
+    /**
+     * @param expectedIntervalNanos pacing interval for closed-loop runs without a schedule, 0 to record as-is
+     */
+    void recordResponse(long intendedStartNanos, int status, long latencyNanos, long expectedIntervalNanos) {
+        if (intendedStartNanos < measureFromNanos) {
+            return;
+        }
+        Histogram histogram;
+        if (status >= 200 && status < 300) {
+            histogram = allowed;
+            allowedResponses.increment();
+        } else if (status == 429) {
+            histogram = denied;
+            deniedResponses.increment();
+        } else {
+            histogram = other;
+            otherResponses.increment();
+        }
+        long value = Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS);
+        if (expectedIntervalNanos > 0) {
+            histogram.recordValueWithExpectedInterval(value, expectedIntervalNanos);
+        } else {
+            histogram.recordValue(value);
+        }
+    }
+
+    void recordError(long intendedStartNanos) {
+        if (intendedStartNanos >= measureFromNanos) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @param seconds length of the measured send schedule, used for the throughput figure
+     */
+    void print(PrintStream out, String description, double seconds) {
+        long allowedCount = allowedResponses.sum();
+        long deniedCount = deniedResponses.sum();
+        long otherCount = otherResponses.sum();
+        long completed = allowedCount + deniedCount + otherCount;
+
+        out.println();
+        out.println("=".repeat(90));
+        out.println("LOAD GENERATOR RESULTS - " + description);
+        out.println("=".repeat(90));
+        out.printf("Duration:        %.1f s%n", seconds);
+        out.printf("Sent:            %d%n", sent.sum());
+        out.printf("Completed:       %d (%.1f req/s)%n", completed, completed / seconds);
+        out.printf("Allowed (2xx):   %d (%.1f%%)%n", allowedCount, percent(allowedCount, completed));
+        out.printf("Denied (429):    %d (%.1f%%)%n", deniedCount, percent(deniedCount, completed));
+        out.printf("Other status:    %d%n", otherCount);
+        out.printf("Errors:          %d%n", errors.sum());
+        out.println();
+        out.printf("%-14s %10s %10s %10s %10s %10s%n", "Latency (ms)", "count", "p50", "p99", "p99.9", "max");
+        printLatencyRow(out, "allowed", allowedCount, allowed);
+        printLatencyRow(out, "429", deniedCount, denied);
+        if (otherCount > 0) {
+            printLatencyRow(out, "other", otherCount, other);
+        }
+        out.println("=".repeat(90));
+    }
+
+    /**
+     * Full percentile distributions in HdrHistogram's .hgrm format, for plotting.
+     */
+    void writeDistributions(File directory) throws FileNotFoundException {
+        directory.mkdirs();
+        writeDistribution(new File(directory, "allowed.hgrm"), allowed);
+        writeDistribution(new File(directory, "denied.hgrm"), denied);
+    }
+
+    private static void writeDistribution(File file, Histogram histogram) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(file)) {
+            // Scale nanoseconds to milliseconds in the output
+            histogram.outputPercentileDistribution(out, 1_000_000.0);
+        }
+    }
+
+    private static void printLatencyRow(PrintStream out, String label, long count, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            out.printf("%-14s %10d %10s %10s %10s %10s%n", label, 0, "-", "-", "-", "-");
+            return;
+        }
+        out.printf("%-14s %10d %10.2f %10.2f %10.2f %10.2f%n",
+                label,
+                count,
+                millis(histogram.getValueAtPercentile(50.0)),
+                millis(histogram.getValueAtPercentile(99.0)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0.0 : part * 100.0 / total;
+    }
+}
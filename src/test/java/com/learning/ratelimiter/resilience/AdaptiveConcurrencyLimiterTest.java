@@ -0,0 +1,162 @@
+package com.learning.ratelimiter.resilience;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    private FakeTimeProvider timeProvider;
+    private long nowNanos;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new FakeTimeProvider();
+        nowNanos = 0;
+        timeProvider.setCurrentTimeNanos(nowNanos);
+    }
+
+    @Test
+    void shouldShedRequestsPastTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.5, 0.2, timeProvider);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.tryAcquire();
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+
+        first.release();
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    void shouldRaiseTheLimitWhileLatencyHoldsAtFullConcurrency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.5, 0.2, timeProvider);
+
+        for (int round = 0; round < 20; round++) {
+            saturatedRound(limiter, 10);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(10).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void shouldLowerTheLimitWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.5, 0.2, timeProvider);
+        for (int round = 0; round < 20; round++) {
+            saturatedRound(limiter, 10);
+        }
+        int limitAtNormalLatency = limiter.getLimit();
+
+        // The backend slows to four times its normal latency
+        for (int round = 0; round < 3; round++) {
+            saturatedRound(limiter, 40);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(limitAtNormalLatency);
+    }
+
+    @Test
+    void shouldNotRaiseTheLimitWhenFarBelowIt() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.5, 0.2, timeProvider);
+
+        for (int i = 0; i < 100; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            advanceMillis(10);
+            permit.complete();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldNotSampleReleasedRequests() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.5, 0.2, timeProvider);
+        saturatedRound(limiter, 10);
+        int limit = limiter.getLimit();
+
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+        advanceMillis(10_000);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+
+        assertThat(limiter.getLimit()).isEqualTo(limit);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void shouldStayWithinMinAndMax() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(6, 5, 8, 1.5, 1.0, timeProvider);
+
+        for (int round = 0; round < 20; round++) {
+            saturatedRound(limiter, 10);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        long latency = 10;
+        for (int round = 0; round < 20; round++) {
+            latency *= 2;
+            saturatedRound(limiter, latency);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldFallToTheMinimumWhileTheSlowdownLasts() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 100, 1.5, 0.2, timeProvider);
+        for (int round = 0; round < 20; round++) {
+            saturatedRound(limiter, 10);
+        }
+
+        // Ten times the normal latency, for long enough that small limits have to keep falling too
+        for (int round = 0; round < 40; round++) {
+            saturatedRound(limiter, 100);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectInvalidConfiguration() {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(0, 0, 10))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(20, 1, 10))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(5, 1, 10, 0.5, 0.2, timeProvider))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(5, 1, 10, 1.5, 0, timeProvider))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+    }
+
+    // Fills the limit, lets every request take latencyMillis, then completes them all
+    private void saturatedRound(AdaptiveConcurrencyLimiter limiter, long latencyMillis) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+        advanceMillis(latencyMillis);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::complete);
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquireAll(AdaptiveConcurrencyLimiter limiter) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        return permits;
+    }
+
+    private void advanceMillis(long millis) {
+        nowNanos += millis * MILLI;
+        timeProvider.setCurrentTimeNanos(nowNanos);
+    }
+}
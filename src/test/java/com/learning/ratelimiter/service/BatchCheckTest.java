@@ -0,0 +1,78 @@
+package com.learning.ratelimiter.service;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.strategy.BatchDecision;
+import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchCheckTest {
+
+    private RateLimitService service;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setDefaultMaxRequests(2);
+        RateLimiterProperties.EndpointConfig limited = new RateLimiterProperties.EndpointConfig();
+        limited.setMaxRequests(1);
+        limited.setAlgorithm(RateLimitingAlgorithm.GCRA);
+        RateLimiterProperties.EndpointConfig hello = new RateLimiterProperties.EndpointConfig();
+        hello.setMaxRequests(2);
+        properties.getEndpoints().put("/api/hello", hello);
+        properties.getEndpoints().put("/api/limited", limited);
+        service = new RateLimitService(properties, new RateLimitMetricsService(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void shouldDecideEachPairInOrderAcrossEndpoints() {
+        String[] clientIds = {"API_a", "API_a", "API_b", "API_a", "API_a"};
+        String[] endpoints = {"/api/hello", "/api/limited", "/api/hello", "/api/hello", "/api/hello"};
+
+        long[] decisions = service.checkRateLimits(clientIds, endpoints);
+
+        assertThat(decisions).hasSize(5);
+        assertDecision(decisions[0], true, 1);
+        assertDecision(decisions[1], true, 0);
+        assertDecision(decisions[2], true, 1);
+        assertDecision(decisions[3], true, 0);
+        assertDecision(decisions[4], false, 0);
+    }
+
+    @Test
+    void shouldRejectMismatchedArrays() {
+        assertThatThrownBy(() -> service.checkRateLimits(new String[]{"API_a"}, new String[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectEndpointsThatAreNotConfigured() {
+        assertThatThrownBy(() -> service.checkRateLimits(new String[]{"API_a", "API_a"},
+                new String[]{"/api/hello", "/api/made-up"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("/api/made-up");
+
+        // Rejected before anything was decided
+        assertThat(BatchDecision.remaining(service.checkRateLimits(new String[]{"API_a"}, new String[]{"/api/hello"})[0]))
+                .isEqualTo(1);
+        assertThat(service.isConfiguredEndpoint("api/limited")).isTrue();
+        assertThat(service.isConfiguredEndpoint("/api/made-up")).isFalse();
+    }
+
+    @Test
+    void shouldRoundTripDecisionEncoding() {
+        assertThat(BatchDecision.isAllowed(BatchDecision.encode(true, 42))).isTrue();
+        assertThat(BatchDecision.remaining(BatchDecision.encode(true, 42))).isEqualTo(42);
+        assertThat(BatchDecision.isAllowed(BatchDecision.encode(false, -1))).isFalse();
+        assertThat(BatchDecision.remaining(BatchDecision.encode(false, -1))).isEqualTo(-1);
+    }
+
+    private static void assertDecision(long decision, boolean allowed, long remaining) {
+        assertThat(BatchDecision.isAllowed(decision)).isEqualTo(allowed);
+        assertThat(BatchDecision.remaining(decision)).isEqualTo(remaining);
+    }
+}
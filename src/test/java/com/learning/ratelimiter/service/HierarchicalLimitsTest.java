@@ -0,0 +1,66 @@
+package com.learning.ratelimiter.service;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.strategy.RateLimitingAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalLimitsTest {
+
+    private RateLimiterProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        properties.setDefaultMaxRequests(10);
+    }
+
+    @Test
+    void shouldShareTheClientBudgetAcrossMatchingEndpoints() {
+        properties.getClientBudgets().put("/api/**",
+                new RateLimiterProperties.LimitConfig(3, 60_000, RateLimitingAlgorithm.SLIDING_WINDOW_COUNTER));
+        RateLimitService service = createService();
+
+        assertThat(service.checkRateLimit(request("/api/a", "client-1")).isAllowed()).isTrue();
+        assertThat(service.checkRateLimit(request("/api/b", "client-1")).isAllowed()).isTrue();
+        assertThat(service.checkRateLimit(request("/api/a", "client-1")).isAllowed()).isTrue();
+
+        RateLimitService.RateLimitResult denied = service.checkRateLimit(request("/api/b", "client-1"));
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getLimit()).isEqualTo(3);
+        assertThat(service.checkRateLimit(request("/api/b", "client-2")).isAllowed()).isTrue();
+        assertThat(service.checkRateLimit(request("/other", "client-1")).isAllowed()).isTrue();
+    }
+
+    @Test
+    void shouldCapTheEndpointTotalAcrossClients() {
+        RateLimiterProperties.EndpointConfig config = new RateLimiterProperties.EndpointConfig();
+        config.setMaxRequests(5);
+        config.setTotal(new RateLimiterProperties.LimitConfig(2, 60_000, RateLimitingAlgorithm.FIXED_WINDOW));
+        properties.getEndpoints().put("/api/hello", config);
+        RateLimitService service = createService();
+
+        assertThat(service.checkRateLimit(request("/api/hello", "client-1")).isAllowed()).isTrue();
+        assertThat(service.checkRateLimit(request("/api/hello", "client-2")).isAllowed()).isTrue();
+
+        RateLimitService.RateLimitResult denied = service.checkRateLimit(request("/api/hello", "client-3"));
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getRemainingRequests()).isZero();
+        assertThat(denied.getLimit()).isEqualTo(2);
+    }
+
+    private RateLimitService createService() {
+        return new RateLimitService(properties, new RateLimitMetricsService(new SimpleMeterRegistry()));
+    }
+
+    private MockHttpServletRequest request(String uri, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("X-API-Key", apiKey);
+        return request;
+    }
+}
@@ -0,0 +1,60 @@
+package com.learning.ratelimiter.service;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCostTest {
+
+    private RateLimitService service;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        properties.setDefaultMaxRequests(10);
+        properties.setCostHeader("X-RateLimit-Cost");
+        service = new RateLimitService(properties, new RateLimitMetricsService(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void shouldChargeTheCostFromTheHeader() {
+        MockHttpServletRequest request = request("batch-client");
+        request.addHeader("X-RateLimit-Cost", "4");
+
+        assertThat(service.checkRateLimit(request).getRemainingRequests()).isEqualTo(6);
+        assertThat(service.checkRateLimit(request).getRemainingRequests()).isEqualTo(2);
+        assertThat(service.checkRateLimit(request).isAllowed()).isFalse();
+    }
+
+    @Test
+    void shouldPreferTheRequestAttributeOverTheHeader() {
+        MockHttpServletRequest request = request("batch-client");
+        request.addHeader("X-RateLimit-Cost", "4");
+        request.setAttribute("rateLimitCost", 7);
+
+        assertThat(service.checkRateLimit(request).getRemainingRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldChargeOneForMissingOrInvalidCost() {
+        MockHttpServletRequest invalid = request("client-1");
+        invalid.addHeader("X-RateLimit-Cost", "lots");
+        MockHttpServletRequest negative = request("client-1");
+        negative.addHeader("X-RateLimit-Cost", "-5");
+
+        assertThat(service.checkRateLimit(request("client-1")).getRemainingRequests()).isEqualTo(9);
+        assertThat(service.checkRateLimit(invalid).getRemainingRequests()).isEqualTo(8);
+        assertThat(service.checkRateLimit(negative).getRemainingRequests()).isEqualTo(7);
+    }
+
+    private MockHttpServletRequest request(String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/submit");
+        request.addHeader("X-API-Key", apiKey);
+        return request;
+    }
+}
@@ -0,0 +1,54 @@
+package com.learning.ratelimiter.service;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StageTimingTest {
+
+    @Test
+    void shouldTimeEveryStageWhenEveryRequestIsSampled() {
+        RateLimitMetricsService metricsService = new RateLimitMetricsService(new SimpleMeterRegistry());
+        RateLimitService service = createService(1, metricsService);
+
+        service.checkRateLimit(request("client-1"));
+        service.checkRateLimit(request("client-2"));
+
+        for (RateLimitMetricsService.Stage stage : RateLimitMetricsService.Stage.values()) {
+            assertThat(metricsService.getStageTimer(stage).count())
+                    .as("samples for stage %s", stage)
+                    .isEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldNotTimeStagesWhenSamplingIsOff() {
+        RateLimitMetricsService metricsService = new RateLimitMetricsService(new SimpleMeterRegistry());
+        RateLimitService service = createService(0, metricsService);
+
+        for (int i = 0; i < 100; i++) {
+            service.checkRateLimit(request("client-" + i));
+        }
+
+        for (RateLimitMetricsService.Stage stage : RateLimitMetricsService.Stage.values()) {
+            assertThat(metricsService.getStageTimer(stage).count()).isZero();
+        }
+        assertThat(metricsService.getRateLimitCheckTimer().count()).isEqualTo(100);
+    }
+
+    private RateLimitService createService(int sampleRate, RateLimitMetricsService metricsService) {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        properties.setStageTimingSampleRate(sampleRate);
+        return new RateLimitService(properties, metricsService);
+    }
+
+    private MockHttpServletRequest request(String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hello");
+        request.addHeader("X-API-Key", apiKey);
+        return request;
+    }
+}
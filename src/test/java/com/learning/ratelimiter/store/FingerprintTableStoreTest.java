@@ -0,0 +1,223 @@
+package com.learning.ratelimiter.store;
+
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FingerprintTableStoreTest {
+
+    static Stream<Arguments> stores() {
+        return Stream.of(
+                Arguments.of(Named.<IntFunction<FingerprintTableStore>>of("off-heap", OffHeapClientStateStore::new)),
+                Arguments.of(Named.<IntFunction<FingerprintTableStore>>of("array", ArrayClientStateStore::new)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldCreateFindAndUpdateClientState(IntFunction<FingerprintTableStore> newStore) {
+        FingerprintTableStore store = newStore.apply(100);
+
+        assertThat(store.find("client-1")).isNull();
+        StateCell cell = store.findOrCreate("client-1", 42);
+        assertThat(cell.get()).isEqualTo(42);
+        assertThat(store.findOrCreate("client-1", 7).get()).as("existing state is kept").isEqualTo(42);
+
+        assertThat(cell.compareAndSet(41, 1)).isFalse();
+        assertThat(cell.compareAndSet(42, 43)).isTrue();
+        assertThat(store.find("client-1").get()).isEqualTo(43);
+        assertThat(store.find("client-2")).isNull();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldKeepProbeChainsIntactAcrossRemovals(IntFunction<FingerprintTableStore> newStore) {
+        FingerprintTableStore store = newStore.apply(1_000);
+        for (int i = 0; i < 1_000; i++) {
+            store.findOrCreate("client-" + i, i);
+        }
+
+        for (int i = 0; i < 1_000; i += 2) {
+            store.remove("client-" + i);
+        }
+
+        assertThat(store.size()).isEqualTo(500);
+        for (int i = 0; i < 1_000; i++) {
+            StateCell cell = store.find("client-" + i);
+            if (i % 2 == 0) {
+                assertThat(cell).isNull();
+            } else {
+                assertThat(cell.get()).isEqualTo(i);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldReportUnavailableOnceFull(IntFunction<FingerprintTableStore> newStore) {
+        FingerprintTableStore store = newStore.apply(2);
+        store.findOrCreate("client-1", 0);
+        store.findOrCreate("client-2", 0);
+
+        assertThatThrownBy(() -> store.findOrCreate("client-3", 0))
+                .isInstanceOf(RateLimiterExceptions.RateLimiterUnavailableException.class);
+        assertThat(store.findOrCreate("client-1", 0)).isNotNull();
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldReuseTheRoomOfRemovedClients(IntFunction<FingerprintTableStore> newStore) {
+        FingerprintTableStore store = newStore.apply(100);
+
+        // Ten times the capacity in distinct clients, never more than 100 at once
+        for (int i = 0; i < 1_000; i++) {
+            store.findOrCreate("client-" + i, i);
+            if (i >= 99) {
+                store.remove("client-" + (i - 99));
+            }
+        }
+        assertThat(store.size()).isEqualTo(99);
+        for (int i = 0; i < 1_000; i++) {
+            store.findOrCreate("again-" + i, i);
+            store.remove("again-" + i);
+        }
+
+        assertThat(store.findOrCreate("last", 42).get()).isEqualTo(42);
+        assertThat(store.size()).isEqualTo(100);
+        assertThat(store.find("client-999").get()).isEqualTo(999);
+        assertThatThrownBy(() -> store.findOrCreate("one-too-many", 0))
+                .isInstanceOf(RateLimiterExceptions.RateLimiterUnavailableException.class);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldRetireACellWhoseSlotWasTakenOver(IntFunction<FingerprintTableStore> newStore) {
+        FingerprintTableStore store = newStore.apply(1);
+        // Taken on another thread, since this thread's lookups all repoint one cell
+        StateCell stale = CompletableFuture.supplyAsync(() -> store.findOrCreate("client-1", 5)).join();
+
+        assertThat(store.retire("client-1", stale, 5)).isTrue();
+        StateCell cell = store.findOrCreate("client-2", 7);
+
+        // client-2 now holds the store's only room; client-1's old cell must not read or move its state
+        assertThat(stale.get()).isEqualTo(StateCell.RETIRED);
+        assertThat(cell.get()).isEqualTo(7);
+        assertThat(stale.compareAndSet(5, 6)).isFalse();
+        assertThat(cell.get()).isEqualTo(7);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldNotLetAStaleCasLandOnTheNextClient(IntFunction<FingerprintTableStore> newStore) throws Exception {
+        FingerprintTableStore store = newStore.apply(1);
+        ExecutorService stalled = Executors.newSingleThreadExecutor();
+        try {
+            // A request reads client-1's state, then stalls before its CAS
+            StateCell stale = stalled.submit(() -> store.findOrCreate("client-1", 5)).get();
+            assertThat(stale.get()).isEqualTo(5);
+
+            // Reset, then the room is claimed again starting from the very state the request read
+            store.remove("client-1");
+            StateCell next = store.findOrCreate("client-2", 5);
+
+            assertThat(stale.compareAndSet(5, 6)).isFalse();
+            assertThat(stale.get()).isEqualTo(StateCell.RETIRED);
+            assertThat(next.get()).isEqualTo(5);
+            assertThat(store.size()).isEqualTo(1);
+
+            // The same client claimed anew is a new claim too
+            StateCell staleAgain = stalled.submit(() -> store.find("client-2")).get();
+            store.remove("client-2");
+            StateCell reclaimed = store.findOrCreate("client-2", 5);
+
+            assertThat(staleAgain.compareAndSet(5, 6)).isFalse();
+            assertThat(staleAgain.get()).isEqualTo(StateCell.RETIRED);
+            assertThat(reclaimed.get()).isEqualTo(5);
+        } finally {
+            stalled.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldFindEveryClientWhileTombstonesAreReusedAndCleared(IntFunction<FingerprintTableStore> newStore) {
+        FingerprintTableStore store = newStore.apply(1_000);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 1_000; i++) {
+                if ((i + round) % 3 == 0) {
+                    store.remove("client-" + i);
+                } else {
+                    store.findOrCreate("client-" + i, i);
+                }
+            }
+            for (int i = 0; i < 1_000; i++) {
+                StateCell cell = store.find("client-" + i);
+                if ((i + round) % 3 == 0) {
+                    assertThat(cell).isNull();
+                } else {
+                    assertThat(cell.get()).isEqualTo(i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectUnsupportedCapacities() {
+        assertThatThrownBy(() -> new OffHeapClientStateStore(0))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+        assertThatThrownBy(() -> new OffHeapClientStateStore(OffHeapClientStateStore.MAX_CLIENTS + 1))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+        assertThatThrownBy(() -> new ArrayClientStateStore(0))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldCreateEachClientOnceUnderConcurrency(IntFunction<FingerprintTableStore> newStore) throws Exception {
+        FingerprintTableStore store = newStore.apply(10_000);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 5_000; i++) {
+                    StateCell cell = store.findOrCreate("client-" + i, 0);
+                    long current;
+                    do {
+                        current = cell.get();
+                    } while (!cell.compareAndSet(current, current + 1));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(store.size()).isEqualTo(5_000);
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(store.find("client-" + i).get()).isEqualTo(threads);
+        }
+    }
+}
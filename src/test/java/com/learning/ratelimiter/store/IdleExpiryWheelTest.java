@@ -0,0 +1,86 @@
+package com.learning.ratelimiter.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdleExpiryWheelTest {
+
+    private final List<String> expired = new ArrayList<>();
+    private final Map<String, Long> nextDeadlines = new HashMap<>();
+
+    private final IdleExpiryWheel.Reclaimer reclaimer = (clientId, state, now) -> {
+        Long next = nextDeadlines.remove(clientId);
+        if (next != null) {
+            return next;
+        }
+        expired.add(clientId + "@" + now);
+        return IdleExpiryWheel.REMOVED;
+    };
+
+    @Test
+    void shouldExpireEntriesOnlyOnceTheirDeadlinePasses() {
+        IdleExpiryWheel wheel = new IdleExpiryWheel(10);
+        wheel.advance(0, reclaimer);
+        wheel.schedule("a", null, 55);
+        wheel.schedule("b", null, 5_000);
+        assertThat(wheel.size()).isEqualTo(2);
+
+        assertThat(wheel.advance(49, reclaimer)).isZero();
+        assertThat(wheel.advance(50, reclaimer)).isEqualTo(1);
+        assertThat(expired).containsExactly("a@50");
+
+        assertThat(wheel.advance(4_990, reclaimer)).isZero();
+        assertThat(wheel.advance(5_000, reclaimer)).isEqualTo(1);
+        assertThat(expired).containsExactly("a@50", "b@5000");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldRescheduleClientsThatAreNotIdleYet() {
+        IdleExpiryWheel wheel = new IdleExpiryWheel(10);
+        wheel.advance(0, reclaimer);
+        wheel.schedule("a", null, 100);
+        nextDeadlines.put("a", 300L);
+
+        assertThat(wheel.advance(100, reclaimer)).isZero();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(290, reclaimer)).isZero();
+        assertThat(wheel.advance(300, reclaimer)).isEqualTo(1);
+        assertThat(expired).containsExactly("a@300");
+    }
+
+    @Test
+    void shouldHandleDeadlinesBeyondTheWheelAndLongGaps() {
+        IdleExpiryWheel wheel = new IdleExpiryWheel(1);
+        wheel.advance(0, reclaimer);
+        // Past the 2^24 ticks the levels cover
+        wheel.schedule("far", null, 100_000_000L);
+        wheel.schedule("near", null, 10);
+
+        assertThat(wheel.advance(20_000_000L, reclaimer)).isEqualTo(1);
+        assertThat(expired).containsExactly("near@20000000");
+        assertThat(wheel.advance(99_999_999L, reclaimer)).isZero();
+        assertThat(wheel.advance(100_000_000L, reclaimer)).isEqualTo(1);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldExpireEveryEntryWalkingTickByTick() {
+        IdleExpiryWheel wheel = new IdleExpiryWheel(1);
+        wheel.advance(0, reclaimer);
+        for (int i = 1; i <= 5_000; i++) {
+            wheel.schedule("client-" + i, null, i);
+        }
+        int removed = 0;
+        for (long now = 0; now <= 5_000; now += 7) {
+            removed += wheel.advance(now, reclaimer);
+            assertThat(removed).isEqualTo((int) now);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedClientStrategyTest {
+
+    private static final int MAX_CLIENTS = 100;
+
+    @Test
+    void shouldNeverKeepStateForMoreClientsThanTheCap() {
+        CountingStrategy counting = new CountingStrategy(10);
+        BoundedClientStrategy strategy = new BoundedClientStrategy(counting, MAX_CLIENTS);
+
+        for (int i = 0; i < 10_000; i++) {
+            strategy.allowRequest("scan-" + i);
+            assertThat(counting.clients()).isLessThanOrEqualTo(MAX_CLIENTS);
+        }
+
+        assertThat(strategy.getTrackedClients()).isEqualTo(MAX_CLIENTS);
+        assertThat(strategy.getEvictions()).isEqualTo(10_000 - MAX_CLIENTS);
+    }
+
+    @Test
+    void shouldKeepHeavyUsersThroughAScanOfOneShotClients() {
+        CountingStrategy counting = new CountingStrategy(1_000);
+        BoundedClientStrategy strategy = new BoundedClientStrategy(counting, MAX_CLIENTS);
+        for (int round = 0; round < 20; round++) {
+            for (int user = 0; user < 10; user++) {
+                strategy.allowRequest("heavy-" + user);
+            }
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            strategy.allowRequest("spoofed-" + i);
+            if (i % 100 == 0) {
+                strategy.allowRequest("heavy-" + (i / 100) % 10);
+            }
+        }
+
+        for (int user = 0; user < 10; user++) {
+            assertThat(counting.resets).doesNotContainKey("heavy-" + user);
+            // 20 requests up front plus 50 during the scan
+            assertThat(counting.getRemainingRequests("heavy-" + user)).isEqualTo(1_000 - 70);
+        }
+        assertThat(counting.clients()).isLessThanOrEqualTo(MAX_CLIENTS);
+    }
+
+    @Test
+    void shouldStillLimitTrackedClients() {
+        FakeTimeProvider timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000);
+        RateLimitingStrategy strategy = new RateLimiterFactory(RateLimitingAlgorithm.FIXED_WINDOW,
+                new RateLimiterFactory.Configuration(3, 60_000).withMaxClients(MAX_CLIENTS), timeProvider)
+                .createStrategy();
+
+        assertThat(strategy).isInstanceOf(BoundedClientStrategy.class);
+        for (int i = 0; i < 3; i++) {
+            assertThat(strategy.allowRequest("client-a")).isTrue();
+        }
+        assertThat(strategy.allowRequest("client-a")).isFalse();
+        assertThat(strategy.getRemainingRequests("client-a")).isZero();
+    }
+
+    @Test
+    void shouldHoldTheCapUnderConcurrentFloods() throws InterruptedException {
+        CountingStrategy counting = new CountingStrategy(10);
+        BoundedClientStrategy strategy = new BoundedClientStrategy(counting, MAX_CLIENTS);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    strategy.allowRequest(i % 4 == 0 ? "regular-" + (i % 40) : "flood-" + thread + "-" + i);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(strategy.getTrackedClients()).isLessThanOrEqualTo(MAX_CLIENTS);
+        // Requests that raced with their client's eviction dropped what they left behind
+        assertThat(counting.clients()).isLessThanOrEqualTo(MAX_CLIENTS);
+    }
+
+    @Test
+    void shouldRejectANonPositiveCap() {
+        assertThatThrownBy(() -> new BoundedClientStrategy(new CountingStrategy(1), 0))
+                .hasMessageContaining("maxClients");
+    }
+
+    // Counts requests per client and forgets a client on reset, so the test can see how many it holds
+    private static final class CountingStrategy implements RateLimitingStrategy {
+        private final int limit;
+        private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+        private final Map<String, Boolean> resets = new ConcurrentHashMap<>();
+
+        CountingStrategy(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean allowRequest(String clientId) {
+            return allowRequest(clientId, 1);
+        }
+
+        @Override
+        public boolean allowRequest(String clientId, int permits) {
+            return counts.merge(clientId, permits, Integer::sum) <= limit;
+        }
+
+        @Override
+        public void release(String clientId, int permits) {
+            counts.computeIfPresent(clientId, (id, count) -> Math.max(0, count - permits));
+        }
+
+        @Override
+        public void reset(String clientId) {
+            counts.remove(clientId);
+            resets.put(clientId, Boolean.TRUE);
+        }
+
+        @Override
+        public long getRemainingRequests(String clientId) {
+            return Math.max(0, limit - counts.getOrDefault(clientId, 0));
+        }
+
+        int clients() {
+            return counts.size();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchStrategyTest {
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new FakeTimeProvider();
+    }
+
+    @Test
+    void shouldAllowUpToLimitWithinOneWindow() {
+        CountMinSketchStrategy strategy = new CountMinSketchStrategy(10, 10_000, 1024, timeProvider);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(strategy.allowRequest("client-1")).isTrue();
+            assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(9 - i);
+        }
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+        assertThat(strategy.getRemainingRequests("client-2")).isEqualTo(10);
+    }
+
+    @Test
+    void shouldWeightPreviousWindowByRemainingOverlap() {
+        CountMinSketchStrategy strategy = new CountMinSketchStrategy(10, 10_000, 1024, timeProvider);
+        timeProvider.setCurrentTime(9_900);
+        for (int i = 0; i < 10; i++) {
+            strategy.allowRequest("client-1");
+        }
+
+        // 25% into the next window: 75% of the previous 10 requests still count
+        timeProvider.setCurrentTime(12_500);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(2);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+
+        // Two windows on, nothing is left of either sketch's counts
+        timeProvider.setCurrentTime(30_000);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(10);
+    }
+
+    @Test
+    void shouldKeepTheSameMemoryForAnyNumberOfClients() {
+        CountMinSketchStrategy strategy = new CountMinSketchStrategy(10, 60_000, 65_536, timeProvider);
+        long bytes = strategy.getSketchBytes();
+
+        for (int i = 0; i < 100_000; i++) {
+            strategy.allowRequest("spoofed-" + i);
+        }
+
+        assertThat(strategy.getSketchBytes()).isEqualTo(bytes).isEqualTo(2L * 4 * 65_536 * Integer.BYTES);
+        // Overcount stays within e * N / width = 4.1 requests for N = 100,000
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(strategy.getRemainingRequests("fresh-" + i)).isGreaterThanOrEqualTo(10 - 5);
+        }
+    }
+
+    @Test
+    void shouldNeverAllowMoreThanTheLimitWhenClientsCollide() {
+        // 16 counters a row for 1,000 clients: every estimate is mostly other clients' requests
+        CountMinSketchStrategy strategy = new CountMinSketchStrategy(3, 60_000, 16, timeProvider);
+
+        int[] allowed = new int[1_000];
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 1_000; i++) {
+                allowed[i] += strategy.allowRequest("client-" + i) ? 1 : 0;
+            }
+        }
+
+        // Collisions only ever deny early
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(allowed[i]).as("client-%d", i).isLessThanOrEqualTo(3);
+        }
+        assertThat(allowed[0]).isPositive();
+    }
+
+    @Test
+    void shouldAllowExactlyTheLimitUnderConcurrentRequests() throws InterruptedException {
+        CountMinSketchStrategy strategy = new CountMinSketchStrategy(100, 60_000, 1024, timeProvider);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 50; i++) {
+                    if (strategy.allowRequest("client-1")) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(allowed.get()).isEqualTo(100);
+    }
+}
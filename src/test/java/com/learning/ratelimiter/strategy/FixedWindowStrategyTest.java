@@ -0,0 +1,116 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.monitoring.ContentionMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixedWindowStrategyTest {
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new FakeTimeProvider();
+    }
+
+    @Test
+    void shouldAnchorWindowAtFirstRequest() {
+        FixedWindowStrategy strategy = createStrategy(2, false);
+        timeProvider.setCurrentTime(1_500);
+        strategy.allowRequest("client-1");
+        strategy.allowRequest("client-1");
+
+        timeProvider.setCurrentTime(2_499);
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+
+        timeProvider.setCurrentTime(2_500);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(2);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShareWindowBoundariesWhenEpochAligned() {
+        FixedWindowStrategy strategy = createStrategy(2, true);
+        timeProvider.setCurrentTime(1_500);
+        strategy.allowRequest("client-1");
+        strategy.allowRequest("client-1");
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+
+        // Next aligned window starts at 2000, not 1500 + 1000
+        timeProvider.setCurrentTime(1_999);
+        assertThat(strategy.getRemainingRequests("client-1")).isZero();
+        timeProvider.setCurrentTime(2_000);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(2);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shouldAdmitExactlyTheLimitForOneHotKey(boolean epochAligned) throws InterruptedException {
+        FixedWindowStrategy strategy = createStrategy(500, epochAligned);
+        timeProvider.setCurrentTime(10_000);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 250; i++) {
+                    if (strategy.allowRequest("hot-key")) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(allowed.get()).isEqualTo(500);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shouldStartOverAfterReset(boolean epochAligned) {
+        FixedWindowStrategy strategy = createStrategy(1, epochAligned);
+        strategy.allowRequest("client-1");
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+
+        strategy.reset("client-1");
+
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shouldDecideBatchWithRemainingFromTheSameUpdate(boolean epochAligned) {
+        FixedWindowStrategy strategy = createStrategy(2, epochAligned);
+
+        long[] decisions = strategy.allowRequests(new String[]{"client-1", "client-2", "client-1", "client-1"});
+
+        assertThat(decisions).containsExactly(
+                BatchDecision.encode(true, 1),
+                BatchDecision.encode(true, 1),
+                BatchDecision.encode(true, 0),
+                BatchDecision.encode(false, 0));
+    }
+
+    private FixedWindowStrategy createStrategy(int maxRequests, boolean epochAligned) {
+        return new FixedWindowStrategy(maxRequests, 1_000, epochAligned, timeProvider, ContentionMonitor.NOOP);
+    }
+}
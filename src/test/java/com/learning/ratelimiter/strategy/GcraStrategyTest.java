@@ -0,0 +1,87 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GcraStrategyTest {
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000);
+    }
+
+    @Test
+    void shouldAllowFullBurstThenDeny() {
+        GcraStrategy strategy = new GcraStrategy(10, 10_000, timeProvider);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(strategy.allowRequest("client-1")).isTrue();
+            assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(9 - i);
+        }
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+    }
+
+    @Test
+    void shouldRefillOneRequestPerEmissionInterval() {
+        GcraStrategy strategy = new GcraStrategy(10, 10_000, timeProvider);
+        for (int i = 0; i < 10; i++) {
+            strategy.allowRequest("client-1");
+        }
+
+        assertThat(strategy.getRetryAfterMillis("client-1")).isEqualTo(1_000);
+        assertThat(strategy.getResetMillis("client-1")).isEqualTo(10_000);
+
+        timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 999);
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+        assertThat(strategy.getRetryAfterMillis("client-1")).isEqualTo(1);
+
+        timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 1);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+    }
+
+    @Test
+    void shouldKeepExactRateWhenWindowDoesNotDivideEvenly() {
+        // 3 per 10s: one request every 3333.33ms, so exactly 3 refills after 10s
+        GcraStrategy strategy = new GcraStrategy(3, 10_000, timeProvider);
+        for (int i = 0; i < 3; i++) {
+            strategy.allowRequest("client-1");
+        }
+
+        timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 9_999);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(2);
+        timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 1);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(3);
+        assertThat(strategy.getResetMillis("client-1")).isZero();
+    }
+
+    @Test
+    void shouldNotOverAdmitUnderConcurrency() throws InterruptedException {
+        GcraStrategy strategy = new GcraStrategy(100, 60_000, timeProvider);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 1_000; i++) {
+            executor.submit(() -> {
+                if (strategy.allowRequest("shared")) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(allowed.get()).isEqualTo(100);
+    }
+}
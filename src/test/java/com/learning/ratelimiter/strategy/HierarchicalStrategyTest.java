@@ -0,0 +1,89 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalStrategyTest {
+
+    private FixedWindowStrategy perClient;
+    private FixedWindowStrategy endpointTotal;
+    private HierarchicalStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        FakeTimeProvider timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000);
+        perClient = new FixedWindowStrategy(3, 60_000, timeProvider);
+        endpointTotal = new FixedWindowStrategy(4, 60_000, timeProvider);
+        strategy = new HierarchicalStrategy(List.of(
+                new HierarchicalStrategy.Level("client", perClient, true),
+                new HierarchicalStrategy.Level("endpoint total", endpointTotal, false)));
+    }
+
+    @Test
+    void shouldCapTheSumOfWellBehavedClients() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(strategy.allowRequest("client-a")).isTrue();
+        }
+        assertThat(strategy.allowRequest("client-b")).isTrue();
+
+        assertThat(strategy.allowRequest("client-b")).isFalse();
+        assertThat(strategy.getRemainingRequests("client-b")).isZero();
+    }
+
+    @Test
+    void shouldReleaseEarlierLevelsWhenALaterOneDenies() {
+        for (int i = 0; i < 4; i++) {
+            strategy.allowRequest("client-" + i);
+        }
+
+        assertThat(strategy.allowRequest("client-x", 2)).isFalse();
+
+        assertThat(perClient.getRemainingRequests("client-x")).isEqualTo(3);
+        assertThat(endpointTotal.getRemainingRequests(HierarchicalStrategy.ALL_CLIENTS)).isZero();
+    }
+
+    @Test
+    void shouldNotChargeSharedLevelsWhenTheClientLevelDenies() {
+        for (int i = 0; i < 3; i++) {
+            strategy.allowRequest("client-a");
+        }
+
+        assertThat(strategy.allowRequest("client-a")).isFalse();
+
+        assertThat(endpointTotal.getRemainingRequests(HierarchicalStrategy.ALL_CLIENTS)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportTheTightestLevel() {
+        strategy.allowRequest("client-a");
+        strategy.allowRequest("client-b");
+
+        RateLimitDecision decision = strategy.tryAcquire("client-c", 1, new RateLimitDecision());
+
+        assertThat(decision.isAllowed()).isTrue();
+        assertThat(decision.getRemaining()).isEqualTo(1);
+        assertThat(decision.getLimit()).isEqualTo(4);
+
+        strategy.tryAcquire("client-d", 2, decision);
+        assertThat(decision.isAllowed()).isFalse();
+        assertThat(decision.getLimit()).isEqualTo(4);
+        assertThat(perClient.getRemainingRequests("client-d")).isEqualTo(3);
+    }
+
+    @Test
+    void shouldOnlyResetPerClientLevels() {
+        strategy.allowRequest("client-a");
+        strategy.allowRequest("client-a");
+
+        strategy.reset("client-a");
+
+        assertThat(perClient.getRemainingRequests("client-a")).isEqualTo(3);
+        assertThat(endpointTotal.getRemainingRequests(HierarchicalStrategy.ALL_CLIENTS)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,172 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.benchmark.QuietConsole;
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import com.learning.ratelimiter.store.StateStoreType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdleExpiryTest {
+
+    private static final long WINDOW = 60_000;
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        QuietConsole.mute();
+        timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuietConsole.restore();
+    }
+
+    // Every variant with idle expiry on
+    static Stream<Arguments> strategies() {
+        return WeightedPermitsTest.strategies().map(arguments -> Arguments.of(arguments.get()[0],
+                ((RateLimiterFactory.Configuration) arguments.get()[1]).withIdleExpiry(true)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    void shouldDropClientsOnlyOnceBackAtFullQuota(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        // The sketch keeps no per-client state to drop
+        int reclaimable = algorithm != RateLimitingAlgorithm.COUNT_MIN_SKETCH ? 100 : 0;
+        for (int i = 0; i < 100; i++) {
+            assertThat(strategy.allowRequest("client-" + i, 5)).isTrue();
+        }
+
+        timeProvider.setCurrentTime(1_000_000 + WINDOW / 10);
+        assertThat(strategy.expireIdleClients()).as("clients still using their quota").isZero();
+        assertThat(strategy.getRemainingRequests("client-0")).isLessThan(10);
+
+        // Two windows on, every algorithm is back at a full quota, including the window counter's previous bucket
+        timeProvider.setCurrentTime(1_000_000 + 2 * WINDOW + 1);
+        assertThat(strategy.expireIdleClients()).isEqualTo(reclaimable);
+        assertThat(strategy.expireIdleClients()).isZero();
+
+        // A dropped client comes back as if new
+        assertThat(strategy.getRemainingRequests("client-0")).isEqualTo(10);
+        assertThat(strategy.allowRequest("client-0", 10)).isTrue();
+        assertThat(strategy.allowRequest("client-0")).isFalse();
+    }
+
+    // The variants keeping their clients in an OFF_HEAP or ARRAY store, which holds 100
+    static Stream<Arguments> fixedStoreStrategies() {
+        return strategies().filter(arguments ->
+                ((RateLimiterFactory.Configuration) arguments.get()[1]).stateStore() != StateStoreType.HEAP);
+    }
+
+    @ParameterizedTest
+    @MethodSource("fixedStoreStrategies")
+    void shouldGiveAFullStoreItsRoomBack(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        for (int i = 0; i < 100; i++) {
+            assertThat(strategy.allowRequest("client-" + i)).isTrue();
+        }
+        assertThatThrownBy(() -> strategy.allowRequest("newcomer"))
+                .isInstanceOf(RateLimiterExceptions.RateLimiterUnavailableException.class);
+
+        timeProvider.setCurrentTime(1_000_000 + 2 * WINDOW + 1);
+        assertThat(strategy.expireIdleClients()).isEqualTo(100);
+
+        // Twice over, so the second round has to reuse the room the first one was swept out of
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(strategy.allowRequest("newcomer-" + i)).isTrue();
+            }
+            timeProvider.setCurrentTime(timeProvider.getCurrentTimeMillis() + 2 * WINDOW + 1);
+            assertThat(strategy.expireIdleClients()).isEqualTo(100);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    void shouldDecideExactlyAsWithoutExpiry(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy expiring = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        RateLimitingStrategy keeping = new RateLimiterFactory(algorithm, config.withIdleExpiry(false), timeProvider)
+                .createStrategy();
+
+        // Bursts and pauses of uneven length, so clients keep going idle and coming back
+        long now = 1_000_000;
+        for (int step = 0; step < 200; step++) {
+            now += (step * 7919L) % (WINDOW / 2);
+            timeProvider.setCurrentTime(now);
+            expiring.expireIdleClients();
+            String clientId = "client-" + step % 5;
+            int permits = 1 + step % 4;
+            assertThat(expiring.allowRequest(clientId, permits))
+                    .as("step %d", step)
+                    .isEqualTo(keeping.allowRequest(clientId, permits));
+            assertThat(expiring.getRemainingRequests(clientId)).isEqualTo(keeping.getRemainingRequests(clientId));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    void shouldNotLoseRequestsRacingWithExpiry(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config)
+            throws Exception {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        int clients = 50;
+        for (int i = 0; i < clients; i++) {
+            strategy.allowRequest("client-" + i);
+        }
+        // Every client is idle and due; requests and the sweep now race for them
+        timeProvider.setCurrentTime(1_000_000 + 2 * WINDOW + 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < clients; i++) {
+                    if (strategy.allowRequest("client-" + (i + offset * 7) % clients, 4)) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            start.await();
+            strategy.expireIdleClients();
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Each client had room for exactly two of the three 4-permit requests, expired or not
+        assertThat(allowed.get()).isEqualTo(2 * clients);
+        for (int i = 0; i < clients; i++) {
+            assertThat(strategy.getRemainingRequests("client-" + i)).isEqualTo(2);
+        }
+    }
+}
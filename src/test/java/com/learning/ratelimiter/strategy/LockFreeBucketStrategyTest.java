@@ -0,0 +1,104 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LockFreeBucketStrategyTest {
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RateLimitingAlgorithm.class, names = {"TOKEN_BUCKET", "LEAKY_BUCKET"})
+    void shouldCreateLockFreeVariantWhenConfigured(RateLimitingAlgorithm algorithm) {
+        RateLimitingStrategy strategy = createStrategy(algorithm, 10, 10_000);
+
+        assertThat(strategy).isInstanceOfAny(LockFreeTokenBucketStrategy.class, LockFreeLeakyBucketStrategy.class);
+        for (int i = 0; i < 10; i++) {
+            assertThat(strategy.allowRequest("client-1")).isTrue();
+            assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(9 - i);
+        }
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RateLimitingAlgorithm.class, names = {"TOKEN_BUCKET", "LEAKY_BUCKET"})
+    void shouldCarryFractionalRefillForward(RateLimitingAlgorithm algorithm) {
+        // 3 per 10s: one unit every 3333.3ms
+        RateLimitingStrategy strategy = createStrategy(algorithm, 3, 10_000);
+        for (int i = 0; i < 3; i++) {
+            strategy.allowRequest("client-1");
+        }
+
+        // Polling every 2s for 100s: if each refill dropped the fraction (moved the refill time to now)
+        // only every other poll would get a unit, 25 instead of 30. Refill times are rounded up to the
+        // millisecond, so the bucket can run up to 1ms per refill behind the exact rate.
+        int allowed = 0;
+        for (int step = 1; step <= 50; step++) {
+            timeProvider.setCurrentTime(1_000_000 + step * 2_000L);
+            allowed += strategy.allowRequest("client-1") ? 1 : 0;
+        }
+
+        assertThat(allowed).isBetween(29, 30);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RateLimitingAlgorithm.class, names = {"TOKEN_BUCKET", "LEAKY_BUCKET"})
+    void shouldAdmitExactlyTheLimitForOneHotKey(RateLimitingAlgorithm algorithm) throws InterruptedException {
+        RateLimitingStrategy strategy = createStrategy(algorithm, 500, 60_000);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 250; i++) {
+                    if (strategy.allowRequest("hot-key")) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(allowed.get()).isEqualTo(500);
+        assertThat(strategy.getRemainingRequests("hot-key")).isZero();
+    }
+
+    @Test
+    void shouldRejectLimitsThatDoNotFitThePackedState() {
+        assertThatThrownBy(() -> new LockFreeTokenBucketStrategy(1 << 24, 60_000, timeProvider))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+        assertThatThrownBy(() -> new LockFreeLeakyBucketStrategy(10, 0, timeProvider))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+    }
+
+    private RateLimitingStrategy createStrategy(RateLimitingAlgorithm algorithm, int maxRequests, long window) {
+        RateLimiterFactory.Configuration config =
+                new RateLimiterFactory.Configuration(maxRequests, window).withLockFree(true);
+        return new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+    }
+}
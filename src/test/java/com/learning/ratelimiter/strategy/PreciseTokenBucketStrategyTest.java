@@ -0,0 +1,88 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PreciseTokenBucketStrategyTest {
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTimeNanos(5_000_000_000L);
+    }
+
+    @Test
+    void shouldBeCreatedForHighPrecisionTokenBucket() {
+        RateLimiterFactory.Configuration config =
+                new RateLimiterFactory.Configuration(10, 1_000).withHighPrecision(true);
+        RateLimitingStrategy strategy =
+                new RateLimiterFactory(RateLimitingAlgorithm.TOKEN_BUCKET, config, timeProvider).createStrategy();
+
+        assertThat(strategy).isInstanceOf(PreciseTokenBucketStrategy.class);
+        for (int i = 0; i < 10; i++) {
+            assertThat(strategy.allowRequest("client-1")).isTrue();
+            assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(9 - i);
+        }
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+    }
+
+    @Test
+    void shouldSustainOneHundredThousandPerSecond() {
+        PreciseTokenBucketStrategy strategy = new PreciseTokenBucketStrategy(100_000, 1_000, timeProvider);
+        long start = timeProvider.getCurrentTimeNanos();
+        drain(strategy);
+
+        // Offer ~143k req/s for one second: one request every 7µs
+        int allowed = 0;
+        for (long t = 7_000; t < 1_000_000_000L; t += 7_000) {
+            timeProvider.setCurrentTimeNanos(start + t);
+            allowed += strategy.allowRequest("hot-key") ? 1 : 0;
+        }
+
+        assertThat(allowed).isBetween(99_999, 100_000);
+    }
+
+    @Test
+    void shouldSustainFiftyPerHundredMilliseconds() {
+        PreciseTokenBucketStrategy strategy = new PreciseTokenBucketStrategy(50, 100, timeProvider);
+        long start = timeProvider.getCurrentTimeNanos();
+        drain(strategy);
+
+        // Offer one request every 1.5ms for one second against 500/s
+        int allowed = 0;
+        for (long t = 1_500_000; t < 1_000_000_000L; t += 1_500_000) {
+            timeProvider.setCurrentTimeNanos(start + t);
+            allowed += strategy.allowRequest("hot-key") ? 1 : 0;
+        }
+
+        assertThat(allowed).isBetween(499, 500);
+    }
+
+    @Test
+    void shouldCarryFractionalTokensForward() {
+        // 3 per 10s polled every 2s: 0.6 tokens per poll, exactly 30 over 100s
+        PreciseTokenBucketStrategy strategy = new PreciseTokenBucketStrategy(3, 10_000, timeProvider);
+        long start = timeProvider.getCurrentTimeNanos();
+        drain(strategy);
+
+        int allowed = 0;
+        for (int step = 1; step <= 50; step++) {
+            timeProvider.setCurrentTimeNanos(start + step * 2_000_000_000L);
+            allowed += strategy.allowRequest("hot-key") ? 1 : 0;
+        }
+
+        assertThat(allowed).isEqualTo(30);
+    }
+
+    private void drain(PreciseTokenBucketStrategy strategy) {
+        while (strategy.allowRequest("hot-key")) {
+            // take the initial burst
+        }
+    }
+}
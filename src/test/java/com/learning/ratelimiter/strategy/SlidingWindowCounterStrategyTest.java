@@ -0,0 +1,106 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.exception.RateLimiterExceptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowCounterStrategyTest {
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new FakeTimeProvider();
+    }
+
+    @Test
+    void shouldAllowUpToLimitWithinOneBucket() {
+        SlidingWindowCounterStrategy strategy = new SlidingWindowCounterStrategy(10, 10_000, 1, timeProvider);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(strategy.allowRequest("client-1")).isTrue();
+            assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(9 - i);
+        }
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+        assertThat(strategy.getRemainingRequests("client-1")).isZero();
+    }
+
+    @Test
+    void shouldWeightPreviousWindowByRemainingOverlap() {
+        SlidingWindowCounterStrategy strategy = new SlidingWindowCounterStrategy(10, 10_000, 1, timeProvider);
+        timeProvider.setCurrentTime(9_900);
+        for (int i = 0; i < 10; i++) {
+            strategy.allowRequest("client-1");
+        }
+
+        // 25% into the next window: 75% of the previous 10 requests still count
+        timeProvider.setCurrentTime(12_500);
+        assertThat(strategy.getEstimatedCount("client-1")).isEqualTo(7.5);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(2);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+    }
+
+    @Test
+    void shouldStopBoundaryBurstThatFixedWindowAllows() {
+        SlidingWindowCounterStrategy strategy = new SlidingWindowCounterStrategy(10, 10_000, 1, timeProvider);
+        timeProvider.setCurrentTime(9_900);
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            allowed += strategy.allowRequest("client-1") ? 1 : 0;
+        }
+        timeProvider.setCurrentTime(10_100);
+        for (int i = 0; i < 10; i++) {
+            allowed += strategy.allowRequest("client-1") ? 1 : 0;
+        }
+
+        assertThat(allowed).isEqualTo(10);
+    }
+
+    @Test
+    void shouldTrackExactCountsWithMoreSubBuckets() {
+        // 10 one-second buckets: requests at 0s fall out of the window exactly 10s later
+        SlidingWindowCounterStrategy strategy = new SlidingWindowCounterStrategy(10, 10_000, 10, timeProvider);
+        timeProvider.setCurrentTime(0);
+        for (int i = 0; i < 5; i++) {
+            strategy.allowRequest("client-1");
+        }
+        timeProvider.setCurrentTime(5_000);
+        for (int i = 0; i < 5; i++) {
+            strategy.allowRequest("client-1");
+        }
+
+        timeProvider.setCurrentTime(9_999);
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+
+        timeProvider.setCurrentTime(11_000);
+        assertThat(strategy.getEstimatedCount("client-1")).isEqualTo(5.0);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(5);
+    }
+
+    @Test
+    void shouldForgetEverythingAfterAnIdleGap() {
+        SlidingWindowCounterStrategy strategy = new SlidingWindowCounterStrategy(3, 1_000, 4, timeProvider);
+        for (int i = 0; i < 3; i++) {
+            strategy.allowRequest("client-1");
+        }
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+
+        timeProvider.setCurrentTime(60_000);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(3);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+    }
+
+    @Test
+    void shouldRejectInvalidSubBucketConfiguration() {
+        assertThatThrownBy(() -> new SlidingWindowCounterStrategy(10, 10_000, 0, timeProvider))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+        assertThatThrownBy(() -> new SlidingWindowCounterStrategy(10, 5, 10, timeProvider))
+                .isInstanceOf(RateLimiterExceptions.ConfigurationException.class);
+    }
+}
@@ -0,0 +1,69 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.benchmark.QuietConsole;
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowStrategyTest {
+
+    private FakeTimeProvider timeProvider;
+    private SlidingWindowStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        QuietConsole.mute();
+        timeProvider = new FakeTimeProvider();
+        strategy = new SlidingWindowStrategy(3, 1_000, timeProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuietConsole.restore();
+    }
+
+    @Test
+    void shouldExpireTimestampsExactlyOneWindowLater() {
+        timeProvider.setCurrentTime(100);
+        strategy.allowRequest("client-1");
+        timeProvider.setCurrentTime(400);
+        strategy.allowRequest("client-1");
+        strategy.allowRequest("client-1");
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+
+        timeProvider.setCurrentTime(1_099);
+        assertThat(strategy.getRemainingRequests("client-1")).isZero();
+
+        timeProvider.setCurrentTime(1_100);
+        assertThat(strategy.getCurrentWindowSize("client-1")).isEqualTo(2);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepArrivalOrderWhenTheRingWrapsAround() {
+        for (int i = 0; i < 10; i++) {
+            timeProvider.setCurrentTime(i * 400L);
+            assertThat(strategy.allowRequest("client-1")).isTrue();
+        }
+
+        // 3600 - 1000 = 2600: only the requests at 2800, 3200 and 3600 are in the window
+        assertThat(strategy.getClientTimestamps("client-1")).containsExactly(2_800L, 3_200L, 3_600L);
+        assertThat(strategy.allowRequest("client-1")).isFalse();
+    }
+
+    @Test
+    void shouldForgetClientOnReset() {
+        for (int i = 0; i < 3; i++) {
+            strategy.allowRequest("client-1");
+        }
+
+        strategy.reset("client-1");
+
+        assertThat(strategy.getClientTimestamps("client-1")).isNull();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(3);
+        assertThat(strategy.allowRequest("client-1")).isTrue();
+    }
+}
@@ -0,0 +1,107 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.benchmark.QuietConsole;
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TryAcquireTest {
+
+    private static final long START = 1_000_000;
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        QuietConsole.mute();
+        timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(START);
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuietConsole.restore();
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.learning.ratelimiter.strategy.WeightedPermitsTest#strategies")
+    void shouldDescribeTheDecisionItMade(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        RateLimitDecision decision = new RateLimitDecision();
+
+        strategy.tryAcquire("client-1", 3, decision);
+        assertThat(decision.isAllowed()).isTrue();
+        assertThat(decision.getRemaining()).isEqualTo(7).isEqualTo(strategy.getRemainingRequests("client-1"));
+        assertThat(decision.getLimit()).isEqualTo(10);
+        assertThat(decision.getRetryAfterMillis()).isZero();
+        // The window counter keeps a bucket until it has fully slid out, up to a bucket past the window
+        assertThat(decision.getResetAfterMillis()).isBetween(1L, 120_000L);
+
+        strategy.tryAcquire("client-1", 8, decision);
+        assertThat(decision.isAllowed()).isFalse();
+        assertThat(decision.getRemaining()).isEqualTo(7);
+        assertThat(decision.getRetryAfterMillis()).isBetween(1L, 60_000L);
+
+        strategy.tryAcquire("client-1", 11, decision);
+        assertThat(decision.isAllowed()).isFalse();
+        assertThat(decision.getRetryAfterMillis()).isEqualTo(-1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.learning.ratelimiter.strategy.WeightedPermitsTest#strategies")
+    void shouldReportEachBatchDecisionWithItsOwnRemaining(RateLimitingAlgorithm algorithm,
+                                                          RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        String[] clientIds = new String[12];
+        Arrays.fill(clientIds, "client-1");
+        clientIds[5] = "client-2";
+
+        long[] decisions = strategy.allowRequests(clientIds);
+
+        long remaining = 10;
+        for (int i = 0; i < clientIds.length; i++) {
+            if (i == 5) {
+                assertThat(decisions[i]).isEqualTo(BatchDecision.encode(true, 9));
+            } else {
+                remaining = Math.max(0, remaining - 1);
+                boolean allowed = i < 11;
+                assertThat(decisions[i]).as("request %d", i).isEqualTo(BatchDecision.encode(allowed, remaining));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.learning.ratelimiter.strategy.WeightedPermitsTest#strategies")
+    void shouldAllowTheRequestOnceRetryAfterHasPassed(RateLimitingAlgorithm algorithm,
+                                                      RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        RateLimitDecision decision = new RateLimitDecision();
+        assertThat(strategy.tryAcquire("client-1", 10, decision).isAllowed()).isTrue();
+
+        long retryAfter = strategy.tryAcquire("client-1", 4, decision).getRetryAfterMillis();
+        assertThat(decision.isAllowed()).isFalse();
+        assertThat(retryAfter).isPositive();
+
+        timeProvider.setCurrentTime(START + retryAfter);
+        assertThat(strategy.tryAcquire("client-1", 4, decision).isAllowed()).isTrue();
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.learning.ratelimiter.strategy.WeightedPermitsTest#strategies")
+    void shouldBeFullAgainOnceResetHasPassed(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+        RateLimitDecision decision = new RateLimitDecision();
+
+        long resetAfter = strategy.tryAcquire("client-1", 6, decision).getResetAfterMillis();
+
+        timeProvider.setCurrentTime(START + resetAfter);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(10);
+    }
+}
@@ -0,0 +1,97 @@
+package com.learning.ratelimiter.strategy;
+
+import com.learning.ratelimiter.benchmark.QuietConsole;
+import com.learning.ratelimiter.core.FakeTimeProvider;
+import com.learning.ratelimiter.factory.RateLimiterFactory;
+import com.learning.ratelimiter.store.StateStoreType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeightedPermitsTest {
+
+    private FakeTimeProvider timeProvider;
+
+    @BeforeEach
+    void setUp() {
+        QuietConsole.mute();
+        timeProvider = new FakeTimeProvider();
+        timeProvider.setCurrentTime(1_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuietConsole.restore();
+    }
+
+    static Stream<Arguments> strategies() {
+        RateLimiterFactory.Configuration base = new RateLimiterFactory.Configuration(10, 60_000);
+        Stream<Arguments> defaults = Arrays.stream(RateLimitingAlgorithm.values())
+                .map(algorithm -> Arguments.of(algorithm, base));
+        Stream<Arguments> variants = Stream.of(
+                Arguments.of(RateLimitingAlgorithm.FIXED_WINDOW, base.withEpochAligned(true)),
+                Arguments.of(RateLimitingAlgorithm.TOKEN_BUCKET, base.withLockFree(true)),
+                Arguments.of(RateLimitingAlgorithm.LEAKY_BUCKET, base.withLockFree(true)),
+                Arguments.of(RateLimitingAlgorithm.TOKEN_BUCKET, base.withHighPrecision(true)),
+                Arguments.of(RateLimitingAlgorithm.GCRA, base.withStateStore(StateStoreType.OFF_HEAP, 100)),
+                Arguments.of(RateLimitingAlgorithm.TOKEN_BUCKET,
+                        base.withLockFree(true).withStateStore(StateStoreType.OFF_HEAP, 100)),
+                Arguments.of(RateLimitingAlgorithm.FIXED_WINDOW,
+                        base.withEpochAligned(true).withStateStore(StateStoreType.OFF_HEAP, 100)),
+                Arguments.of(RateLimitingAlgorithm.GCRA, base.withStateStore(StateStoreType.ARRAY, 100)),
+                Arguments.of(RateLimitingAlgorithm.LEAKY_BUCKET,
+                        base.withLockFree(true).withStateStore(StateStoreType.ARRAY, 100)));
+        return Stream.concat(defaults, variants);
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    void shouldTakeAllPermitsOrNone(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+
+        assertThat(strategy.allowRequest("client-1", 4)).isTrue();
+        assertThat(strategy.allowRequest("client-1", 4)).isTrue();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(2);
+
+        assertThat(strategy.allowRequest("client-1", 4)).isFalse();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(2);
+
+        assertThat(strategy.allowRequest("client-1", 2)).isTrue();
+        assertThat(strategy.getRemainingRequests("client-1")).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    void shouldDenyRequestsCostingMoreThanTheLimit(RateLimitingAlgorithm algorithm,
+                                                   RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+
+        assertThat(strategy.allowRequest("client-1", 11)).isFalse();
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(10);
+        assertThatThrownBy(() -> strategy.allowRequest("client-1", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    void shouldGiveBackReleasedPermits(RateLimitingAlgorithm algorithm, RateLimiterFactory.Configuration config) {
+        RateLimitingStrategy strategy = new RateLimiterFactory(algorithm, config, timeProvider).createStrategy();
+
+        assertThat(strategy.allowRequest("client-1", 6)).isTrue();
+        strategy.release("client-1", 4);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(8);
+
+        // Never past the limit, and a client with no state is left alone
+        strategy.release("client-1", 5);
+        strategy.release("client-2", 1);
+        assertThat(strategy.getRemainingRequests("client-1")).isEqualTo(10);
+        assertThat(strategy.getRemainingRequests("client-2")).isEqualTo(10);
+    }
+}
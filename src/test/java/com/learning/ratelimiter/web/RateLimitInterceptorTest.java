@@ -0,0 +1,92 @@
+package com.learning.ratelimiter.web;
+
+import com.learning.ratelimiter.config.RateLimiterProperties;
+import com.learning.ratelimiter.resilience.AdaptiveConcurrencyRegistry;
+import com.learning.ratelimiter.service.RateLimitMetricsService;
+import com.learning.ratelimiter.service.RateLimitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitInterceptorTest {
+
+    private RateLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        properties.setDefaultMaxRequests(2);
+        interceptor = new RateLimitInterceptor(
+                new RateLimitService(properties, new RateLimitMetricsService(new SimpleMeterRegistry())));
+    }
+
+    @Test
+    void shouldSendLimitAndResetWithRemaining() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request("client-1"), response, null)).isTrue();
+
+        assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("1");
+        assertThat(response.getHeader("X-RateLimit-Limit")).isEqualTo("2");
+        assertThat(Long.parseLong(response.getHeader("X-RateLimit-Reset"))).isPositive();
+        assertThat(response.getHeader("Retry-After")).isNull();
+    }
+
+    @Test
+    void shouldSendRetryAfterWhenDenied() throws Exception {
+        interceptor.preHandle(request("client-1"), new MockHttpServletResponse(), null);
+        interceptor.preHandle(request("client-1"), new MockHttpServletResponse(), null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request("client-1"), response, null)).isFalse();
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("X-RateLimit-Remaining")).isEqualTo("0");
+        assertThat(Long.parseLong(response.getHeader("Retry-After"))).isPositive();
+        assertThat(response.getContentAsString()).contains("\"retryAfterMillis\"");
+    }
+
+    @Test
+    void shouldShedRequestsPastTheConcurrencyLimit() throws Exception {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setClientIdStrategy("API_KEY");
+        RateLimiterProperties.EndpointConfig endpoint = new RateLimiterProperties.EndpointConfig();
+        endpoint.setMaxRequests(1);
+        RateLimiterProperties.ConcurrencyConfig concurrency = new RateLimiterProperties.ConcurrencyConfig();
+        concurrency.setInitialLimit(1);
+        concurrency.setMaxLimit(1);
+        endpoint.setConcurrency(concurrency);
+        properties.getEndpoints().put("/api/hello", endpoint);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitInterceptor limited = new RateLimitInterceptor(
+                new RateLimitService(properties, new RateLimitMetricsService(meterRegistry)),
+                new AdaptiveConcurrencyRegistry(properties, meterRegistry));
+
+        MockHttpServletRequest inFlight = request("client-1");
+        assertThat(limited.preHandle(inFlight, new MockHttpServletResponse(), null)).isTrue();
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        assertThat(limited.preHandle(request("client-2"), shed, null)).isFalse();
+        assertThat(shed.getStatus()).isEqualTo(503);
+        assertThat(shed.getHeader("X-Concurrency-Limit")).isEqualTo("1");
+
+        limited.afterCompletion(inFlight, new MockHttpServletResponse(), null, null);
+
+        // The slot is free again; a request denied by its rate limit gives it straight back
+        MockHttpServletResponse denied = new MockHttpServletResponse();
+        assertThat(limited.preHandle(request("client-1"), denied, null)).isFalse();
+        assertThat(denied.getStatus()).isEqualTo(429);
+        assertThat(limited.preHandle(request("client-2"), new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    private MockHttpServletRequest request(String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hello");
+        request.addHeader("X-API-Key", apiKey);
+        return request;
+    }
+}